@@ -0,0 +1,63 @@
+package com.example.dataanalysis.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+// Benchmark inputs: the bundled sales.csv repeated up to any row count. Each repetition
+// shifts ORDERNUMBER by 10,000 so orders stay distinct; everything else (and so the
+// dictionary sizes) is unchanged. Files are written once to java.io.tmpdir and reused.
+final class BenchmarkData {
+
+    static final int BUNDLED_ROWS = 2823;
+    private static final int ORDER_NUMBER_STRIDE = 10_000;
+
+    private BenchmarkData() {
+    }
+
+    // Header and data lines of the bundled sales.csv, without line endings
+    static String[] bundledLines() {
+        try (InputStream in = BenchmarkData.class.getResourceAsStream("/sales.csv")) {
+            if (in == null) {
+                throw new IllegalStateException("sales.csv is not on the classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.ISO_8859_1).split("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A CSV with the header and exactly rows data lines
+    static Path csv(int rows) throws IOException {
+        Path file = Paths.get(System.getProperty("java.io.tmpdir"), "sales-bench-" + rows + ".csv");
+        if (Files.isRegularFile(file)) {
+            return file;
+        }
+        String[] lines = bundledLines();
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.ISO_8859_1)) {
+                out.write(lines[0]);
+                out.write("\r\n");
+                for (int row = 0; row < rows; row++) {
+                    int cycle = row / (lines.length - 1);
+                    String line = lines[1 + row % (lines.length - 1)];
+                    int comma = line.indexOf(',');
+                    out.write(Integer.toString(Integer.parseInt(line, 0, comma, 10) + cycle * ORDER_NUMBER_STRIDE));
+                    out.write(line, comma, line.length() - comma);
+                    out.write("\r\n");
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.dataanalysis.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.dataanalysis.ChunkedCsvLoader;
+import com.example.dataanalysis.PipelinedCsvLoader;
+import com.example.dataanalysis.RowFilter;
+import com.example.dataanalysis.SalesAggregators;
+import com.example.dataanalysis.SalesColumns;
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.StreamingSalesAnalysis;
+
+// CSV parsing throughput. Besides ops/s, each benchmark reports bytes/s and rows/s
+// (the Io counters), so runs over different sizes compare directly.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+
+    @Param({ "2823", "1000000" })
+    public int rows;
+
+    private Path csv;
+    private long bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = BenchmarkData.csv(rows);
+        bytes = Files.size(csv);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Io {
+        public long bytes;
+        public long rows;
+    }
+
+    // Memory-mapped, parallel chunked load into columns (what SalesAnalysis(csvPath) does)
+    @Benchmark
+    public SalesColumns chunkedLoad(Io io) throws IOException {
+        SalesColumns columns = new ChunkedCsvLoader().load(csv);
+        io.bytes += bytes;
+        io.rows += columns.size();
+        return columns;
+    }
+
+    @Benchmark
+    public SalesColumns chunkedLoadExactMoney(Io io) throws IOException {
+        SalesColumns columns = new ChunkedCsvLoader(true).load(csv);
+        io.bytes += bytes;
+        io.rows += columns.size();
+        return columns;
+    }
+
+    // Read, parse and build stages overlapped on a stream of blocks (--pipelined)
+    @Benchmark
+    public SalesColumns pipelinedLoad(Io io) throws IOException {
+        SalesColumns columns = new PipelinedCsvLoader().load(csv);
+        io.bytes += bytes;
+        io.rows += columns.size();
+        return columns;
+    }
+
+    // One year and three columns, pushed down into the parse
+    @Benchmark
+    public SalesColumns chunkedLoadPushdown(Io io) throws IOException {
+        SalesColumns columns = new ChunkedCsvLoader().load(csv,
+                EnumSet.of(Column.SALES, Column.TERRITORY, Column.PRODUCT_LINE), RowFilter.yearIn(2004));
+        io.bytes += bytes;
+        io.rows += columns.size();
+        return columns;
+    }
+
+    // Single-threaded constant-memory pass computing the totals
+    @Benchmark
+    public double streamingPass(Io io) throws IOException {
+        SalesAggregators.Totals totals = new SalesAggregators.Totals();
+        io.rows += new StreamingSalesAnalysis().register(totals).run(csv);
+        io.bytes += bytes;
+        return totals.getRevenue();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.dataanalysis.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.dataanalysis.ChunkedCsvLoader;
+import com.example.dataanalysis.OffHeapSalesColumns;
+import com.example.dataanalysis.QueryCache;
+import com.example.dataanalysis.QueryExecutor;
+import com.example.dataanalysis.SalesAnalysis;
+import com.example.dataanalysis.SalesColumns;
+import com.example.dataanalysis.SalesRecord;
+
+// Latency of each of the 13 query methods on loaded data. The query cache is turned
+// off, so every call scans the columns. -p offHeap=true,false compares the storage backends.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({ "2823", "1000000" })
+    public int rows;
+
+    @Param({ "0" })
+    public int threads;
+
+    // true: rows in direct buffers (OffHeapSalesColumns), scanned through on-heap blocks
+    @Param({ "false" })
+    public boolean offHeap;
+
+    private SalesAnalysis analysis;
+    private QueryExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SalesColumns columns = new ChunkedCsvLoader().load(BenchmarkData.csv(rows));
+        analysis = new SalesAnalysis(offHeap ? OffHeapSalesColumns.copyOf(columns) : columns);
+        analysis.setQueryCache(new QueryCache(0));
+        if (threads > 0) {
+            executor = QueryExecutor.parallel(threads);
+            analysis.setQueryExecutor(executor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Benchmark
+    public double totalRevenue() {
+        return analysis.getTotalRevenue();
+    }
+
+    @Benchmark
+    public Map<String, Double> revenueByProductLine() {
+        return analysis.getRevenueByProductLine();
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Double>> topCustomers() {
+        return analysis.getTopCustomers(5);
+    }
+
+    @Benchmark
+    public Map<String, Double> revenueByTerritory() {
+        return analysis.getRevenueByTerritory();
+    }
+
+    @Benchmark
+    public Map<String, Integer> quantityByProductLine() {
+        return analysis.getQuantityByProductLine();
+    }
+
+    @Benchmark
+    public double averageOrderValue() {
+        return analysis.getAverageOrderValue();
+    }
+
+    @Benchmark
+    public Map<Integer, Double> revenueByYear() {
+        return analysis.getRevenueByYear();
+    }
+
+    @Benchmark
+    public List<SalesRecord> highValueOrders() {
+        return analysis.getHighValueOrders(10000.0);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Double>> topCountries() {
+        return analysis.getTopCountries(5);
+    }
+
+    @Benchmark
+    public Map<String, Long> orderStatusDistribution() {
+        return analysis.getOrderStatusDistribution();
+    }
+
+    @Benchmark
+    public Map<String, Double> revenueByDealSize() {
+        return analysis.getRevenueByDealSize();
+    }
+
+    @Benchmark
+    public long totalTransactions() {
+        return analysis.getTotalTransactions();
+    }
+
+    @Benchmark
+    public long distinctCustomerCount() {
+        return analysis.getDistinctCustomerCount();
+    }
+}
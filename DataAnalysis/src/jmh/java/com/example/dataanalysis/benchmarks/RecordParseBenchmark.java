@@ -0,0 +1,49 @@
+package com.example.dataanalysis.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.dataanalysis.SalesRecord;
+
+// SalesRecord.fromCsvLine over every line of the bundled CSV; scores are per line,
+// so with -prof gc the gc.alloc.rate.norm figure is bytes allocated per row.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordParseBenchmark {
+
+    private String[] lines;
+
+    @Setup
+    public void setUp() {
+        String[] all = BenchmarkData.bundledLines();
+        lines = Arrays.copyOfRange(all, 1, all.length);
+        if (lines.length != BenchmarkData.BUNDLED_ROWS) {
+            throw new IllegalStateException("Expected " + BenchmarkData.BUNDLED_ROWS + " rows, got " + lines.length);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.BUNDLED_ROWS)
+    public void fromCsvLine(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(SalesRecord.fromCsvLine(line));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.dataanalysis.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.dataanalysis.QueryCache;
+import com.example.dataanalysis.SalesAnalysis;
+
+// End to end: the full report, with and without loading the CSV. Output goes to a
+// null stream so terminal speed is not measured.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    @Param({ "2823", "1000000" })
+    public int rows;
+
+    private String csv;
+    private SalesAnalysis loaded;
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = BenchmarkData.csv(rows).toString();
+        loaded = new SalesAnalysis(csv);
+        loaded.setQueryCache(new QueryCache(0));
+    }
+
+    // What `mvn exec:java` does: load, then one fused scan for every section
+    @Benchmark
+    public void loadAndPrintAnalysis() throws IOException {
+        new SalesAnalysis(csv).printAnalysis(out);
+    }
+
+    @Benchmark
+    public void printAnalysis() {
+        loaded.printAnalysis(out);
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.dataanalysis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesMetrics.LoadPhase;
+import com.example.dataanalysis.SalesMetrics.Timer;
+
+// Loads a sales CSV by memory-mapping it and parsing newline-aligned chunks on a fork-join pool.
+// Chunks are split on unquoted newlines only and merged back in file order.
+// With exactMoney, prices and sales are also kept as long cents (see SalesColumns).
+// load(path, projection, filter) pushes a column projection and a row filter into the
+// parse: rejected rows and unprojected fields are skipped before anything is decoded.
+// The read, per-chunk parse and build phases are timed by SalesMetrics.
+public class ChunkedCsvLoader {
+
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final boolean exactMoney;
+
+    public ChunkedCsvLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedCsvLoader(boolean exactMoney) {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, exactMoney);
+    }
+
+    public ChunkedCsvLoader(ForkJoinPool pool, int chunkSize) {
+        this(pool, chunkSize, false);
+    }
+
+    public ChunkedCsvLoader(ForkJoinPool pool, int chunkSize, boolean exactMoney) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.exactMoney = exactMoney;
+    }
+
+    // Load every row after the header line, in file order
+    public SalesColumns load(Path csvPath) throws IOException {
+        return load(csvPath, EnumSet.allOf(Column.class), RowFilter.ALL);
+    }
+
+    // Load only the rows that pass filter, decoding only the projected columns. A gzip file
+    // cannot be mapped and split, so it is rejected (PipelinedCsvLoader streams it instead).
+    public SalesColumns load(Path csvPath, Set<Column> projection, RowFilter filter) throws IOException {
+        if (ParallelGzipInputStream.isGzip(csvPath)) {
+            throw new IOException(csvPath + " is gzip-compressed; load it with PipelinedCsvLoader");
+        }
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            SalesMetrics metrics = SalesMetrics.global();
+            long[] bounds;
+            Timer read = metrics.startLoad(LoadPhase.READ, csvPath);
+            try {
+                bounds = findChunkBounds(channel);
+                read.add(0, channel.size());
+                read.succeeded();
+            } finally {
+                read.end();
+            }
+            List<SalesColumns> parts;
+            try {
+                Parse parse = new Parse(csvPath, channel, bounds, exactMoney, projection, filter);
+                parts = pool.invoke(new ParseTask(parse, 0, bounds.length - 1));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Timer build = metrics.startLoad(LoadPhase.BUILD, csvPath);
+            try {
+                SalesColumns columns = SalesColumns.concat(parts);
+                build.add(columns.size, 0);
+                build.succeeded();
+                return columns;
+            } finally {
+                build.end();
+            }
+        }
+    }
+
+    // Byte offsets where chunks start (plus the file size at the end). The first
+    // chunk starts after the header. Each nominal window is scanned in parallel for
+    // its quote parity and the first newline under either parity; a prefix pass
+    // over the parities then picks the real, quote-aware boundary for each window.
+    long[] findChunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int windows = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        WindowScan[] scans = pool.invoke(new ScanTask(channel, size, 0, windows));
+
+        List<Long> bounds = new ArrayList<>();
+        boolean quoted = false;
+        long headerEnd = -1;
+        for (WindowScan scan : scans) {
+            long newline = quoted ? scan.firstNewlineOddQuotes : scan.firstNewlineEvenQuotes;
+            if (newline >= 0) {
+                if (headerEnd < 0) {
+                    headerEnd = newline + 1;
+                    bounds.add(headerEnd);
+                } else if (scan.start > 0) {
+                    bounds.add(newline + 1);
+                }
+            }
+            quoted ^= scan.oddQuotes;
+        }
+        if (headerEnd < 0) {
+            // Header only (or empty file)
+            bounds.add(size);
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long to) {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Chunk at offset " + from + " is larger than 2GB (line without newline?)");
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Quote parity and candidate row boundaries of one nominal window
+    private static class WindowScan {
+        long start;
+        boolean oddQuotes;
+        long firstNewlineEvenQuotes = -1;
+        long firstNewlineOddQuotes = -1;
+    }
+
+    private class ScanTask extends RecursiveTask<WindowScan[]> {
+        private final FileChannel channel;
+        private final long size;
+        private final int from;
+        private final int to;
+
+        ScanTask(FileChannel channel, long size, int from, int to) {
+            this.channel = channel;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected WindowScan[] compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                ScanTask left = new ScanTask(channel, size, from, mid);
+                ScanTask right = new ScanTask(channel, size, mid, to);
+                invokeAll(left, right);
+                WindowScan[] a = left.join();
+                WindowScan[] b = right.join();
+                WindowScan[] merged = new WindowScan[a.length + b.length];
+                System.arraycopy(a, 0, merged, 0, a.length);
+                System.arraycopy(b, 0, merged, a.length, b.length);
+                return merged;
+            }
+            return new WindowScan[] { scan(from) };
+        }
+
+        private WindowScan scan(int window) {
+            WindowScan scan = new WindowScan();
+            scan.start = (long) window * chunkSize;
+            long end = Math.min(size, scan.start + chunkSize);
+            MappedByteBuffer buffer = map(channel, scan.start, end);
+            boolean odd = false;
+            int limit = buffer.limit();
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    odd = !odd;
+                } else if (b == '\n') {
+                    if (!odd && scan.firstNewlineEvenQuotes < 0) {
+                        scan.firstNewlineEvenQuotes = scan.start + i;
+                    } else if (odd && scan.firstNewlineOddQuotes < 0) {
+                        scan.firstNewlineOddQuotes = scan.start + i;
+                    }
+                }
+            }
+            scan.oddQuotes = odd;
+            return scan;
+        }
+    }
+
+    // What every chunk of one load shares
+    private static class Parse {
+        final Path path;
+        final FileChannel channel;
+        final long[] bounds;
+        final boolean exactMoney;
+        final Set<Column> projection;
+        final RowFilter filter;
+
+        Parse(Path path, FileChannel channel, long[] bounds, boolean exactMoney, Set<Column> projection,
+                RowFilter filter) {
+            this.path = path;
+            this.channel = channel;
+            this.bounds = bounds;
+            this.exactMoney = exactMoney;
+            this.projection = projection;
+            this.filter = filter;
+        }
+    }
+
+    // Parses chunks [from, to) of the bounds array, splitting in halves.
+    // Each chunk gets its own columns and dictionaries; concat() merges them.
+    private static class ParseTask extends RecursiveTask<List<SalesColumns>> {
+        private final Parse parse;
+        private final int from;
+        private final int to;
+
+        ParseTask(Parse parse, int from, int to) {
+            this.parse = parse;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<SalesColumns> compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                ParseTask left = new ParseTask(parse, from, mid);
+                ParseTask right = new ParseTask(parse, mid, to);
+                invokeAll(left, right);
+                List<SalesColumns> parts = left.join();
+                parts.addAll(right.join());
+                return parts;
+            }
+            List<SalesColumns> parts = new ArrayList<>();
+            parts.add(parseChunk(parse.bounds[from], parse.bounds[from + 1]));
+            return parts;
+        }
+
+        // Parse one chunk, timed as a PARSE phase; a malformed line counts as a failed phase
+        private SalesColumns parseChunk(long start, long end) {
+            Timer timer = SalesMetrics.global().startLoad(LoadPhase.PARSE, parse.path);
+            try {
+                SalesColumns columns = parseRows(start, end);
+                timer.add(columns.size, end - start);
+                timer.succeeded();
+                return columns;
+            } finally {
+                timer.end();
+            }
+        }
+
+        private SalesColumns parseRows(long start, long end) {
+            if (end <= start) {
+                return new SalesColumns.Builder(0, parse.exactMoney, parse.projection).build();
+            }
+            MappedByteBuffer buffer = map(parse.channel, start, end);
+            // ~100 bytes per row is a good first guess for this schema
+            SalesColumns.Builder builder = new SalesColumns.Builder((int) ((end - start) / 100), parse.exactMoney,
+                    parse.projection);
+            CsvTokenizer tokens = new CsvTokenizer(SalesRecord.COLUMN_COUNT);
+            RowFilter filter = parse.filter;
+            int limit = buffer.limit();
+            int pos = 0;
+            while (pos < limit) {
+                pos = tokens.nextLine(buffer, pos, limit);
+                if (!tokens.isBlank() && filter.test(tokens)) {
+                    builder.add(tokens);
+                }
+            }
+            return builder.build();
+        }
+    }
+}
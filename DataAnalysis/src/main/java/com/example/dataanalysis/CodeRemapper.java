@@ -0,0 +1,77 @@
+package com.example.dataanalysis;
+
+import java.util.Arrays;
+
+// Translates codes of a batch's dictionary into the dictionary an aggregator keys its
+// state by, so state stays valid when batches come from different loads.
+// The first dictionary seen is adopted as-is (identity mapping, no copy), which is
+// the common case: every partition of one dataset shares its dictionaries. Only
+// when a second dictionary shows up is a private copy made; codes keep their values.
+class CodeRemapper {
+
+    private static volatile int[] identity = new int[0];
+
+    private StringDictionary target;
+    private boolean owned;
+    private StringDictionary source;
+    private int[] remap = new int[0];
+    private int mapped;
+
+    int[] remap(StringDictionary from) {
+        if (target == null) {
+            target = from;
+        }
+        if (from == target) {
+            return identity(from.size());
+        }
+        if (!owned) {
+            StringDictionary copy = new StringDictionary();
+            for (int code = 0; code < target.size(); code++) {
+                copy.encode(target.get(code));
+            }
+            target = copy;
+            owned = true;
+        }
+        if (from != source) {
+            source = from;
+            mapped = 0;
+        }
+        int size = from.size();
+        if (mapped < size) {
+            if (remap.length < size) {
+                remap = Arrays.copyOf(remap, Math.max(size, remap.length * 2));
+            }
+            for (int code = mapped; code < size; code++) {
+                remap[code] = target.encode(from.get(code));
+            }
+            mapped = size;
+        }
+        return remap;
+    }
+
+    StringDictionary dictionary() {
+        if (target == null) {
+            target = new StringDictionary();
+            owned = true;
+        }
+        return target;
+    }
+
+    // Shared read-only 0, 1, 2, ... array of at least 'size' entries
+    private static int[] identity(int size) {
+        int[] current = identity;
+        if (current.length >= size) {
+            return current;
+        }
+        synchronized (CodeRemapper.class) {
+            if (identity.length < size) {
+                int[] grown = new int[Math.max(size, identity.length * 2)];
+                for (int i = 0; i < grown.length; i++) {
+                    grown[i] = i;
+                }
+                identity = grown;
+            }
+            return identity;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.dataanalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Single-pass, quote-aware CSV tokenizer.
+// Only records where each field starts and ends; values are decoded straight
+// from the underlying chars/bytes so skipped columns never become Strings.
+// Byte input is treated as ISO-8859-1 (one byte per char), same as the loader.
+public class CsvTokenizer {
+
+    private final int maxFields;
+    private final int[] starts;
+    private final int[] ends;
+    private int fieldCount;
+    private boolean terminated;
+
+    // Exactly one of these is set by reset()
+    private CharSequence text;
+    private ByteBuffer bytes;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Largest mantissa that a double holds exactly (2^53)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    public CsvTokenizer(int maxFields) {
+        if (maxFields <= 0) {
+            throw new IllegalArgumentException("maxFields must be positive");
+        }
+        this.maxFields = maxFields;
+        this.starts = new int[maxFields];
+        this.ends = new int[maxFields];
+    }
+
+    // Tokenize a whole line held as text
+    public CsvTokenizer reset(CharSequence line) {
+        this.text = line;
+        this.bytes = null;
+        tokenize(0, line.length());
+        return this;
+    }
+
+    // Tokenize bytes [from, to) of a buffer, using absolute indexes
+    public CsvTokenizer reset(ByteBuffer buffer, int from, int to) {
+        this.text = null;
+        this.bytes = buffer;
+        tokenize(from, to);
+        return this;
+    }
+
+    public CsvTokenizer reset(byte[] line, int from, int to) {
+        return reset(ByteBuffer.wrap(line), from, to);
+    }
+
+    // Tokenize the line starting at 'from' and ending at the first unquoted
+    // newline (or 'limit'). Returns the index just past that newline, so
+    // callers can walk a buffer line by line with a single pass over the bytes.
+    public int nextLine(ByteBuffer buffer, int from, int limit) {
+        this.text = null;
+        this.bytes = buffer;
+        return scan(from, limit, true);
+    }
+
+    private char charAt(int i) {
+        return bytes != null ? (char) (bytes.get(i) & 0xFF) : text.charAt(i);
+    }
+
+    private void tokenize(int from, int to) {
+        scan(from, to, false);
+    }
+
+    // Walk the line once, splitting on commas that are not inside quotes.
+    // Fields past maxFields are not recorded, but a newline after them still ends the line.
+    private int scan(int from, int limit, boolean stopAtNewline) {
+        int field = 0;
+        int start = from;
+        boolean quoted = false;
+        int i = from;
+        int lineEnd = limit;
+        int next = limit;
+        terminated = false;
+        for (; i < limit; i++) {
+            char c = charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (quoted) {
+                continue;
+            } else if (c == ',') {
+                if (field < maxFields) {
+                    starts[field] = start;
+                    ends[field] = i;
+                    field++;
+                }
+                start = i + 1;
+            } else if (c == '\n' && stopAtNewline) {
+                lineEnd = i;
+                next = i + 1;
+                terminated = true;
+                break;
+            }
+        }
+        if (lineEnd > start && charAt(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        if (field < maxFields) {
+            starts[field] = start;
+            ends[field] = Math.max(start, lineEnd);
+            field++;
+        }
+        fieldCount = field;
+        return next;
+    }
+
+    // True when nextLine() stopped at a newline rather than running out of input
+    public boolean endedAtNewline() {
+        return terminated;
+    }
+
+    // True when the last tokenized line has no content (e.g. a trailing blank line)
+    public boolean isBlank() {
+        return fieldCount == 1 && ends[0] == starts[0];
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IllegalArgumentException(
+                    "Field " + field + " missing, line has " + fieldCount + " fields");
+        }
+    }
+
+    public int fieldLength(int field) {
+        checkField(field);
+        return ends[field] - starts[field];
+    }
+
+    // Materialize a field as a String (raw text, quotes kept)
+    public String getString(int field) {
+        checkField(field);
+        int start = starts[field];
+        int end = ends[field];
+        if (bytes == null) {
+            return text.subSequence(start, end).toString();
+        }
+        byte[] buf = new byte[end - start];
+        bytes.get(start, buf);
+        return new String(buf, StandardCharsets.ISO_8859_1);
+    }
+
+    // Compare a field with a String without materializing the field
+    public boolean fieldEquals(int field, String value) {
+        checkField(field);
+        int start = starts[field];
+        int length = ends[field] - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same hash as String.hashCode() of the field text
+    public int fieldHash(int field) {
+        checkField(field);
+        int h = 0;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            h = 31 * h + charAt(i);
+        }
+        return h;
+    }
+
+    public int getInt(int field) {
+        long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw numberError(field);
+        }
+        return (int) value;
+    }
+
+    public long getLong(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (i < end && (charAt(i) == '-' || charAt(i) == '+')) {
+            negative = charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw numberError(field);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw numberError(field);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Decimal parse without building a String. Plain decimals with up to 15
+    // significant digits are exact (mantissa / 10^k is correctly rounded);
+    // anything else falls back to Double.parseDouble, so results always match it.
+    public double getDouble(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (i < end && (charAt(i) == '-' || charAt(i) == '+')) {
+            negative = charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean seenDot = false;
+        for (; i < end; i++) {
+            char c = charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (seenDot) {
+                    scale++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return slowDouble(field);
+                }
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                // exponent, NaN, Infinity, hex, or junk
+                return slowDouble(field);
+            }
+        }
+        if (digits == 0 || scale >= POWERS_OF_TEN.length) {
+            return slowDouble(field);
+        }
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    // Parse a decimal amount straight to integer cents, e.g. "2871.00" -> 287100, "-3.5" -> -350.
+    // The third fractional digit rounds the magnitude half-up (later digits are ignored). No doubles involved,
+    // so the result is exact whatever the magnitude.
+    public long getCents(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = false;
+        if (i < end && (charAt(i) == '-' || charAt(i) == '+')) {
+            negative = charAt(i) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        for (; i < end && charAt(i) != '.'; i++) {
+            int digit = charAt(i) - '0';
+            if (digit < 0 || digit > 9 || units > (MAX_CENTS_UNITS - digit) / 10) {
+                throw numberError(field);
+            }
+            units = units * 10 + digit;
+            digits++;
+        }
+        long cents = 0;
+        int fraction = 0;
+        boolean roundUp = false;
+        if (i < end) {
+            i++; // the '.'
+            for (; i < end; i++) {
+                int digit = charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw numberError(field);
+                }
+                if (fraction < 2) {
+                    cents = cents * 10 + digit;
+                } else if (fraction == 2) {
+                    roundUp = digit >= 5;
+                }
+                fraction++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            throw numberError(field);
+        }
+        for (int f = fraction; f < 2; f++) {
+            cents *= 10;
+        }
+        long value = units * 100 + cents + (roundUp ? 1 : 0);
+        return negative ? -value : value;
+    }
+
+    private static final long MAX_CENTS_UNITS = Long.MAX_VALUE / 100 - 1;
+
+    private double slowDouble(int field) {
+        return Double.parseDouble(getString(field).trim());
+    }
+
+    // Parse "M/d/yyyy H:mm" as a date; the time part is ignored
+    public LocalDate getDate(int field) {
+        return LocalDate.ofEpochDay(getEpochDay(field));
+    }
+
+    // Same as getDate(field).toEpochDay(), without the LocalDate
+    public long getEpochDay(int field) {
+        checkField(field);
+        int i = starts[field];
+        int end = ends[field];
+        int month = 0;
+        int day = 0;
+        int year = 0;
+        int part = 0;
+        int partDigits = 0;
+        for (; i < end; i++) {
+            char c = charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (part == 0) {
+                    month = month * 10 + digit;
+                } else if (part == 1) {
+                    day = day * 10 + digit;
+                } else {
+                    year = year * 10 + digit;
+                }
+                partDigits++;
+            } else if (c == '/' && part < 2 && partDigits > 0) {
+                part++;
+                partDigits = 0;
+            } else if (c == ' ' && part == 2) {
+                break;
+            } else {
+                throw dateError(field);
+            }
+        }
+        if (part != 2 || partDigits != 4) {
+            throw dateError(field);
+        }
+        return epochDay(year, month, day, field);
+    }
+
+    private long epochDay(int year, int month, int day, int field) {
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw dateError(field);
+        }
+        // Same algorithm as LocalDate.toEpochDay()
+        long y = year;
+        long total = 365 * y;
+        total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static final long DAYS_0000_TO_1970 = (146097 * 5L) - (30L * 365L + 7L);
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private NumberFormatException numberError(int field) {
+        return new NumberFormatException("For input string: \"" + getString(field) + "\"");
+    }
+
+    private IllegalArgumentException dateError(int field) {
+        return new IllegalArgumentException("Invalid date: \"" + getString(field) + "\"");
+    }
+}
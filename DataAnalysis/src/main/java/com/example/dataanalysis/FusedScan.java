@@ -0,0 +1,104 @@
+package com.example.dataanalysis;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.example.dataanalysis.SalesAggregators.CountBy;
+import com.example.dataanalysis.SalesAggregators.HighValueOrders;
+import com.example.dataanalysis.SalesAggregators.QuantityBy;
+import com.example.dataanalysis.SalesAggregators.RevenueBy;
+import com.example.dataanalysis.SalesAggregators.RevenueByYear;
+import com.example.dataanalysis.SalesAggregators.Totals;
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// Collects the queries a report needs and runs them all in one scan.
+// Asking twice for the same query returns the same aggregator, so shared work
+// (e.g. revenue per customer for both top-N and distinct count) is done once.
+// Rows go through in cache-sized blocks and every aggregator sees a block before
+// the next one is touched, so each column is read from main memory once per scan.
+public class FusedScan implements SalesAggregator {
+
+    // 4096 rows of the widest columns (doubles) is 32 KB: stays in L1/L2 across aggregators
+    static final int BLOCK_ROWS = 4096;
+
+    private final Map<String, SalesAggregator> queries = new LinkedHashMap<>();
+    private SalesAggregator[] aggregators = new SalesAggregator[0];
+
+    // Register a query under a key, or get the aggregator already registered for it
+    public <A extends SalesAggregator> A add(String key, Supplier<A> factory) {
+        @SuppressWarnings("unchecked")
+        A aggregator = (A) queries.computeIfAbsent(key, k -> factory.get());
+        aggregators = queries.values().toArray(new SalesAggregator[0]);
+        return aggregator;
+    }
+
+    public Totals totals() {
+        return add("totals", Totals::new);
+    }
+
+    public RevenueBy revenueBy(TextColumn column) {
+        return add("revenueBy:" + column, () -> new RevenueBy(column));
+    }
+
+    public QuantityBy quantityBy(TextColumn column) {
+        return add("quantityBy:" + column, () -> new QuantityBy(column));
+    }
+
+    public CountBy countBy(TextColumn column) {
+        return add("countBy:" + column, () -> new CountBy(column));
+    }
+
+    public RevenueByYear revenueByYear() {
+        return add("revenueByYear", RevenueByYear::new);
+    }
+
+    public HighValueOrders highValueOrders(double threshold, int limit) {
+        return add("highValueOrders:" + threshold + ":" + limit, () -> new HighValueOrders(threshold, limit));
+    }
+
+    public void run(SalesColumns columns) {
+        accept(columns, 0, columns.size());
+    }
+
+    @Override
+    public Set<Column> columns() {
+        Set<Column> columns = EnumSet.noneOf(Column.class);
+        for (SalesAggregator aggregator : aggregators) {
+            columns.addAll(aggregator.columns());
+        }
+        return columns;
+    }
+
+    @Override
+    public void accept(SalesColumns batch, int from, int to) {
+        run(batch, from, to, aggregators);
+    }
+
+    @Override
+    public FusedScan emptyCopy() {
+        FusedScan copy = new FusedScan();
+        queries.forEach((key, aggregator) -> copy.queries.put(key, aggregator.emptyCopy()));
+        copy.aggregators = copy.queries.values().toArray(new SalesAggregator[0]);
+        return copy;
+    }
+
+    @Override
+    public void merge(SalesAggregator other) {
+        FusedScan that = (FusedScan) other;
+        queries.forEach((key, aggregator) -> aggregator.merge(that.queries.get(key)));
+    }
+
+    // One blocked pass of rows [from, to) through all aggregators
+    static void run(SalesColumns batch, int from, int to, SalesAggregator[] aggregators) {
+        for (int block = from; block < to; block += BLOCK_ROWS) {
+            int blockEnd = Math.min(to, block + BLOCK_ROWS);
+            for (SalesAggregator aggregator : aggregators) {
+                aggregator.accept(batch, block, blockEnd);
+            }
+        }
+    }
+}
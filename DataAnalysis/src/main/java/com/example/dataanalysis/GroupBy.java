@@ -0,0 +1,331 @@
+package com.example.dataanalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// General group-by: count, sum, min and max of one metric for every combination of
+// the chosen dimensions that occurs in the rows. Cells live in an open-addressing
+// table keyed by the tuple of dimension codes (dictionary codes for text, the value
+// itself for year/quarter/month), with the statistics in parallel primitive arrays.
+// Money metrics are summed in long cents when the rows carry exact money; double sums are
+// compensated (see Kernels.addCompensated), so they match RevenueBy's.
+// A GroupBy can be rolled up onto any subset of its dimensions by re-aggregating its
+// cells, which is how SalesCube answers coarse queries without touching the rows.
+public class GroupBy implements SalesAggregator {
+
+    public enum Dimension {
+        PRODUCT_LINE(TextColumn.PRODUCT_LINE),
+        PRODUCT_CODE(TextColumn.PRODUCT_CODE),
+        CUSTOMER_NAME(TextColumn.CUSTOMER_NAME),
+        CITY(TextColumn.CITY),
+        COUNTRY(TextColumn.COUNTRY),
+        TERRITORY(TextColumn.TERRITORY),
+        DEAL_SIZE(TextColumn.DEAL_SIZE),
+        STATUS(TextColumn.STATUS),
+        YEAR(null),
+        QUARTER(null),
+        MONTH(null);
+
+        final TextColumn textColumn; // null for the numeric dimensions
+
+        Dimension(TextColumn textColumn) {
+            this.textColumn = textColumn;
+        }
+
+        int[] values(SalesColumns columns) {
+            switch (this) {
+            case YEAR:
+                return columns.yearId;
+            case QUARTER:
+                return columns.qtrId;
+            case MONTH:
+                return columns.monthId;
+            default:
+                return columns.codes(textColumn);
+            }
+        }
+
+        Column column() {
+            switch (this) {
+            case YEAR:
+                return Column.YEAR_ID;
+            case QUARTER:
+                return Column.QTR_ID;
+            case MONTH:
+                return Column.MONTH_ID;
+            default:
+                return Column.of(textColumn);
+            }
+        }
+    }
+
+    // The value being measured
+    public enum Metric {
+        SALES(Column.SALES), QUANTITY(Column.QUANTITY_ORDERED), PRICE_EACH(Column.PRICE_EACH);
+
+        final Column column;
+
+        Metric(Column column) {
+            this.column = column;
+        }
+    }
+
+    public enum Measure {
+        COUNT, SUM, AVG, MIN, MAX
+    }
+
+    private final Metric metric;
+    private final Dimension[] dimensions;
+    private final CodeRemapper[] remappers;
+    private final int width;
+
+    private int[] table = new int[64]; // cell index + 1, 0 = empty
+    private int[] keys = new int[0];
+    private long[] counts = new long[0];
+    private double[] sums = new double[0];
+    private double[] errors = new double[0]; // rounding error of sums
+    private long[] centSums = new long[0];
+    private double[] mins = new double[0];
+    private double[] maxs = new double[0];
+    private int cells;
+
+    public GroupBy(Metric metric, Dimension... dimensions) {
+        this.metric = metric;
+        this.dimensions = dimensions.clone();
+        this.width = dimensions.length;
+        this.remappers = new CodeRemapper[width];
+        for (int d = 0; d < width; d++) {
+            for (int e = 0; e < d; e++) {
+                if (dimensions[e] == dimensions[d]) {
+                    throw new IllegalArgumentException("Dimension " + dimensions[d] + " given twice");
+                }
+            }
+            if (dimensions[d].textColumn != null) {
+                remappers[d] = new CodeRemapper();
+            }
+        }
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    public List<Dimension> getDimensions() {
+        return List.of(dimensions);
+    }
+
+    // Number of distinct dimension combinations seen
+    public int size() {
+        return cells;
+    }
+
+    @Override
+    public Set<Column> columns() {
+        Set<Column> columns = EnumSet.of(metric.column);
+        for (Dimension dimension : dimensions) {
+            columns.add(dimension.column());
+        }
+        return columns;
+    }
+
+    @Override
+    public void accept(SalesColumns batch, int from, int to) {
+        int[][] values = new int[width][];
+        int[][] remaps = new int[width][];
+        for (int d = 0; d < width; d++) {
+            values[d] = dimensions[d].values(batch);
+            if (remappers[d] != null) {
+                remaps[d] = remappers[d].remap(batch.dictionary(dimensions[d].textColumn));
+            }
+        }
+        double[] measured = metric == Metric.SALES ? batch.sales : metric == Metric.PRICE_EACH ? batch.priceEach : null;
+        long[] cents = metric == Metric.SALES ? batch.salesCents
+                : metric == Metric.PRICE_EACH ? batch.priceEachCents : null;
+        int[] quantity = batch.quantityOrdered;
+        int[] key = new int[width];
+        for (int i = from; i < to; i++) {
+            for (int d = 0; d < width; d++) {
+                int value = values[d][i];
+                key[d] = remaps[d] != null ? remaps[d][value] : value;
+            }
+            double value = measured != null ? measured[i] : quantity[i];
+            if (cents != null) {
+                add(cell(key), 1, 0.0, 0.0, cents[i], value, value);
+            } else {
+                add(cell(key), 1, value, 0.0, 0, value, value);
+            }
+        }
+    }
+
+    @Override
+    public GroupBy emptyCopy() {
+        return new GroupBy(metric, dimensions);
+    }
+
+    @Override
+    public void merge(SalesAggregator other) {
+        GroupBy that = (GroupBy) other;
+        int[][] remaps = new int[width][];
+        for (int d = 0; d < width; d++) {
+            if (remappers[d] != null) {
+                remaps[d] = remappers[d].remap(that.remappers[d].dictionary());
+            }
+        }
+        int[] key = new int[width];
+        for (int c = 0; c < that.cells; c++) {
+            for (int d = 0; d < width; d++) {
+                int value = that.keys[c * width + d];
+                key[d] = remaps[d] != null ? remaps[d][value] : value;
+            }
+            add(cell(key), that.counts[c], that.sums[c], that.errors[c], that.centSums[c], that.mins[c],
+                    that.maxs[c]);
+        }
+    }
+
+    // Re-aggregate the cells onto a subset of the dimensions (in any order), without the rows
+    public GroupBy rollUp(Dimension... target) {
+        int[] source = new int[target.length];
+        for (int t = 0; t < target.length; t++) {
+            source[t] = indexOf(target[t]);
+            if (source[t] < 0) {
+                throw new IllegalArgumentException(target[t] + " is not one of " + getDimensions());
+            }
+        }
+        GroupBy rolled = new GroupBy(metric, target);
+        for (int t = 0; t < target.length; t++) {
+            if (rolled.remappers[t] != null) {
+                // Adopt our dictionary, so codes carry over unchanged
+                rolled.remappers[t].remap(remappers[source[t]].dictionary());
+            }
+        }
+        int[] key = new int[target.length];
+        for (int c = 0; c < cells; c++) {
+            for (int t = 0; t < target.length; t++) {
+                key[t] = keys[c * width + source[t]];
+            }
+            rolled.add(rolled.cell(key), counts[c], sums[c], errors[c], centSums[c], mins[c], maxs[c]);
+        }
+        return rolled;
+    }
+
+    boolean covers(Dimension... wanted) {
+        for (Dimension dimension : wanted) {
+            if (indexOf(dimension) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(Dimension dimension) {
+        for (int d = 0; d < width; d++) {
+            if (dimensions[d] == dimension) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    // Cells as rows, sorted by key
+    public GroupByResult result() {
+        List<GroupByResult.Row> rows = new ArrayList<>(cells);
+        for (int c = 0; c < cells; c++) {
+            Object[] key = new Object[width];
+            for (int d = 0; d < width; d++) {
+                int value = keys[c * width + d];
+                key[d] = remappers[d] != null ? remappers[d].dictionary().get(value) : (Object) value;
+            }
+            double sum = sums[c] + errors[c] + centSums[c] / 100.0;
+            rows.add(new GroupByResult.Row(List.of(key), counts[c], sum, mins[c], maxs[c]));
+        }
+        return new GroupByResult(getDimensions(), metric, rows);
+    }
+
+    private void add(int cell, long count, double sum, double error, long cents, double min, double max) {
+        if (counts[cell] == 0) {
+            mins[cell] = min;
+            maxs[cell] = max;
+        } else {
+            mins[cell] = Math.min(mins[cell], min);
+            maxs[cell] = Math.max(maxs[cell], max);
+        }
+        counts[cell] += count;
+        Kernels.addCompensated(sums, errors, cell, sum);
+        errors[cell] += error;
+        centSums[cell] += cents;
+    }
+
+    // Index of the cell for key, inserting an empty one if it is new
+    private int cell(int[] key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return insert(key, slot);
+            }
+            if (keyEquals(entry - 1, key)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyEquals(int cell, int[] key) {
+        int base = cell * width;
+        for (int d = 0; d < width; d++) {
+            if (keys[base + d] != key[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int insert(int[] key, int slot) {
+        int cell = cells++;
+        if (cell == counts.length) {
+            int capacity = Math.max(16, counts.length * 2);
+            keys = Arrays.copyOf(keys, capacity * width);
+            counts = Arrays.copyOf(counts, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            errors = Arrays.copyOf(errors, capacity);
+            centSums = Arrays.copyOf(centSums, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+        }
+        System.arraycopy(key, 0, keys, cell * width, width);
+        table[slot] = cell + 1;
+        if (cells * 2 > table.length) {
+            rehash();
+        }
+        return cell;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        int[] key = new int[width];
+        for (int c = 0; c < cells; c++) {
+            System.arraycopy(keys, c * width, key, 0, width);
+            int slot = hash(key) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = c + 1;
+        }
+    }
+
+    private static int hash(int[] key) {
+        int h = 0;
+        for (int value : key) {
+            h = h * 0x9E3779B1 + value;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.dataanalysis;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.dataanalysis.GroupBy.Dimension;
+import com.example.dataanalysis.GroupBy.Measure;
+import com.example.dataanalysis.GroupBy.Metric;
+
+// Immutable result of a group-by: one row per dimension combination, sorted by key.
+// Key components are Strings for text dimensions and Integers for year/quarter/month,
+// in the order the dimensions were asked for.
+public class GroupByResult {
+
+    private final List<Dimension> dimensions;
+    private final Metric metric;
+    private final List<Row> rows;
+    private final Map<List<Object>, Row> byKey = new HashMap<>();
+
+    GroupByResult(List<Dimension> dimensions, Metric metric, List<Row> rows) {
+        this.dimensions = dimensions;
+        this.metric = metric;
+        rows.sort(KEY_ORDER);
+        this.rows = Collections.unmodifiableList(rows);
+        for (Row row : rows) {
+            byKey.put(row.key, row);
+        }
+    }
+
+    public List<Dimension> getDimensions() {
+        return dimensions;
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    // The row for one key (e.g. get("Planes", 2004)), or null if that combination has no rows
+    public Row get(Object... key) {
+        return byKey.get(List.of(key));
+    }
+
+    // One measure per key, in key order
+    public Map<List<Object>, Double> toMap(Measure measure) {
+        Map<List<Object>, Double> result = new LinkedHashMap<>();
+        for (Row row : rows) {
+            result.put(row.key, row.get(measure));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        return "GroupByResult" + dimensions + " of " + metric + ": " + rows;
+    }
+
+    public static class Row {
+        private final List<Object> key;
+        private final long count;
+        private final double sum;
+        private final double min;
+        private final double max;
+
+        Row(List<Object> key, long count, double sum, double min, double max) {
+            this.key = key;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public List<Object> getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getAverage() {
+            return sum / count;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double get(Measure measure) {
+            switch (measure) {
+            case COUNT:
+                return count;
+            case SUM:
+                return sum;
+            case AVG:
+                return getAverage();
+            case MIN:
+                return min;
+            default:
+                return max;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d, sum=%.2f, min=%.2f, max=%.2f", key, count, sum, min, max);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final Comparator<Row> KEY_ORDER = (a, b) -> {
+        for (int i = 0; i < a.key.size(); i++) {
+            int order = ((Comparable) a.key.get(i)).compareTo(b.key.get(i));
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    };
+}
@@ -0,0 +1,32 @@
+package com.example.dataanalysis;
+
+import java.util.List;
+
+// One page of high-value orders (highest sales first) plus the total number of matches
+public class HighValueOrderPage {
+    private final List<SalesRecord> orders;
+    private final long totalMatches;
+    private final int offset;
+
+    public HighValueOrderPage(List<SalesRecord> orders, long totalMatches, int offset) {
+        this.orders = orders;
+        this.totalMatches = totalMatches;
+        this.offset = offset;
+    }
+
+    public List<SalesRecord> getOrders() {
+        return orders;
+    }
+
+    public long getTotalMatches() {
+        return totalMatches;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean hasMore() {
+        return offset + orders.size() < totalMatches;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.dataanalysis;
+
+// Inner loops of the hottest aggregators over primitive columns. When the JVM was
+// started with --add-modules jdk.incubator.vector they run as SIMD kernels (see
+// VectorKernels); otherwise, or with -Ddataanalysis.vector=false, as the plain scalar
+// loops below. Either way a result depends only on the data and the row range, so the
+// executor's bit-identical sequential/parallel guarantee holds. Floating-point sums are
+// compensated (Neumaier, as Collectors.summingDouble does), so they do not drift with
+// row count or batching. The two modes may still differ in the last bit, since SIMD adds
+// in a different order; integer sums (quantities, exact-money cents) and row selections
+// are identical.
+final class Kernels {
+
+    static final boolean VECTORIZED = !"false".equals(System.getProperty("dataanalysis.vector"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    // Group-bys with more distinct codes than this use the scalar loop: the masked kernel
+    // makes one pass per code, which stops paying off for wide dictionaries
+    static final int MAX_MASKED_GROUPS = 16;
+
+    private Kernels() {
+    }
+
+    static double sum(double[] values, int from, int to) {
+        return VECTORIZED ? VectorKernels.sum(values, from, to) : scalarSum(values, from, to);
+    }
+
+    static long sum(long[] values, int from, int to) {
+        return VECTORIZED ? VectorKernels.sum(values, from, to) : scalarSum(values, from, to);
+    }
+
+    // Write the rows in [from, to) with values[row] > threshold into rows, in order; return how many
+    static int selectAbove(double[] values, int from, int to, double threshold, int[] rows) {
+        return VECTORIZED ? VectorKernels.selectAbove(values, from, to, threshold, rows)
+                : scalarSelectAbove(values, from, to, threshold, rows);
+    }
+
+    // totals[remap[codes[i]]] += values[i] (compensated in errors, see addCompensated) and
+    // counts[...]++ for every row in [from, to); codeCount is the number of codes in the batch dictionary
+    static void sumByCode(int[] codes, int codeCount, int[] remap, double[] values, int from, int to,
+            double[] totals, double[] errors, long[] counts) {
+        if (VECTORIZED && codeCount <= MAX_MASKED_GROUPS) {
+            VectorKernels.sumByCode(codes, codeCount, remap, values, from, to, totals, errors, counts);
+        } else {
+            scalarSumByCode(codes, remap, values, from, to, totals, errors, counts);
+        }
+    }
+
+    static void sumByCode(int[] codes, int codeCount, int[] remap, long[] values, int from, int to,
+            long[] totals, long[] counts) {
+        if (VECTORIZED && codeCount <= MAX_MASKED_GROUPS) {
+            VectorKernels.sumByCode(codes, codeCount, remap, values, from, to, totals, counts);
+        } else {
+            scalarSumByCode(codes, remap, values, from, to, totals, counts);
+        }
+    }
+
+    static void sumByCode(int[] codes, int codeCount, int[] remap, int[] values, int from, int to,
+            int[] totals, long[] counts) {
+        if (VECTORIZED && codeCount <= MAX_MASKED_GROUPS) {
+            VectorKernels.sumByCode(codes, codeCount, remap, values, from, to, totals, counts);
+        } else {
+            scalarSumByCode(codes, remap, values, from, to, totals, counts);
+        }
+    }
+
+    // Rounding error of sum = a + b, to be added to a running compensation (Neumaier)
+    static double roundingError(double a, double b, double sum) {
+        return Math.abs(a) >= Math.abs(b) ? (a - sum) + b : (b - sum) + a;
+    }
+
+    // totals[group] += value, keeping the rounding error in errors[group]; the compensated
+    // total is totals[group] + errors[group]
+    static void addCompensated(double[] totals, double[] errors, int group, double value) {
+        double total = totals[group];
+        double sum = total + value;
+        errors[group] += roundingError(total, value, sum);
+        totals[group] = sum;
+    }
+
+    static double scalarSum(double[] values, int from, int to) {
+        double sum = 0;
+        double error = 0;
+        for (int i = from; i < to; i++) {
+            double next = sum + values[i];
+            error += roundingError(sum, values[i], next);
+            sum = next;
+        }
+        return sum + error;
+    }
+
+    static long scalarSum(long[] values, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    static int scalarSelectAbove(double[] values, int from, int to, double threshold, int[] rows) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (values[i] > threshold) {
+                rows[n++] = i;
+            }
+        }
+        return n;
+    }
+
+    static void scalarSumByCode(int[] codes, int[] remap, double[] values, int from, int to, double[] totals,
+            double[] errors, long[] counts) {
+        for (int i = from; i < to; i++) {
+            int group = remap[codes[i]];
+            addCompensated(totals, errors, group, values[i]);
+            counts[group]++;
+        }
+    }
+
+    static void scalarSumByCode(int[] codes, int[] remap, long[] values, int from, int to, long[] totals,
+            long[] counts) {
+        for (int i = from; i < to; i++) {
+            int group = remap[codes[i]];
+            totals[group] += values[i];
+            counts[group]++;
+        }
+    }
+
+    static void scalarSumByCode(int[] codes, int[] remap, int[] values, int from, int to, int[] totals,
+            long[] counts) {
+        for (int i = from; i < to; i++) {
+            int group = remap[codes[i]];
+            totals[group] += values[i];
+            counts[group]++;
+        }
+    }
+}
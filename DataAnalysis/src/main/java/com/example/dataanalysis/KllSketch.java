@@ -0,0 +1,215 @@
+package com.example.dataanalysis;
+
+import java.util.Arrays;
+
+// KLL quantile sketch (Karnin, Lang, Liberty 2016). Values enter level 0; when the
+// sketch is over capacity, the lowest full level is sorted and every other item
+// (random offset) moves up a level with doubled weight. Level capacities shrink by
+// 2/3 going down from the top, so the sketch holds O(k) items however many values it
+// has seen. The rank error is about 1.7% at k = 200. Sketches merge by
+// concatenating levels and compacting, so partitions and files can be sketched
+// separately. The coin flips come from a fixed-seed generator, so the same inputs in
+// the same order always give the same sketch.
+public class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_LEVEL_CAPACITY = 2;
+
+    private final int k;
+    private double[][] levels = { new double[8] };
+    private int[] sizes = new int[1];
+    private int retained;
+    private int capacity;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long random = 0x9E3779B97F4A7C15L;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        if (k < 8) {
+            throw new IllegalArgumentException("k must be at least 8: " + k);
+        }
+        this.k = k;
+        this.capacity = computeCapacity();
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    // Number of values added (directly or through merges)
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        append(0, value);
+        if (retained >= capacity) {
+            compress();
+        }
+    }
+
+    public void merge(KllSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        compress();
+    }
+
+    public KllSketch copy() {
+        KllSketch copy = new KllSketch(k);
+        copy.levels = new double[levels.length][];
+        for (int level = 0; level < levels.length; level++) {
+            copy.levels[level] = levels[level].clone();
+        }
+        copy.sizes = sizes.clone();
+        copy.retained = retained;
+        copy.capacity = capacity;
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.random = random;
+        return copy;
+    }
+
+    // Approximate value at quantile q (0 = min, 0.5 = median, 1 = max); NaN when empty
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        int n = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                values[n] = levels[level][i];
+                weights[n] = 1L << level;
+                order[n] = n;
+                n++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double target = q * count;
+        long cumulative = 0;
+        for (int i : order) {
+            cumulative += weights[i];
+            if (cumulative >= target) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    public double[] quantiles(double... qs) {
+        double[] result = new double[qs.length];
+        for (int i = 0; i < qs.length; i++) {
+            result[i] = quantile(qs[i]);
+        }
+        return result;
+    }
+
+    // Items currently held (the sketch's memory footprint)
+    int retained() {
+        return retained;
+    }
+
+    private int computeCapacity() {
+        int total = 0;
+        for (int level = 0; level < levels.length; level++) {
+            total += levelCapacity(level);
+        }
+        return total;
+    }
+
+    // k at the top level, shrinking by 2/3 per level below it
+    private int levelCapacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private void append(int level, double value) {
+        while (level >= levels.length) {
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            levels[levels.length - 1] = new double[8];
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+            capacity = computeCapacity();
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    private void compress() {
+        while (retained >= capacity) {
+            int level = 0;
+            while (sizes[level] < levelCapacity(level)) {
+                level++;
+            }
+            compact(level);
+        }
+    }
+
+    // Sort the level and promote every other item; an odd item out stays behind
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int keep = size % 2;
+        int offset = nextBit();
+        for (int i = keep + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        retained -= size - keep;
+        sizes[level] = keep; // the odd item, if any, is items[0] and stays here
+    }
+
+    private int nextBit() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random >>> 63);
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.dataanalysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.example.dataanalysis.SalesAggregators.CountBy;
+import com.example.dataanalysis.SalesAggregators.HighValueOrders;
+import com.example.dataanalysis.SalesAggregators.QuantityBy;
+import com.example.dataanalysis.SalesAggregators.RevenueBy;
+import com.example.dataanalysis.SalesAggregators.RevenueByYear;
+import com.example.dataanalysis.SalesAggregators.Totals;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+// Live analysis of a CSV that keeps growing, or of a directory of rolling CSV files
+// (each with its own header, ingested in file-name order).
+// Every poll() reads only the bytes appended since the last one, stopping before a
+// line that has not been completely written yet, and folds the new rows into the
+// running aggregates. No rows are kept, so a poll costs O(new bytes + groups), not
+// O(everything seen today).
+// Readers call snapshot() and get an immutable, consistent view: each poll builds
+// the next state as a copy of the current one plus the new rows, then publishes it
+// with one volatile write. A published state is never written again, so it is copied
+// once per poll and only the copy is changed. Readers never wait for ingestion, and
+// ingestion never waits for readers.
+public class LiveSalesAnalysis implements Closeable {
+
+    private static final int READ_CHUNK_SIZE = 8 * 1024 * 1024;
+    static final int DEFAULT_HIGH_VALUE_LIMIT = 1000;
+
+    private final Path source;
+    private final double highValueFloor;
+    private final int highValueLimit;
+    private final Map<Path, TailedFile> files = new LinkedHashMap<>();
+    private final CsvTokenizer tokens = new CsvTokenizer(SalesRecord.COLUMN_COUNT);
+    private SalesReport state;
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService poller;
+    private volatile Exception lastError;
+
+    public LiveSalesAnalysis(Path fileOrDirectory) {
+        this(fileOrDirectory, 10000.0);
+    }
+
+    public LiveSalesAnalysis(Path fileOrDirectory, double highValueFloor) {
+        this(fileOrDirectory, highValueFloor, DEFAULT_HIGH_VALUE_LIMIT);
+    }
+
+    // getHighValueOrders(threshold) is answered for any threshold >= highValueFloor, with
+    // at most the highValueLimit largest orders above the floor; only those are retained
+    // (and copied by each poll), however many orders the day brings
+    public LiveSalesAnalysis(Path fileOrDirectory, double highValueFloor, int highValueLimit) {
+        this.source = fileOrDirectory;
+        this.highValueFloor = highValueFloor;
+        this.highValueLimit = highValueLimit;
+        FusedScan scan = new FusedScan();
+        scan.highValueOrders(highValueFloor, highValueLimit);
+        this.state = new SalesReport(10, 10000.0, 5, scan);
+        this.snapshot = new Snapshot(state, highValueFloor, highValueLimit, 0);
+    }
+
+    // The latest published state; never blocks
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    // Ingest whatever was appended since the last poll and publish a new snapshot.
+    // Returns the number of new rows.
+    public synchronized long poll() throws IOException {
+        List<Path> current = listFiles();
+        SalesColumns.Builder batch = new SalesColumns.Builder(StreamingSalesAnalysis.DEFAULT_BATCH_ROWS);
+        files.keySet().retainAll(current);
+        long[] offsets = new long[current.size()];
+        SalesReport next = null;
+        long rows = 0;
+        int i = 0;
+        try {
+            for (; i < current.size(); i++) {
+                TailedFile file = files.computeIfAbsent(current.get(i), TailedFile::new);
+                offsets[i] = file.offset;
+                // In a directory, a file is finished once a newer one exists: its last line counts without a newline
+                boolean finished = i < current.size() - 1;
+                if (Files.size(file.path) == file.offset) {
+                    continue;
+                }
+                if (next == null) {
+                    next = freeze(state);
+                }
+                rows += file.read(batch, next, finished);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Nothing is published, so rewind: the next poll re-reads the same bytes
+            for (int j = 0; j <= i && j < current.size(); j++) {
+                TailedFile file = files.get(current.get(j));
+                if (file != null) {
+                    file.rewind(offsets[j]);
+                }
+            }
+            throw e;
+        }
+        if (next != null) {
+            rows += flush(batch, next);
+            state = next;
+            snapshot = new Snapshot(next, highValueFloor, highValueLimit, snapshot.rows + rows);
+        }
+        return rows;
+    }
+
+    // Poll on a background daemon thread every 'interval'; errors are kept for getLastError()
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-sales-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+                lastError = null;
+            } catch (IOException | RuntimeException e) {
+                lastError = e; // keep polling: a half-written file may be fine next time
+            }
+        }, 0, interval, unit);
+    }
+
+    // The failure of the most recent background poll, or null if it succeeded
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(source)) {
+            result.add(source);
+            return result;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(source, "*.csv")) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry)) {
+                    result.add(entry);
+                }
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+
+    // A copy of 'report' that shares no mutable state with it
+    private static SalesReport freeze(SalesReport report) {
+        SalesReport copy = report.emptyCopy();
+        copy.merge(report);
+        return copy;
+    }
+
+    // The batch builder is new for every poll, so its dictionaries are never shared with
+    // a published snapshot: aggregators copy a foreign dictionary before adding to it
+    private static int flush(SalesColumns.Builder batch, SalesReport next) {
+        int size = batch.size();
+        if (size > 0) {
+            next.accept(batch.view(), 0, size);
+            batch.clear();
+        }
+        return size;
+    }
+
+    // Read position in one tailed file
+    private class TailedFile {
+        final Path path;
+        long offset;
+        boolean headerSkipped;
+
+        TailedFile(Path path) {
+            this.path = path;
+        }
+
+        void rewind(long to) {
+            offset = to;
+            headerSkipped = to > 0;
+        }
+
+        long read(SalesColumns.Builder batch, SalesReport next, boolean finished) throws IOException {
+            long rows = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < offset) {
+                    throw new IOException(path + " shrank from " + offset + " to " + size
+                            + " bytes; live files may only be appended to");
+                }
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_CHUNK_SIZE, Math.max(size - offset, 1)));
+                while (offset < size) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), size - offset));
+                    while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+                        // fill
+                    }
+                    int filled = buffer.position();
+                    boolean last = offset + filled == size;
+                    int pos = 0;
+                    while (pos < filled) {
+                        int end = tokens.nextLine(buffer, pos, filled);
+                        if (!tokens.endedAtNewline() && !(last && finished)) {
+                            break; // incomplete line: re-read it from the next window or poll
+                        }
+                        pos = end;
+                        if (!headerSkipped) {
+                            headerSkipped = true;
+                        } else if (!tokens.isBlank()) {
+                            batch.add(tokens);
+                            if (batch.size() == StreamingSalesAnalysis.DEFAULT_BATCH_ROWS) {
+                                rows += flush(batch, next);
+                            }
+                        }
+                    }
+                    offset += pos;
+                    if (last) {
+                        break;
+                    }
+                    if (pos == 0) {
+                        // One line longer than the buffer: read it in a bigger one
+                        buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                    }
+                }
+            }
+            return rows;
+        }
+    }
+
+    // Immutable view of everything ingested up to one poll
+    public static final class Snapshot {
+        private final SalesReport report;
+        private final double highValueFloor;
+        private final long rows;
+        private final Totals totals;
+        private final RevenueBy revenueByProductLine;
+        private final RevenueBy revenueByTerritory;
+        private final RevenueBy revenueByDealSize;
+        private final RevenueBy revenueByCustomer;
+        private final RevenueBy revenueByCountry;
+        private final QuantityBy quantityByProductLine;
+        private final RevenueByYear revenueByYear;
+        private final CountBy statusCounts;
+        private final HighValueOrders highValueOrders;
+
+        Snapshot(SalesReport report, double highValueFloor, int highValueLimit, long rows) {
+            this.report = report;
+            this.highValueFloor = highValueFloor;
+            this.rows = rows;
+            // FusedScan hands back the aggregators the report already registered
+            FusedScan scan = report.scan();
+            this.totals = scan.totals();
+            this.revenueByProductLine = scan.revenueBy(TextColumn.PRODUCT_LINE);
+            this.revenueByTerritory = scan.revenueBy(TextColumn.TERRITORY);
+            this.revenueByDealSize = scan.revenueBy(TextColumn.DEAL_SIZE);
+            this.revenueByCustomer = scan.revenueBy(TextColumn.CUSTOMER_NAME);
+            this.revenueByCountry = scan.revenueBy(TextColumn.COUNTRY);
+            this.quantityByProductLine = scan.quantityBy(TextColumn.PRODUCT_LINE);
+            this.revenueByYear = scan.revenueByYear();
+            this.statusCounts = scan.countBy(TextColumn.STATUS);
+            this.highValueOrders = scan.highValueOrders(highValueFloor, highValueLimit);
+        }
+
+        public double getTotalRevenue() {
+            return totals.getRevenue();
+        }
+
+        public long getTotalTransactions() {
+            return totals.getCount();
+        }
+
+        public double getAverageOrderValue() {
+            return totals.getAverage();
+        }
+
+        public long getDistinctCustomerCount() {
+            return revenueByCustomer.result().size();
+        }
+
+        public Map<String, Double> getRevenueByProductLine() {
+            return unmodifiableMap(revenueByProductLine.result());
+        }
+
+        public Map<String, Double> getRevenueByTerritory() {
+            return unmodifiableMap(revenueByTerritory.result());
+        }
+
+        public Map<String, Double> getRevenueByDealSize() {
+            return unmodifiableMap(revenueByDealSize.result());
+        }
+
+        public List<Map.Entry<String, Double>> getTopCustomers(int n) {
+            return unmodifiableList(revenueByCustomer.top(n));
+        }
+
+        public List<Map.Entry<String, Double>> getTopCountries(int n) {
+            return unmodifiableList(revenueByCountry.top(n));
+        }
+
+        public Map<String, Integer> getQuantityByProductLine() {
+            return unmodifiableMap(quantityByProductLine.result());
+        }
+
+        public Map<Integer, Double> getRevenueByYear() {
+            return unmodifiableMap(revenueByYear.result());
+        }
+
+        public Map<String, Long> getOrderStatusDistribution() {
+            return unmodifiableMap(statusCounts.result());
+        }
+
+        // Orders above threshold, highest first, at most the live limit of them; threshold must
+        // not be below the live floor
+        public List<SalesRecord> getHighValueOrders(double threshold) {
+            if (threshold < highValueFloor) {
+                throw new IllegalArgumentException(
+                        "Live analysis only retains orders above " + highValueFloor + ", asked for " + threshold);
+            }
+            List<SalesRecord> result = new ArrayList<>();
+            for (SalesRecord record : highValueOrders.result()) {
+                if (record.getSales() <= threshold) {
+                    break;
+                }
+                result.add(record);
+            }
+            return unmodifiableList(result);
+        }
+
+        // Rows ingested so far
+        public long getRowCount() {
+            return rows;
+        }
+
+        public void printAnalysis(PrintStream out) {
+            report.print(out);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.dataanalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Set;
+
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// Sales columns held outside the Java heap. Every column is a fixed-width array in a direct
+// or memory-mapped buffer (little-endian, the snapshot layout), so the collector never
+// marks or copies them and the heap does not grow with the row count; only the
+// dictionaries stay on the heap. The inherited arrays are null. Aggregators get the rows
+// through scan(), which copies the columns they read, FusedScan.BLOCK_ROWS rows at a time,
+// into a small on-heap block; single rows are read in place through a Row flyweight.
+// A buffer holds at most 2 GB, so each column is split into segments of 2^SEGMENT_SHIFT rows
+// (1 GB of longs); row r is in segment r >>> shift, so any int row count fits.
+// Build one with copyOf(columns), or map a snapshot with SalesSnapshot.map(path).
+public final class OffHeapSalesColumns extends SalesColumns {
+
+    static final int SEGMENT_SHIFT = 27;
+    private static final TextColumn[] TEXT_COLUMNS = TextColumn.values();
+
+    private final IntSegments orderNumberBuffer;
+    private final IntSegments quantityOrderedBuffer;
+    private final DoubleSegments priceEachBuffer;
+    private final DoubleSegments salesBuffer;
+    private final IntSegments orderEpochDayBuffer;
+    private final IntSegments qtrIdBuffer;
+    private final IntSegments monthIdBuffer;
+    private final IntSegments yearIdBuffer;
+    private final IntSegments[] codeBuffers; // indexed by TextColumn.ordinal()
+    private final LongSegments priceEachCentsBuffer; // null unless exact money
+    private final LongSegments salesCentsBuffer;
+
+    OffHeapSalesColumns(int size, IntSegments orderNumber, IntSegments quantityOrdered, DoubleSegments priceEach,
+            DoubleSegments sales, IntSegments orderEpochDay, IntSegments qtrId, IntSegments monthId,
+            IntSegments yearId, IntSegments[] codes, StringDictionary[] dictionaries, LongSegments priceEachCents,
+            LongSegments salesCents) {
+        super(size, null, null, null, null, null, null, null, null, null, dictionaries);
+        this.orderNumberBuffer = orderNumber;
+        this.quantityOrderedBuffer = quantityOrdered;
+        this.priceEachBuffer = priceEach;
+        this.salesBuffer = sales;
+        this.orderEpochDayBuffer = orderEpochDay;
+        this.qtrIdBuffer = qtrId;
+        this.monthIdBuffer = monthId;
+        this.yearIdBuffer = yearId;
+        this.codeBuffers = codes;
+        this.priceEachCentsBuffer = priceEachCents;
+        this.salesCentsBuffer = salesCents;
+    }
+
+    // Copy on-heap columns into direct buffers; the source can then be dropped. Direct
+    // memory is limited by -XX:MaxDirectMemorySize (by default the maximum heap size).
+    public static OffHeapSalesColumns copyOf(SalesColumns columns) {
+        return copyOf(columns, SEGMENT_SHIFT);
+    }
+
+    // As copyOf(columns), with segments of 2^segmentShift rows
+    static OffHeapSalesColumns copyOf(SalesColumns columns, int segmentShift) {
+        int size = columns.size;
+        IntSegments[] codes = new IntSegments[TEXT_COLUMNS.length];
+        for (TextColumn column : TEXT_COLUMNS) {
+            codes[column.ordinal()] = ints(size, segmentShift).put(columns.codes(column), size);
+        }
+        boolean exact = columns.hasExactMoney();
+        return new OffHeapSalesColumns(size,
+                ints(size, segmentShift).put(columns.orderNumber, size),
+                ints(size, segmentShift).put(columns.quantityOrdered, size),
+                doubles(size, segmentShift).put(columns.priceEach, size),
+                doubles(size, segmentShift).put(columns.sales, size),
+                ints(size, segmentShift).put(columns.orderEpochDay, size),
+                ints(size, segmentShift).put(columns.qtrId, size),
+                ints(size, segmentShift).put(columns.monthId, size),
+                ints(size, segmentShift).put(columns.yearId, size),
+                codes, columns.dictionaries.clone(),
+                exact ? longs(size, segmentShift).put(columns.priceEachCents, size) : null,
+                exact ? longs(size, segmentShift).put(columns.salesCents, size) : null);
+    }
+
+    private static IntSegments ints(int count, int shift) {
+        return new IntSegments(allocate(count, Integer.BYTES, shift), shift);
+    }
+
+    private static DoubleSegments doubles(int count, int shift) {
+        return new DoubleSegments(allocate(count, Double.BYTES, shift), shift);
+    }
+
+    private static LongSegments longs(int count, int shift) {
+        return new LongSegments(allocate(count, Long.BYTES, shift), shift);
+    }
+
+    // Direct buffers for count values of width bytes, 2^shift values per buffer
+    private static ByteBuffer[] allocate(int count, int width, int shift) {
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(count, shift)];
+        for (int i = 0; i < segments.length; i++) {
+            long rows = Math.min(1L << shift, count - ((long) i << shift));
+            segments[i] = ByteBuffer.allocateDirect(Math.toIntExact(rows * width));
+        }
+        return segments;
+    }
+
+    static int segmentCount(int count, int shift) {
+        return (int) ((count + (1L << shift) - 1) >>> shift);
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    @Override
+    public boolean hasExactMoney() {
+        return salesCentsBuffer != null;
+    }
+
+    // Copies the rows block by block into one reusable on-heap block, so aggregators, including
+    // the vector kernels, keep running over plain arrays. Only the columns the aggregator
+    // reads are copied (a single-column query moves 8 bytes a row, not 90). Buffer reads
+    // are absolute, so parallel scans of different ranges do not interfere.
+    @Override
+    void scan(SalesAggregator aggregator, int from, int to) {
+        int rows = Math.min(FusedScan.BLOCK_ROWS, to - from);
+        if (rows <= 0) {
+            return;
+        }
+        Set<Column> needed = aggregator.columns();
+        boolean exact = hasExactMoney();
+        int[] orderNumber = needed.contains(Column.ORDER_NUMBER) ? new int[rows] : null;
+        int[] quantityOrdered = needed.contains(Column.QUANTITY_ORDERED) ? new int[rows] : null;
+        double[] priceEach = needed.contains(Column.PRICE_EACH) ? new double[rows] : null;
+        double[] sales = needed.contains(Column.SALES) ? new double[rows] : null;
+        int[] orderEpochDay = needed.contains(Column.ORDER_DATE) ? new int[rows] : null;
+        int[] qtrId = needed.contains(Column.QTR_ID) ? new int[rows] : null;
+        int[] monthId = needed.contains(Column.MONTH_ID) ? new int[rows] : null;
+        int[] yearId = needed.contains(Column.YEAR_ID) ? new int[rows] : null;
+        long[] priceEachCents = exact && priceEach != null ? new long[rows] : null;
+        long[] salesCents = exact && sales != null ? new long[rows] : null;
+        int[][] codes = new int[TEXT_COLUMNS.length][];
+        for (TextColumn column : TEXT_COLUMNS) {
+            if (needed.contains(Column.of(column))) {
+                codes[column.ordinal()] = new int[rows];
+            }
+        }
+        for (int start = from; start < to; start += rows) {
+            int n = Math.min(rows, to - start);
+            copy(orderNumberBuffer, start, orderNumber, n);
+            copy(quantityOrderedBuffer, start, quantityOrdered, n);
+            copy(priceEachBuffer, start, priceEach, n);
+            copy(salesBuffer, start, sales, n);
+            copy(orderEpochDayBuffer, start, orderEpochDay, n);
+            copy(qtrIdBuffer, start, qtrId, n);
+            copy(monthIdBuffer, start, monthId, n);
+            copy(yearIdBuffer, start, yearId, n);
+            for (int c = 0; c < codes.length; c++) {
+                copy(codeBuffers[c], start, codes[c], n);
+            }
+            copy(priceEachCentsBuffer, start, priceEachCents, n);
+            copy(salesCentsBuffer, start, salesCents, n);
+            aggregator.accept(new SalesColumns(n, orderNumber, quantityOrdered, priceEach, sales, orderEpochDay,
+                    qtrId, monthId, yearId, codes, dictionaries, priceEachCents, salesCents), 0, n);
+        }
+    }
+
+    private static void copy(IntSegments from, int start, int[] to, int n) {
+        if (to != null) {
+            from.get(start, to, n);
+        }
+    }
+
+    private static void copy(DoubleSegments from, int start, double[] to, int n) {
+        if (to != null) {
+            from.get(start, to, n);
+        }
+    }
+
+    private static void copy(LongSegments from, int start, long[] to, int n) {
+        if (to != null) {
+            from.get(start, to, n);
+        }
+    }
+
+    @Override
+    int orderNumberAt(int row) {
+        return orderNumberBuffer.get(row);
+    }
+
+    @Override
+    double salesAt(int row) {
+        return salesBuffer.get(row);
+    }
+
+    @Override
+    int codeAt(TextColumn column, int row) {
+        return codeBuffers[column.ordinal()].get(row);
+    }
+
+    @Override
+    public String text(TextColumn column, int row) {
+        return dictionary(column).get(codeAt(column, row));
+    }
+
+    @Override
+    public SalesRecord record(int row) {
+        return row().moveTo(row).toRecord();
+    }
+
+    // A cursor for reading single rows in place; not thread-safe, use one per thread
+    public Row row() {
+        return new Row();
+    }
+
+    // Flyweight over one row: moveTo(row), then read fields without creating a SalesRecord
+    public final class Row {
+        private int row;
+
+        private Row() {
+        }
+
+        public Row moveTo(int row) {
+            this.row = Objects.checkIndex(row, size);
+            return this;
+        }
+
+        public int getOrderNumber() {
+            return orderNumberBuffer.get(row);
+        }
+
+        public int getQuantityOrdered() {
+            return quantityOrderedBuffer.get(row);
+        }
+
+        public double getPriceEach() {
+            return priceEachBuffer.get(row);
+        }
+
+        public double getSales() {
+            return salesBuffer.get(row);
+        }
+
+        // Days since 1970-01-01, as LocalDate.toEpochDay()
+        public int getOrderEpochDay() {
+            return orderEpochDayBuffer.get(row);
+        }
+
+        public int getQtrId() {
+            return qtrIdBuffer.get(row);
+        }
+
+        public int getMonthId() {
+            return monthIdBuffer.get(row);
+        }
+
+        public int getYearId() {
+            return yearIdBuffer.get(row);
+        }
+
+        // Dictionary strings are shared, so text reads do not allocate either
+        public String getText(TextColumn column) {
+            return dictionary(column).get(codeBuffers[column.ordinal()].get(row));
+        }
+
+        public SalesRecord toRecord() {
+            return new SalesRecord(getOrderNumber(), getQuantityOrdered(), getPriceEach(), getSales(),
+                    LocalDate.ofEpochDay(getOrderEpochDay()), getText(TextColumn.STATUS),
+                    getQtrId(), getMonthId(), getYearId(),
+                    getText(TextColumn.PRODUCT_LINE), getText(TextColumn.PRODUCT_CODE),
+                    getText(TextColumn.CUSTOMER_NAME), getText(TextColumn.CITY),
+                    getText(TextColumn.COUNTRY), getText(TextColumn.TERRITORY),
+                    getText(TextColumn.DEAL_SIZE));
+        }
+    }
+
+    // One column as little-endian segments of 2^shift values each (every one full but the last).
+    // Reads are absolute, so segments can be shared by threads.
+    static final class IntSegments {
+        private final IntBuffer[] segments;
+        private final int shift;
+        private final int mask;
+
+        IntSegments(ByteBuffer[] segments, int shift) {
+            this.segments = new IntBuffer[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                this.segments[i] = segments[i].order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+        }
+
+        int get(int row) {
+            return segments[row >>> shift].get(row & mask);
+        }
+
+        // Copy n values starting at row start into to[0..n), across segment boundaries
+        void get(int start, int[] to, int n) {
+            for (int done = 0; done < n; ) {
+                int row = start + done;
+                IntBuffer segment = segments[row >>> shift];
+                int count = Math.min(n - done, segment.limit() - (row & mask));
+                segment.get(row & mask, to, done, count);
+                done += count;
+            }
+        }
+
+        IntSegments put(int[] values, int count) {
+            for (int i = 0, from = 0; from < count; i++) {
+                int n = segments[i].limit();
+                segments[i].put(0, values, from, n);
+                from += n;
+            }
+            return this;
+        }
+    }
+
+    static final class DoubleSegments {
+        private final DoubleBuffer[] segments;
+        private final int shift;
+        private final int mask;
+
+        DoubleSegments(ByteBuffer[] segments, int shift) {
+            this.segments = new DoubleBuffer[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                this.segments[i] = segments[i].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+        }
+
+        double get(int row) {
+            return segments[row >>> shift].get(row & mask);
+        }
+
+        void get(int start, double[] to, int n) {
+            for (int done = 0; done < n; ) {
+                int row = start + done;
+                DoubleBuffer segment = segments[row >>> shift];
+                int count = Math.min(n - done, segment.limit() - (row & mask));
+                segment.get(row & mask, to, done, count);
+                done += count;
+            }
+        }
+
+        DoubleSegments put(double[] values, int count) {
+            for (int i = 0, from = 0; from < count; i++) {
+                int n = segments[i].limit();
+                segments[i].put(0, values, from, n);
+                from += n;
+            }
+            return this;
+        }
+    }
+
+    static final class LongSegments {
+        private final LongBuffer[] segments;
+        private final int shift;
+        private final int mask;
+
+        LongSegments(ByteBuffer[] segments, int shift) {
+            this.segments = new LongBuffer[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                this.segments[i] = segments[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+        }
+
+        long get(int row) {
+            return segments[row >>> shift].get(row & mask);
+        }
+
+        void get(int start, long[] to, int n) {
+            for (int done = 0; done < n; ) {
+                int row = start + done;
+                LongBuffer segment = segments[row >>> shift];
+                int count = Math.min(n - done, segment.limit() - (row & mask));
+                segment.get(row & mask, to, done, count);
+                done += count;
+            }
+        }
+
+        LongSegments put(long[] values, int count) {
+            for (int i = 0, from = 0; from < count; i++) {
+                int n = segments[i].limit();
+                segments[i].put(0, values, from, n);
+                from += n;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.dataanalysis;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+// Decompressed contents of a gzip file, inflated on a pool of threads when the file is made
+// of many independent members whose offsets are known:
+//   BGZF    (bgzip) each member's header carries its compressed size in a "BC" extra
+//           subfield, so members are found by hopping from header to header
+//   indexed any multi-member gzip with a bgzip-style path.gzi next to it (little-endian
+//           long count, then per member after the first a long compressed offset and a
+//           long uncompressed offset)
+// Consecutive members are grouped into units of about unitSize compressed bytes. Units are
+// inflated ahead of the reader, at most two per thread at a time, and handed out in file
+// order, so the bytes stream through without a temp file or a copy of the whole output.
+// Any other gzip (one member, or members without an index) is read by a plain
+// GZIPInputStream; open() picks the right one.
+public class ParallelGzipInputStream extends InputStream {
+
+    static final int DEFAULT_UNIT_SIZE = 1024 * 1024;
+    private static final int HEADER_SIZE = 10;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] NONE = new byte[0];
+
+    private final FileChannel channel;
+    private final long size;
+    private final long[] index; // member offsets from the .gzi, or null to walk BGZF headers
+    private final int unitSize;
+    private final int readAhead;
+    private final ExecutorService threads;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private long nextUnit;
+    private byte[] current = NONE;
+    private int position;
+
+    private ParallelGzipInputStream(FileChannel channel, long[] index, int threadCount, int unitSize)
+            throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.index = index;
+        this.unitSize = unitSize;
+        this.readAhead = 2 * threadCount;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.threads = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-inflater-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // True when the file starts with the gzip magic bytes
+    public static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    public static InputStream open(Path path) throws IOException {
+        return open(path, Runtime.getRuntime().availableProcessors(), DEFAULT_UNIT_SIZE);
+    }
+
+    // Parallel when path is BGZF or has a .gzi index, otherwise a buffered GZIPInputStream
+    public static InputStream open(Path path, int threadCount, int unitSize) throws IOException {
+        if (threadCount <= 0 || unitSize <= 0) {
+            throw new IllegalArgumentException("threadCount and unitSize must be positive");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Path gzi = path.resolveSibling(path.getFileName() + ".gzi");
+            long[] index = Files.isRegularFile(gzi) ? readIndex(gzi) : null;
+            if (index != null || (channel.size() > 0 && blockSize(channel, 0) > 0)) {
+                return new ParallelGzipInputStream(channel, index, threadCount, unitSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    // Compressed offsets of every member, the first (0) included
+    static long[] readIndex(Path gzi) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(gzi)).order(ByteOrder.LITTLE_ENDIAN);
+        long count = buffer.remaining() >= 8 ? buffer.getLong() : -1;
+        if (count < 0 || buffer.remaining() != count * 16) {
+            throw new ZipException("Malformed gzip index " + gzi);
+        }
+        long[] offsets = new long[(int) count + 1];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = buffer.getLong();
+            buffer.getLong(); // uncompressed offset
+            if (offsets[i] <= offsets[i - 1]) {
+                throw new ZipException("Malformed gzip index " + gzi);
+            }
+        }
+        return offsets;
+    }
+
+    // Total size of the BGZF block (member) starting at offset, or -1 if it is not one
+    static int blockSize(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 2).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(channel, header, offset) || header.get(0) != 0x1f || header.get(1) != (byte) 0x8b
+                || header.get(2) != 8 || (header.get(3) & 4) == 0) {
+            return -1;
+        }
+        int extraLength = header.getShort(HEADER_SIZE) & 0xFFFF;
+        ByteBuffer extra = ByteBuffer.allocate(extraLength).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(channel, extra, offset + HEADER_SIZE + 2)) {
+            return -1;
+        }
+        // Subfields: id bytes SI1 SI2, short length, data
+        for (int i = 0; i + 4 <= extraLength; i += 4 + (extra.getShort(i + 2) & 0xFFFF)) {
+            if (extra.get(i) == 'B' && extra.get(i + 1) == 'C' && extra.getShort(i + 2) == 2 && i + 6 <= extraLength) {
+                return (extra.getShort(i + 4) & 0xFFFF) + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!hasBytes()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!hasBytes()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        threads.shutdownNow();
+        channel.close();
+    }
+
+    // Make sure the current unit has bytes left, moving on to the next inflated unit if needed;
+    // false at the end of the file
+    private boolean hasBytes() throws IOException {
+        while (position == current.length) {
+            submit();
+            Future<byte[]> next = pending.poll();
+            if (next == null) {
+                return false;
+            }
+            current = await(next);
+            position = 0;
+        }
+        return true;
+    }
+
+    // Keep up to readAhead units inflating
+    private void submit() throws IOException {
+        while (pending.size() < readAhead && nextUnit < size) {
+            long from = nextUnit;
+            long to = unitEnd(from);
+            pending.add(threads.submit(() -> inflate(from, to)));
+            nextUnit = to;
+        }
+    }
+
+    // End of the unit starting at the member at from: the first member start at least unitSize on
+    private long unitEnd(long from) throws IOException {
+        if (index != null) {
+            int i = Arrays.binarySearch(index, from + unitSize);
+            int next = i >= 0 ? i : -i - 1;
+            return next < index.length ? index[next] : size;
+        }
+        long to = from;
+        while (to < size && to - from < unitSize) {
+            int block = blockSize(channel, to);
+            if (block < 0) {
+                throw new ZipException("Not a BGZF block at offset " + to);
+            }
+            to += block;
+        }
+        return Math.min(to, size);
+    }
+
+    private byte[] inflate(long from, long to) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate((int) (to - from));
+        if (!readFully(channel, compressed, from)) {
+            throw new EOFException("Unexpected end of gzip file at offset " + to);
+        }
+        // GZIPInputStream reads concatenated members and checks each one's CRC and length
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.array()), BUFFER_SIZE)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> unit) throws IOException {
+        try {
+            return unit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while inflating");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to inflate", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.dataanalysis;
+
+// Partition pruning for PartitionedCsvLoader. It sees only the YEAR= and MONTH= directory
+// names on a file's path, so pruned files are never opened. A key that is missing from
+// the path is passed as 0; the factories below keep such files, since they may hold any
+// year or month (combine with a RowFilter to filter their rows).
+@FunctionalInterface
+public interface PartitionFilter {
+
+    PartitionFilter ALL = (year, month) -> true;
+
+    boolean test(int year, int month);
+
+    // Files under YEAR=y for one of years
+    static PartitionFilter years(int... years) {
+        int[] wanted = years.clone();
+        return (year, month) -> {
+            if (year == 0) {
+                return true;
+            }
+            for (int value : wanted) {
+                if (year == value) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    // Files under YEAR=year/MONTH=month, e.g. month(2004, 3)
+    static PartitionFilter month(int year, int month) {
+        return (y, m) -> (y == 0 || y == year) && (m == 0 || m == month);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.dataanalysis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesPartitions.Partition;
+
+// Loads a directory tree of sales CSVs partitioned by directory name, e.g.
+// sales/YEAR=2004/MONTH=3/part-0.csv. Every *.csv below the root is one partition;
+// YEAR= and MONTH= path segments (any case, at any depth) give its keys. A
+// PartitionFilter prunes on those keys before any file is opened. The remaining files
+// are loaded in parallel, each with the chunked loader on the same pool, and
+// concatenated in path order, so the rows do not depend on the pool size.
+public class PartitionedCsvLoader {
+
+    private final ForkJoinPool pool;
+    private final boolean exactMoney;
+    private final ChunkedCsvLoader loader;
+
+    public PartitionedCsvLoader() {
+        this(false);
+    }
+
+    public PartitionedCsvLoader(boolean exactMoney) {
+        this(ForkJoinPool.commonPool(), ChunkedCsvLoader.DEFAULT_CHUNK_SIZE, exactMoney);
+    }
+
+    public PartitionedCsvLoader(ForkJoinPool pool, int chunkSize, boolean exactMoney) {
+        this.pool = pool;
+        this.exactMoney = exactMoney;
+        this.loader = new ChunkedCsvLoader(pool, chunkSize, exactMoney);
+    }
+
+    public SalesPartitions load(Path root) throws IOException {
+        return load(root, PartitionFilter.ALL);
+    }
+
+    // Load only the partitions whose keys pass filter
+    public SalesPartitions load(Path root, PartitionFilter filter) throws IOException {
+        return load(root, filter, EnumSet.allOf(Column.class), RowFilter.ALL);
+    }
+
+    // As load(root, filter), pushing a projection and row filter into each file's parse
+    public SalesPartitions load(Path root, PartitionFilter filter, Set<Column> projection, RowFilter rows)
+            throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path file : discover(root)) {
+            Path relative = root.relativize(file);
+            if (filter.test(key(relative, "YEAR"), key(relative, "MONTH"))) {
+                files.add(file);
+            }
+        }
+        if (files.isEmpty()) {
+            SalesColumns empty = new SalesColumns.Builder(0, exactMoney, projection).build();
+            return new SalesPartitions(empty, new ArrayList<>());
+        }
+        List<SalesColumns> parts = new ArrayList<>();
+        List<Partition> partitions = new ArrayList<>();
+        int firstRow = 0;
+        try {
+            for (Loaded loaded : pool.invoke(new LoadTask(root, files, projection, rows, 0, files.size()))) {
+                loaded.partition.firstRow = firstRow;
+                firstRow += loaded.columns.size;
+                parts.add(loaded.columns);
+                partitions.add(loaded.partition);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new SalesPartitions(SalesColumns.concat(parts), partitions);
+    }
+
+    // Every regular *.csv file below root, sorted by path
+    static List<Path> discover(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Not a directory: " + root);
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(".csv"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Value of the first NAME=value directory on the path, or 0 when there is none
+    static int key(Path relative, String name) {
+        for (int i = 0; i < relative.getNameCount() - 1; i++) {
+            String segment = relative.getName(i).toString();
+            int equals = segment.indexOf('=');
+            if (equals == name.length() && segment.regionMatches(true, 0, name, 0, equals)) {
+                try {
+                    return Integer.parseInt(segment.substring(equals + 1));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static class Loaded {
+        final SalesColumns columns;
+        final Partition partition;
+
+        Loaded(SalesColumns columns, Partition partition) {
+            this.columns = columns;
+            this.partition = partition;
+        }
+    }
+
+    // Loads files [from, to), splitting in halves; each file's statistics are taken on its worker
+    private class LoadTask extends RecursiveTask<List<Loaded>> {
+        private final Path root;
+        private final List<Path> files;
+        private final Set<Column> projection;
+        private final RowFilter rows;
+        private final int from;
+        private final int to;
+
+        LoadTask(Path root, List<Path> files, Set<Column> projection, RowFilter rows, int from, int to) {
+            this.root = root;
+            this.files = files;
+            this.projection = projection;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Loaded> compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                LoadTask left = new LoadTask(root, files, projection, rows, from, mid);
+                LoadTask right = new LoadTask(root, files, projection, rows, mid, to);
+                invokeAll(left, right);
+                List<Loaded> loaded = left.join();
+                loaded.addAll(right.join());
+                return loaded;
+            }
+            Path file = files.get(from);
+            Path relative = root.relativize(file);
+            try {
+                SalesColumns columns = loader.load(file, projection, rows);
+                List<Loaded> loaded = new ArrayList<>();
+                loaded.add(new Loaded(columns,
+                        new Partition(file, key(relative, "YEAR"), key(relative, "MONTH"), columns)));
+                return loaded;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
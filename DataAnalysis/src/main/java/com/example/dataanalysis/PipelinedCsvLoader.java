@@ -0,0 +1,457 @@
+package com.example.dataanalysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.dataanalysis.SalesColumns.Column;
+
+// Loads a sales CSV from any InputStream (or file) in three overlapping stages joined by
+// bounded queues:
+//   read   one thread reads large blocks into recycled buffers and cuts each at its last
+//          unquoted newline (the partial line moves to the next block)
+//   parse  a pool of threads decodes blocks into recycled column batches
+//   build  the calling thread appends the batches to the result in block order
+// A fixed set of blocks (a buffer plus a batch) circulates through the stages, so a slow
+// stage stalls the one before it instead of growing memory, and in steady state nothing
+// is allocated but the result columns and each batch's small dictionaries.
+// ChunkedCsvLoader memory-maps the file instead, so its parsers stall on page faults while
+// the disk catches up; here reads from a slow disk or network mount overlap with parsing,
+// and the input need not be a file at all (stdin, a pipe, a decompressing stream).
+// getLastStats() reports, per stage, the bytes and rows it handled and how long it worked
+// and stalled.
+public class PipelinedCsvLoader {
+
+    static final int DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+    static final int DEFAULT_QUEUE_DEPTH = 4;
+
+    // Queue markers: a parser has no more blocks / a stage failed (see Run.failure)
+    private static final Block END = new Block();
+    private static final Block FAILED = new Block();
+
+    private final int parserThreads;
+    private final int blockSize;
+    private final int queueDepth;
+    private final boolean exactMoney;
+    private volatile Stats lastStats;
+
+    public PipelinedCsvLoader() {
+        this(false);
+    }
+
+    public PipelinedCsvLoader(boolean exactMoney) {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_DEPTH,
+                exactMoney);
+    }
+
+    // queueDepth: read blocks that may wait for a parser before the reader stalls
+    public PipelinedCsvLoader(int parserThreads, int blockSize, int queueDepth, boolean exactMoney) {
+        if (parserThreads <= 0 || blockSize <= 0 || queueDepth <= 0) {
+            throw new IllegalArgumentException("parserThreads, blockSize and queueDepth must be positive");
+        }
+        this.parserThreads = parserThreads;
+        this.blockSize = blockSize;
+        this.queueDepth = queueDepth;
+        this.exactMoney = exactMoney;
+    }
+
+    public SalesColumns load(Path csvPath) throws IOException {
+        return load(csvPath, EnumSet.allOf(Column.class), RowFilter.ALL);
+    }
+
+    // Load only the rows that pass filter, decoding only the projected columns.
+    // A gzip file is inflated on the way in (see ParallelGzipInputStream).
+    public SalesColumns load(Path csvPath, Set<Column> projection, RowFilter filter) throws IOException {
+        try (InputStream in = ParallelGzipInputStream.isGzip(csvPath) ? ParallelGzipInputStream.open(csvPath)
+                : Files.newInputStream(csvPath)) {
+            return load(in, projection, filter);
+        }
+    }
+
+    public SalesColumns load(InputStream in) throws IOException {
+        return load(in, EnumSet.allOf(Column.class), RowFilter.ALL);
+    }
+
+    // Read the whole stream, header line first; rows come out in stream order
+    public SalesColumns load(InputStream in, Set<Column> projection, RowFilter filter) throws IOException {
+        Stats stats = new Stats();
+        long start = System.nanoTime();
+        try {
+            return new Run(in, projection, filter, stats).execute();
+        } finally {
+            stats.elapsedNanos = System.nanoTime() - start;
+            lastStats = stats;
+        }
+    }
+
+    // Stage statistics of the most recent load (on any thread), or null before the first
+    public Stats getLastStats() {
+        return lastStats;
+    }
+
+    // A read buffer and the column batch parsed from it; both are reused for later blocks
+    // (the batch's arrays, not its dictionaries)
+    private static class Block {
+        byte[] data;
+        ByteBuffer view;
+        final SalesColumns.Builder rows;
+        long seq;
+        int from;
+        int to;
+
+        Block() {
+            this.rows = null;
+        }
+
+        Block(int size, boolean exactMoney, Set<Column> projection) {
+            this.data = new byte[size];
+            this.view = ByteBuffer.wrap(data);
+            // ~100 bytes per row is a good first guess for this schema
+            this.rows = new SalesColumns.Builder(size / 100, exactMoney, projection);
+        }
+
+        void grow(int size) {
+            data = Arrays.copyOf(data, size);
+            view = ByteBuffer.wrap(data);
+        }
+    }
+
+    // The queues, blocks and threads of one load
+    private class Run {
+        private final InputStream in;
+        private final Set<Column> projection;
+        private final RowFilter filter;
+        private final Stats stats;
+        private final int blockCount;
+        private final BlockingQueue<Block> free;
+        private final BlockingQueue<Block> full;
+        private final BlockingQueue<Block> parsed;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Run(InputStream in, Set<Column> projection, RowFilter filter, Stats stats) {
+            this.in = in;
+            this.projection = projection;
+            this.filter = filter;
+            this.stats = stats;
+            // One being filled and one for its tail, one per parser, and the queue between
+            this.blockCount = queueDepth + parserThreads + 2;
+            this.free = new ArrayBlockingQueue<>(blockCount);
+            this.full = new ArrayBlockingQueue<>(queueDepth);
+            // Room for every block plus the markers, so parsers never wait on it
+            this.parsed = new ArrayBlockingQueue<>(blockCount + parserThreads + 1);
+            for (int i = 0; i < blockCount; i++) {
+                free.add(new Block(blockSize, exactMoney, projection));
+            }
+        }
+
+        SalesColumns execute() throws IOException {
+            AtomicInteger threadCount = new AtomicInteger();
+            ExecutorService threads = Executors.newFixedThreadPool(parserThreads + 1, runnable -> {
+                Thread thread = new Thread(runnable, "csv-pipeline-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                threads.execute(this::read);
+                for (int i = 0; i < parserThreads; i++) {
+                    threads.execute(this::parse);
+                }
+                return build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Load interrupted");
+            } finally {
+                threads.shutdownNow(); // stops the other stages if build() failed
+            }
+        }
+
+        // Read stage: fill a block, cut it after the last complete row, carry the rest over
+        private void read() {
+            try {
+                Block block = take(free, stats.read);
+                int filled = 0;
+                boolean header = true;
+                boolean eof = false;
+                long seq = 0;
+                while (!eof) {
+                    long start = System.nanoTime();
+                    while (filled < block.data.length) {
+                        int n = in.read(block.data, filled, block.data.length - filled);
+                        if (n < 0) {
+                            eof = true;
+                            break;
+                        }
+                        filled += n;
+                        stats.read.bytes.add(n);
+                    }
+                    int from = 0;
+                    int cut;
+                    if (header) {
+                        from = rowEnd(block.data, filled, false);
+                        if (from < 0 && eof) {
+                            from = filled; // header only
+                        }
+                        cut = from < 0 ? -1 : eof ? filled : rowEnd(block.data, filled, true);
+                    } else {
+                        cut = eof ? filled : rowEnd(block.data, filled, true);
+                    }
+                    if (cut <= 0 && !eof) {
+                        // Not one complete row (or header) in the block: make room for more
+                        block.grow(block.data.length * 2);
+                        stats.read.busy(System.nanoTime() - start);
+                        continue;
+                    }
+                    header = false;
+                    block.seq = seq++;
+                    block.from = from;
+                    block.to = cut;
+                    stats.read.busy(System.nanoTime() - start);
+                    stats.read.blocks.increment();
+                    Block next = eof ? null : take(free, stats.read);
+                    if (next != null) {
+                        filled -= cut;
+                        if (next.data.length < filled) {
+                            next.grow(block.data.length);
+                        }
+                        System.arraycopy(block.data, cut, next.data, 0, filled);
+                    }
+                    put(full, block, stats.read);
+                    block = next;
+                }
+                for (int i = 0; i < parserThreads; i++) {
+                    put(full, END, stats.read);
+                }
+            } catch (IOException e) {
+                fail(new UncheckedIOException(e));
+            } catch (InterruptedException e) {
+                // Stopped by shutdownNow after another stage failed
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+
+        // Parse stage: decode each block's rows into its batch
+        private void parse() {
+            CsvTokenizer tokens = new CsvTokenizer(SalesRecord.COLUMN_COUNT);
+            try {
+                while (true) {
+                    Block block = take(full, stats.parse);
+                    if (block == END) {
+                        parsed.put(END);
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    SalesColumns.Builder rows = block.rows;
+                    // Fresh dictionaries per block: build re-encodes only this block's values, not
+                    // every value the recycled batch has ever seen (O(blocks x distinct) otherwise)
+                    rows.reset();
+                    int pos = block.from;
+                    while (pos < block.to) {
+                        pos = tokens.nextLine(block.view, pos, block.to);
+                        if (!tokens.isBlank() && filter.test(tokens)) {
+                            rows.add(tokens);
+                        }
+                    }
+                    stats.parse.busy(System.nanoTime() - start);
+                    stats.parse.bytes.add(block.to - block.from);
+                    stats.parse.rows.add(rows.size());
+                    stats.parse.blocks.increment();
+                    parsed.put(block);
+                }
+            } catch (InterruptedException e) {
+                // Stopped by shutdownNow after another stage failed
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+
+        // Build stage: append batches in block order, then hand their blocks back to the reader
+        private SalesColumns build() throws IOException, InterruptedException {
+            SalesColumns.Builder result = new SalesColumns.Builder(blockSize / 100, exactMoney, projection);
+            Block[] pending = new Block[blockCount]; // by seq; at most blockCount are in flight
+            long next = 0;
+            int ended = 0;
+            while (ended < parserThreads) {
+                Block block = take(parsed, stats.build);
+                if (block == FAILED) {
+                    Throwable e = failure.get();
+                    if (e instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e).getCause();
+                    } else if (e instanceof Error) {
+                        throw (Error) e;
+                    }
+                    throw (RuntimeException) e;
+                }
+                if (block == END) {
+                    ended++;
+                    continue;
+                }
+                pending[(int) (block.seq % blockCount)] = block;
+                Block ready;
+                while ((ready = pending[(int) (next % blockCount)]) != null && ready.seq == next) {
+                    long start = System.nanoTime();
+                    pending[(int) (next % blockCount)] = null;
+                    result.addAll(ready.rows.view());
+                    stats.build.busy(System.nanoTime() - start);
+                    stats.build.rows.add(ready.rows.size());
+                    stats.build.blocks.increment();
+                    next++;
+                    free.put(ready);
+                }
+            }
+            long start = System.nanoTime();
+            SalesColumns columns = result.build();
+            stats.build.busy(System.nanoTime() - start);
+            return columns;
+        }
+
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                parsed.offer(FAILED);
+            }
+        }
+    }
+
+    // Index just past the first (or last) newline outside quotes in data[0, length), or -1.
+    // Blocks start at a row boundary, so the quote parity starts even.
+    static int rowEnd(byte[] data, int length, boolean last) {
+        boolean quoted = false;
+        int end = -1;
+        for (int i = 0; i < length; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                end = i + 1;
+                if (!last) {
+                    return end;
+                }
+            }
+        }
+        return end;
+    }
+
+    private static Block take(BlockingQueue<Block> queue, Stage stage) throws InterruptedException {
+        Block block = queue.poll();
+        if (block == null) {
+            long start = System.nanoTime();
+            block = queue.take();
+            stage.stalled(System.nanoTime() - start);
+        }
+        return block;
+    }
+
+    private static void put(BlockingQueue<Block> queue, Block block, Stage stage) throws InterruptedException {
+        if (!queue.offer(block)) {
+            long start = System.nanoTime();
+            queue.put(block);
+            stage.stalled(System.nanoTime() - start);
+        }
+    }
+
+    // Per-stage statistics of one load
+    public static final class Stats {
+        private final Stage read = new Stage("read");
+        private final Stage parse = new Stage("parse");
+        private final Stage build = new Stage("build");
+        private volatile long elapsedNanos;
+
+        public Stage getRead() {
+            return read;
+        }
+
+        // Summed over all parser threads
+        public Stage getParse() {
+            return parse;
+        }
+
+        public Stage getBuild() {
+            return build;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pipeline[%.1f ms]%n  %s%n  %s%n  %s", elapsedNanos / 1e6, read, parse, build);
+        }
+    }
+
+    // What one stage did: blocks and bytes/rows handled, time spent working, and time spent
+    // stalled (waiting for input, or for room or a free buffer downstream)
+    public static final class Stage {
+        private final String name;
+        private final LongAdder blocks = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder stallNanos = new LongAdder();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void busy(long nanos) {
+            busyNanos.add(nanos);
+        }
+
+        void stalled(long nanos) {
+            stallNanos.add(nanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getBlocks() {
+            return blocks.sum();
+        }
+
+        // Bytes read (read) or parsed (parse); 0 for build
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        // Rows parsed (parse) or appended (build); 0 for read
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.sum();
+        }
+
+        public long getStallNanos() {
+            return stallNanos.sum();
+        }
+
+        // Bytes per second of busy time, i.e. what the stage manages when it is not waiting
+        public double getBytesPerSecond() {
+            long busy = getBusyNanos();
+            return busy == 0 ? 0 : getBytes() * 1e9 / busy;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-5s %6d blocks %,14d bytes %,11d rows  busy %9.1f ms  stalled %9.1f ms  %8.1f MB/s",
+                    name, getBlocks(), getBytes(), getRows(), getBusyNanos() / 1e6, getStallNanos() / 1e6,
+                    getBytesPerSecond() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.dataanalysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Bounded LRU cache of query results, keyed by query name plus parameters
+// (e.g. List.of("topCustomers", 10)). Values must be immutable, since every caller
+// gets the same instance. Thread-safe: lookups take a short lock, and results are
+// computed outside it, so two threads missing the same key may both compute it
+// (the results are identical; the second put just replaces the first).
+// invalidate() drops everything and bumps a generation number, so a result that
+// was computed against the old data is never stored after the data has changed.
+public class QueryCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Object, Object> entries;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public QueryCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    // maxEntries = 0 disables caching (every lookup is a miss)
+    public QueryCache(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Cached value for key, or compute it, remember it and return it
+    public <T> T get(Object key, Supplier<T> compute) {
+        long startGeneration;
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            T cached = (T) entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            startGeneration = generation;
+        }
+        T value = compute.get();
+        synchronized (this) {
+            if (generation == startGeneration && maxEntries > 0) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    // Forget every result; call whenever the data behind the queries changes
+    public synchronized void invalidate() {
+        entries.clear();
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("QueryCache[size=%d/%d, hits=%d, misses=%d, evictions=%d]", entries.size(), maxEntries,
+                hits, misses, evictions);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.dataanalysis;
+
+import java.io.Closeable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Runs aggregators over a column set, either on the calling thread or on a fork-join pool.
+// Rows are always cut into the same partitions (sized from the row count only), each
+// partition is aggregated into its own fresh copy, and the partials are merged pairwise
+// in a fixed tree. The order of every floating-point addition therefore depends only on
+// the data, so sequential and parallel runs give bit-identical results for any pool size.
+// Partials are private to their task, so there is no shared map to contend on.
+// An executor made by parallel(threads) owns its pool and shuts it down on close(); one
+// given a pool leaves it to the caller. Create one and reuse it rather than one per load.
+public class QueryExecutor implements Closeable {
+
+    static final int MIN_PARTITION_ROWS = 64 * 1024;
+    static final int MAX_PARTITIONS = 256;
+
+    private final ForkJoinPool pool; // null = run on the calling thread
+    private final boolean ownsPool;
+    private final int minPartitionRows;
+
+    private QueryExecutor(ForkJoinPool pool, boolean ownsPool, int minPartitionRows) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.minPartitionRows = minPartitionRows;
+    }
+
+    public static QueryExecutor sequential() {
+        return new QueryExecutor(null, false, MIN_PARTITION_ROWS);
+    }
+
+    // Parallel execution on a dedicated pool (daemon worker threads), shut down by close()
+    public static QueryExecutor parallel(int threads) {
+        return new QueryExecutor(new ForkJoinPool(threads), true, MIN_PARTITION_ROWS);
+    }
+
+    // Parallel execution on the caller's pool; close() leaves it running
+    public static QueryExecutor parallel(ForkJoinPool pool) {
+        return new QueryExecutor(pool, false, MIN_PARTITION_ROWS);
+    }
+
+    // Same pool with a different partition size (tests use tiny partitions); closing the
+    // copy leaves the pool to this executor
+    QueryExecutor withMinPartitionRows(int rows) {
+        return new QueryExecutor(pool, false, rows);
+    }
+
+    // Shut down the pool if this executor created it; queries already running finish
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    // Fold all rows of columns into aggregator and return it
+    public <A extends SalesAggregator> A run(SalesColumns columns, A aggregator) {
+        return run(columns, 0, columns.size(), aggregator);
+    }
+
+    // Fold rows [from, to) of columns into aggregator; partitions are cut from 'from' on
+    public <A extends SalesAggregator> A run(SalesColumns columns, int from, int to, A aggregator) {
+        int size = to - from;
+        SalesMetrics.scanned(columns, aggregator, size);
+        int partitionRows = Math.max(minPartitionRows, (size + MAX_PARTITIONS - 1) / MAX_PARTITIONS);
+        int partitions = (size + partitionRows - 1) / partitionRows;
+        if (partitions <= 1) {
+            columns.scan(aggregator, from, to);
+            return aggregator;
+        }
+        Rows rows = new Rows(columns, aggregator, from, to, partitionRows, pool != null);
+        PartitionTask task = new PartitionTask(rows, 0, partitions);
+        aggregator.merge(pool != null ? pool.invoke(task) : task.compute());
+        return aggregator;
+    }
+
+    // What every partition of one run shares
+    private static class Rows {
+        final SalesColumns columns;
+        final SalesAggregator prototype;
+        final int from;
+        final int to;
+        final int partitionRows;
+        final boolean fork;
+
+        Rows(SalesColumns columns, SalesAggregator prototype, int from, int to, int partitionRows, boolean fork) {
+            this.columns = columns;
+            this.prototype = prototype;
+            this.from = from;
+            this.to = to;
+            this.partitionRows = partitionRows;
+            this.fork = fork;
+        }
+    }
+
+    // Aggregates partitions [from, to): leaves scan one partition, inner nodes merge left+right
+    private static class PartitionTask extends RecursiveTask<SalesAggregator> {
+        private final Rows rows;
+        private final int from;
+        private final int to;
+
+        PartitionTask(Rows rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SalesAggregator compute() {
+            if (to - from == 1) {
+                SalesAggregator partial = rows.prototype.emptyCopy();
+                int start = rows.from + from * rows.partitionRows;
+                rows.columns.scan(partial, start, Math.min(rows.to, start + rows.partitionRows));
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            PartitionTask left = new PartitionTask(rows, from, mid);
+            PartitionTask right = new PartitionTask(rows, mid, to);
+            SalesAggregator leftResult;
+            SalesAggregator rightResult;
+            if (rows.fork) {
+                right.fork();
+                leftResult = left.compute();
+                rightResult = right.join();
+            } else {
+                leftResult = left.compute();
+                rightResult = right.compute();
+            }
+            leftResult.merge(rightResult);
+            return leftResult;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.dataanalysis;
+
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// Row predicate pushed down into the CSV loaders. It is evaluated on the tokenized line,
+// before anything is decoded into columns: numbers are parsed straight from the field
+// bytes and text is compared in place, so rejected rows allocate nothing.
+// Text values are matched exactly as stored, including any CSV quotes.
+@FunctionalInterface
+public interface RowFilter {
+
+    RowFilter ALL = tokens -> true;
+
+    boolean test(CsvTokenizer tokens);
+
+    default RowFilter and(RowFilter other) {
+        return tokens -> test(tokens) && other.test(tokens);
+    }
+
+    // YEAR_ID is one of years
+    static RowFilter yearIn(int... years) {
+        int[] wanted = years.clone();
+        return tokens -> {
+            int year = tokens.getInt(SalesRecord.COL_YEAR_ID);
+            for (int value : wanted) {
+                if (year == value) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    // The text column is one of values, e.g. textIn(TextColumn.TERRITORY, "EMEA")
+    static RowFilter textIn(TextColumn column, String... values) {
+        String[] wanted = values.clone();
+        int field = column.csvColumn;
+        return tokens -> {
+            for (String value : wanted) {
+                if (tokens.fieldEquals(field, value)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    // SALES > threshold
+    static RowFilter salesAbove(double threshold) {
+        return tokens -> tokens.getDouble(SalesRecord.COL_SALES) > threshold;
+    }
+
+    // min <= SALES <= max
+    static RowFilter salesBetween(double min, double max) {
+        return tokens -> {
+            double sales = tokens.getDouble(SalesRecord.COL_SALES);
+            return sales >= min && sales <= max;
+        };
+    }
+}
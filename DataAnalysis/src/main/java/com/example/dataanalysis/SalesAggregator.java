@@ -0,0 +1,30 @@
+package com.example.dataanalysis;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.example.dataanalysis.SalesColumns.Column;
+
+// Incremental aggregate over sales rows. Rows arrive as ranges of column batches,
+// and only the aggregate state is kept, so a dataset of any size can be streamed through.
+public interface SalesAggregator {
+
+    // Fold rows [from, to) of batch into the aggregate
+    void accept(SalesColumns batch, int from, int to);
+
+    // The columns accept() reads. Scans of off-heap rows copy only these onto the heap
+    // (see OffHeapSalesColumns); other columns of the batch are null.
+    default Set<Column> columns() {
+        return EnumSet.allOf(Column.class);
+    }
+
+    // A fresh aggregator with the same parameters and no rows, used per partition in parallel scans
+    default SalesAggregator emptyCopy() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support parallel scans");
+    }
+
+    // Fold in an aggregator of the same kind that saw the rows directly after this one's
+    default void merge(SalesAggregator other) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support parallel scans");
+    }
+}
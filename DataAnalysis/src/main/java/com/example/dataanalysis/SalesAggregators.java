@@ -0,0 +1,609 @@
+package com.example.dataanalysis;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// Incremental aggregators behind the SalesAnalysis queries and the report.
+// Group-bys keep array state indexed by their own dictionary codes (see CodeRemapper).
+// Money sums go into long cents when the batch has exact money (SalesColumns.salesCents)
+// and into doubles otherwise; results add the two, so exact-money totals are exact.
+// Double sums are compensated (see Kernels.addCompensated), as the Collectors.summingDouble
+// they replaced was, so totals do not drift with row count or batching.
+public final class SalesAggregators {
+
+    private SalesAggregators() {
+    }
+
+    // Row count and sales total (total revenue, transactions, average order value)
+    public static class Totals implements SalesAggregator {
+        private long count;
+        private double revenue;
+        private double revenueError; // compensation, see Kernels.addCompensated
+        private long revenueCents;
+
+        @Override
+        public Set<Column> columns() {
+            return EnumSet.of(Column.SALES);
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            if (batch.salesCents != null) {
+                revenueCents += Kernels.sum(batch.salesCents, from, to);
+            } else {
+                add(Kernels.sum(batch.sales, from, to));
+            }
+            count += to - from;
+        }
+
+        @Override
+        public Totals emptyCopy() {
+            return new Totals();
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            Totals that = (Totals) other;
+            add(that.revenue);
+            revenueError += that.revenueError;
+            revenueCents += that.revenueCents;
+            count += that.count;
+        }
+
+        private void add(double sales) {
+            double sum = revenue + sales;
+            revenueError += Kernels.roundingError(revenue, sales, sum);
+            revenue = sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getRevenue() {
+            return revenue + revenueError + revenueCents / 100.0;
+        }
+
+        public double getAverage() {
+            return count == 0 ? 0.0 : getRevenue() / count;
+        }
+    }
+
+    // Sales total and row count per value of a text column
+    public static class RevenueBy implements SalesAggregator {
+        private final TextColumn column;
+        private final CodeRemapper remapper = new CodeRemapper();
+        private double[] totals = new double[16];
+        private double[] errors = new double[16];
+        private long[] cents = new long[16];
+        private long[] counts = new long[16];
+
+        public RevenueBy(TextColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        public Set<Column> columns() {
+            return EnumSet.of(Column.SALES, Column.of(column));
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            int[] remap = remapper.remap(batch.dictionary(column));
+            grow(remapper.dictionary().size());
+            int[] codes = batch.codes(column);
+            int codeCount = batch.dictionary(column).size();
+            if (batch.salesCents != null) {
+                Kernels.sumByCode(codes, codeCount, remap, batch.salesCents, from, to, cents, counts);
+            } else {
+                Kernels.sumByCode(codes, codeCount, remap, batch.sales, from, to, totals, errors, counts);
+            }
+        }
+
+        private void grow(int groups) {
+            if (totals.length < groups) {
+                totals = Arrays.copyOf(totals, Math.max(groups, totals.length * 2));
+                errors = Arrays.copyOf(errors, totals.length);
+                cents = Arrays.copyOf(cents, totals.length);
+                counts = Arrays.copyOf(counts, totals.length);
+            }
+        }
+
+        private double revenue(int group) {
+            return totals[group] + errors[group] + cents[group] / 100.0;
+        }
+
+        @Override
+        public RevenueBy emptyCopy() {
+            return new RevenueBy(column);
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            RevenueBy that = (RevenueBy) other;
+            int[] remap = remapper.remap(that.remapper.dictionary());
+            grow(remapper.dictionary().size());
+            for (int code = 0; code < that.remapper.dictionary().size(); code++) {
+                Kernels.addCompensated(totals, errors, remap[code], that.totals[code]);
+                errors[remap[code]] += that.errors[code];
+                cents[remap[code]] += that.cents[code];
+                counts[remap[code]] += that.counts[code];
+            }
+        }
+
+        public Map<String, Double> result() {
+            StringDictionary dictionary = remapper.dictionary();
+            Map<String, Double> result = new HashMap<>();
+            for (int group = 0; group < dictionary.size(); group++) {
+                if (counts[group] > 0) {
+                    result.put(dictionary.get(group), revenue(group));
+                }
+            }
+            return result;
+        }
+
+        // The n groups with the highest revenue, highest first, selected with a
+        // bounded heap (O(groups log n)) instead of sorting every group
+        public List<Map.Entry<String, Double>> top(int n) {
+            StringDictionary dictionary = remapper.dictionary();
+            TopK<Map.Entry<String, Double>> top = new TopK<>(Math.max(n, 0));
+            for (int group = 0; group < dictionary.size(); group++) {
+                double revenue = revenue(group);
+                if (counts[group] > 0 && top.accepts(revenue, group)) {
+                    top.offer(revenue, group, Map.entry(dictionary.get(group), revenue));
+                }
+            }
+            return top.sorted();
+        }
+    }
+
+    // Quantity total per value of a text column
+    public static class QuantityBy implements SalesAggregator {
+        private final TextColumn column;
+        private final CodeRemapper remapper = new CodeRemapper();
+        private int[] totals = new int[16];
+        private long[] counts = new long[16];
+
+        public QuantityBy(TextColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        public Set<Column> columns() {
+            return EnumSet.of(Column.QUANTITY_ORDERED, Column.of(column));
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            int[] remap = remapper.remap(batch.dictionary(column));
+            grow(remapper.dictionary().size());
+            Kernels.sumByCode(batch.codes(column), batch.dictionary(column).size(), remap, batch.quantityOrdered,
+                    from, to, totals, counts);
+        }
+
+        private void grow(int groups) {
+            if (totals.length < groups) {
+                totals = Arrays.copyOf(totals, Math.max(groups, totals.length * 2));
+                counts = Arrays.copyOf(counts, totals.length);
+            }
+        }
+
+        @Override
+        public QuantityBy emptyCopy() {
+            return new QuantityBy(column);
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            QuantityBy that = (QuantityBy) other;
+            int[] remap = remapper.remap(that.remapper.dictionary());
+            grow(remapper.dictionary().size());
+            for (int code = 0; code < that.remapper.dictionary().size(); code++) {
+                totals[remap[code]] += that.totals[code];
+                counts[remap[code]] += that.counts[code];
+            }
+        }
+
+        public Map<String, Integer> result() {
+            StringDictionary dictionary = remapper.dictionary();
+            Map<String, Integer> result = new HashMap<>();
+            for (int group = 0; group < dictionary.size(); group++) {
+                if (counts[group] > 0) {
+                    result.put(dictionary.get(group), totals[group]);
+                }
+            }
+            return result;
+        }
+    }
+
+    // Row count per value of a text column (status distribution, distinct customers)
+    public static class CountBy implements SalesAggregator {
+        private final TextColumn column;
+        private final CodeRemapper remapper = new CodeRemapper();
+        private long[] counts = new long[16];
+
+        public CountBy(TextColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        public Set<Column> columns() {
+            return EnumSet.of(Column.of(column));
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            int[] remap = remapper.remap(batch.dictionary(column));
+            grow(remapper.dictionary().size());
+            int[] codes = batch.codes(column);
+            for (int i = from; i < to; i++) {
+                counts[remap[codes[i]]]++;
+            }
+        }
+
+        private void grow(int groups) {
+            if (counts.length < groups) {
+                counts = Arrays.copyOf(counts, Math.max(groups, counts.length * 2));
+            }
+        }
+
+        @Override
+        public CountBy emptyCopy() {
+            return new CountBy(column);
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            CountBy that = (CountBy) other;
+            int[] remap = remapper.remap(that.remapper.dictionary());
+            grow(remapper.dictionary().size());
+            for (int code = 0; code < that.remapper.dictionary().size(); code++) {
+                counts[remap[code]] += that.counts[code];
+            }
+        }
+
+        public Map<String, Long> result() {
+            StringDictionary dictionary = remapper.dictionary();
+            Map<String, Long> result = new HashMap<>();
+            for (int group = 0; group < dictionary.size(); group++) {
+                if (counts[group] > 0) {
+                    result.put(dictionary.get(group), counts[group]);
+                }
+            }
+            return result;
+        }
+
+        // Number of values that occur in at least one row
+        public long distinct() {
+            long distinct = 0;
+            for (int group = 0; group < remapper.dictionary().size(); group++) {
+                if (counts[group] > 0) {
+                    distinct++;
+                }
+            }
+            return distinct;
+        }
+    }
+
+    // Sales total per year, in an array offset by the smallest year seen
+    public static class RevenueByYear implements SalesAggregator {
+        private int minYear;
+        private double[] totals = new double[0];
+        private double[] errors = new double[0];
+        private long[] cents = new long[0];
+        private boolean[] seen = new boolean[0];
+
+        @Override
+        public Set<Column> columns() {
+            return EnumSet.of(Column.SALES, Column.YEAR_ID);
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            int[] years = batch.yearId;
+            if (batch.salesCents != null) {
+                long[] sales = batch.salesCents;
+                for (int i = from; i < to; i++) {
+                    int slot = slot(years[i]);
+                    cents[slot] += sales[i];
+                    seen[slot] = true;
+                }
+                return;
+            }
+            double[] sales = batch.sales;
+            for (int i = from; i < to; i++) {
+                int slot = slot(years[i]);
+                Kernels.addCompensated(totals, errors, slot, sales[i]);
+                seen[slot] = true;
+            }
+        }
+
+        // Index for year, widening the array when the year is outside the current range
+        private int slot(int year) {
+            if (totals.length == 0) {
+                minYear = year;
+                totals = new double[1];
+                errors = new double[1];
+                cents = new long[1];
+                seen = new boolean[1];
+            } else if (year < minYear) {
+                int shift = minYear - year;
+                double[] widerTotals = new double[totals.length + shift];
+                double[] widerErrors = new double[widerTotals.length];
+                long[] widerCents = new long[widerTotals.length];
+                boolean[] widerSeen = new boolean[widerTotals.length];
+                System.arraycopy(totals, 0, widerTotals, shift, totals.length);
+                System.arraycopy(errors, 0, widerErrors, shift, errors.length);
+                System.arraycopy(cents, 0, widerCents, shift, cents.length);
+                System.arraycopy(seen, 0, widerSeen, shift, seen.length);
+                totals = widerTotals;
+                errors = widerErrors;
+                cents = widerCents;
+                seen = widerSeen;
+                minYear = year;
+            } else if (year - minYear >= totals.length) {
+                totals = Arrays.copyOf(totals, year - minYear + 1);
+                errors = Arrays.copyOf(errors, totals.length);
+                cents = Arrays.copyOf(cents, totals.length);
+                seen = Arrays.copyOf(seen, totals.length);
+            }
+            return year - minYear;
+        }
+
+        @Override
+        public RevenueByYear emptyCopy() {
+            return new RevenueByYear();
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            RevenueByYear that = (RevenueByYear) other;
+            for (int slot = 0; slot < that.totals.length; slot++) {
+                if (that.seen[slot]) {
+                    int mine = slot(that.minYear + slot);
+                    Kernels.addCompensated(totals, errors, mine, that.totals[slot]);
+                    errors[mine] += that.errors[slot];
+                    cents[mine] += that.cents[slot];
+                    seen[mine] = true;
+                }
+            }
+        }
+
+        public Map<Integer, Double> result() {
+            Map<Integer, Double> result = new HashMap<>();
+            for (int slot = 0; slot < totals.length; slot++) {
+                if (seen[slot]) {
+                    result.put(minYear + slot, totals[slot] + errors[slot] + cents[slot] / 100.0);
+                }
+            }
+            return result;
+        }
+    }
+
+    // Orders with sales above a threshold: total match count plus the top 'limit'
+    // by sales, kept in a bounded TopK heap (O(n log k), matches are never all sorted
+    // or copied). Equal sales keep their input order.
+    public static class HighValueOrders implements SalesAggregator {
+        private final double threshold;
+        private final int limit;
+        private final TopK<SalesRecord> top;
+        private long matches;
+        private long rowsSeen;
+        private final int[] selected = new int[FusedScan.BLOCK_ROWS];
+
+        public HighValueOrders(double threshold, int limit) {
+            this.threshold = threshold;
+            this.limit = Math.max(limit, 0);
+            this.top = new TopK<>(this.limit);
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            double[] sales = batch.sales;
+            for (int block = from; block < to; block += selected.length) {
+                int n = Kernels.selectAbove(sales, block, Math.min(block + selected.length, to), threshold, selected);
+                matches += n;
+                for (int s = 0; s < n; s++) {
+                    int i = selected[s];
+                    long sequence = rowsSeen + i - from;
+                    // Only rows that make the cut become SalesRecords
+                    if (top.accepts(sales[i], sequence)) {
+                        top.offer(sales[i], sequence, batch.record(i));
+                    }
+                }
+            }
+            rowsSeen += to - from;
+        }
+
+        @Override
+        public HighValueOrders emptyCopy() {
+            return new HighValueOrders(threshold, limit);
+        }
+
+        // The other side's rows come after ours, so its sequence numbers are shifted past ours
+        @Override
+        public void merge(SalesAggregator other) {
+            HighValueOrders that = (HighValueOrders) other;
+            long offset = rowsSeen;
+            that.top.forEach((sales, sequence, record) -> top.offer(sales, offset + sequence, record));
+            matches += that.matches;
+            rowsSeen += that.rowsSeen;
+        }
+
+        // Number of rows above the threshold
+        public long getMatchCount() {
+            return matches;
+        }
+
+        // Top matches, highest sales first
+        public List<SalesRecord> result() {
+            return top.sorted();
+        }
+    }
+
+    // Approximate distinct count of a text column (HyperLogLog). Each dictionary value is
+    // hashed once, then every row costs one array lookup and one register update.
+    public static class ApproxDistinct implements SalesAggregator {
+        private final TextColumn column;
+        private final HyperLogLog sketch;
+        private StringDictionary source;
+        private long[] hashes = new long[0];
+        private int hashed;
+
+        public ApproxDistinct(TextColumn column, int precision) {
+            this.column = column;
+            this.sketch = new HyperLogLog(precision);
+        }
+
+        @Override
+        public Set<Column> columns() {
+            return EnumSet.of(Column.of(column));
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            StringDictionary dictionary = batch.dictionary(column);
+            if (dictionary != source) {
+                source = dictionary;
+                hashed = 0;
+            }
+            int size = dictionary.size();
+            if (hashed < size) {
+                if (hashes.length < size) {
+                    hashes = Arrays.copyOf(hashes, Math.max(size, hashes.length * 2));
+                }
+                for (int code = hashed; code < size; code++) {
+                    hashes[code] = HyperLogLog.hash(dictionary.get(code));
+                }
+                hashed = size;
+            }
+            int[] codes = batch.codes(column);
+            for (int i = from; i < to; i++) {
+                sketch.addHash(hashes[codes[i]]);
+            }
+        }
+
+        @Override
+        public ApproxDistinct emptyCopy() {
+            return new ApproxDistinct(column, sketch.getPrecision());
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            sketch.merge(((ApproxDistinct) other).sketch);
+        }
+
+        public long estimate() {
+            return sketch.estimate();
+        }
+
+        // A copy of the sketch, e.g. to merge with sketches of other files
+        public HyperLogLog sketch() {
+            return sketch.copy();
+        }
+    }
+
+    // Approximate quantiles of sales, quantity or price each (KLL sketch)
+    public static class ApproxQuantiles implements SalesAggregator {
+        private final GroupBy.Metric metric;
+        private final KllSketch sketch;
+
+        public ApproxQuantiles(GroupBy.Metric metric, int k) {
+            this.metric = metric;
+            this.sketch = new KllSketch(k);
+        }
+
+        @Override
+        public Set<Column> columns() {
+            return EnumSet.of(metric.column);
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            if (metric == GroupBy.Metric.QUANTITY) {
+                int[] quantity = batch.quantityOrdered;
+                for (int i = from; i < to; i++) {
+                    sketch.add(quantity[i]);
+                }
+            } else {
+                double[] values = metric == GroupBy.Metric.SALES ? batch.sales : batch.priceEach;
+                for (int i = from; i < to; i++) {
+                    sketch.add(values[i]);
+                }
+            }
+        }
+
+        @Override
+        public ApproxQuantiles emptyCopy() {
+            return new ApproxQuantiles(metric, sketch.getK());
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            sketch.merge(((ApproxQuantiles) other).sketch);
+        }
+
+        public double quantile(double q) {
+            return sketch.quantile(q);
+        }
+
+        // A copy of the sketch, e.g. to merge with sketches of other files
+        public KllSketch sketch() {
+            return sketch.copy();
+        }
+    }
+
+    // Passes only the rows of one year on to another aggregator, as runs of consecutive
+    // matching rows, so the wrapped aggregator still sees ranges
+    public static class YearFilter implements SalesAggregator {
+        private final int year;
+        private final SalesAggregator target;
+
+        public YearFilter(int year, SalesAggregator target) {
+            this.year = year;
+            this.target = target;
+        }
+
+        @Override
+        public Set<Column> columns() {
+            Set<Column> columns = EnumSet.of(Column.YEAR_ID);
+            columns.addAll(target.columns());
+            return columns;
+        }
+
+        @Override
+        public void accept(SalesColumns batch, int from, int to) {
+            int[] years = batch.yearId;
+            int i = from;
+            while (i < to) {
+                while (i < to && years[i] != year) {
+                    i++;
+                }
+                int start = i;
+                while (i < to && years[i] == year) {
+                    i++;
+                }
+                if (i > start) {
+                    target.accept(batch, start, i);
+                }
+            }
+        }
+
+        @Override
+        public YearFilter emptyCopy() {
+            return new YearFilter(year, target.emptyCopy());
+        }
+
+        @Override
+        public void merge(SalesAggregator other) {
+            target.merge(((YearFilter) other).target);
+        }
+    }
+}
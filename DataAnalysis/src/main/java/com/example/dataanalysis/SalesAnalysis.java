@@ -1,251 +1,731 @@
 package com.example.dataanalysis;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Comparator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+import com.example.dataanalysis.GroupBy.Dimension;
+import com.example.dataanalysis.GroupBy.Metric;
+import com.example.dataanalysis.SalesAggregators.ApproxDistinct;
+import com.example.dataanalysis.SalesAggregators.ApproxQuantiles;
+import com.example.dataanalysis.SalesAggregators.CountBy;
+import com.example.dataanalysis.SalesAggregators.HighValueOrders;
+import com.example.dataanalysis.SalesAggregators.QuantityBy;
+import com.example.dataanalysis.SalesAggregators.RevenueBy;
+import com.example.dataanalysis.SalesAggregators.RevenueByYear;
+import com.example.dataanalysis.SalesAggregators.Totals;
+import com.example.dataanalysis.SalesAggregators.YearFilter;
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+import com.example.dataanalysis.SalesMetrics.Timer;
+import com.example.dataanalysis.SalesPartitions.Partition;
+import com.example.dataanalysis.SalesTimeIndex.Bucket;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
 
 // Main class for analyzing sales data
 public class SalesAnalysis {
 
-        private List<SalesRecord> salesData;
+        // Column-oriented, dictionary-encoded rows
+        private volatile SalesColumns columns;
 
-        // Regular constructor that loads from file
+        // Results of earlier queries; cleared whenever the rows change
+        private QueryCache cache = new QueryCache();
+
+        // Optional secondary indexes (see buildIndexes); null until built
+        private volatile SalesIndexes indexes;
+
+        // Optional rollup cube behind groupBy (see buildCube); null until built
+        private volatile SalesCube cube;
+
+        // Per-day prefix sums behind the date-window queries; built on first use, under the lock
+        private volatile SalesTimeIndex timeIndex;
+        private final Object timeIndexLock = new Object();
+
+        // Partition row ranges and statistics when loaded from a partitioned directory; null otherwise
+        private volatile SalesPartitions partitions;
+
+        // Sequential unless parallel execution is switched on; results are identical either way
+        private QueryExecutor executor = QueryExecutor.sequential();
+
+        // Regular constructor that loads from file, or from a directory of partitioned files
+        // (see PartitionedCsvLoader)
         public SalesAnalysis(String csvPath) throws IOException {
-                this.salesData = loadSalesData(csvPath);
+                this(csvPath, false);
+        }
+
+        // exactMoney: sum prices and sales in long cents, so totals do not depend on row order
+        public SalesAnalysis(String csvPath, boolean exactMoney) throws IOException {
+                if (Files.isDirectory(Paths.get(csvPath))) {
+                        this.partitions = new PartitionedCsvLoader(exactMoney).load(Paths.get(csvPath));
+                        this.columns = partitions.columns();
+                } else {
+                        this.columns = loadSalesData(csvPath, exactMoney);
+                }
+        }
+
+        // Load only the rows that pass filter, decoding only the projected columns, e.g.
+        // (EnumSet.of(Column.SALES, Column.TERRITORY), RowFilter.yearIn(2004)); other columns read as 0 or ""
+        public SalesAnalysis(String csvPath, Set<Column> projection, RowFilter filter) throws IOException {
+                Path csv = Paths.get(csvPath);
+                this.columns = ParallelGzipInputStream.isGzip(csv)
+                                ? new PipelinedCsvLoader().load(csv, projection, filter)
+                                : new ChunkedCsvLoader().load(csv, projection, filter);
         }
 
         // Constructor for testing with pre-loaded data
         public SalesAnalysis(List<SalesRecord> salesData) {
-                this.salesData = salesData;
+                this.columns = SalesColumns.of(salesData);
+        }
+
+        public SalesAnalysis(SalesColumns columns) {
+                this.columns = columns;
+        }
+
+        // Partitions from PartitionedCsvLoader, e.g. only March 2004:
+        // new SalesAnalysis(new PartitionedCsvLoader().load(root, PartitionFilter.month(2004, 3)))
+        public SalesAnalysis(SalesPartitions partitions) {
+                this.partitions = partitions;
+                this.columns = partitions.columns();
+        }
+
+        // Load through a binary snapshot next to the CSV (csvPath + ".snap"): read straight into the
+        // column arrays when it matches the CSV's size and modification time, otherwise parse the
+        // CSV and (re)write it
+        public static SalesAnalysis open(String csvPath) throws IOException {
+                return open(csvPath, false);
+        }
+
+        // As open(csvPath), reusing the snapshot only if it was taken with the same money mode
+        public static SalesAnalysis open(String csvPath, boolean exactMoney) throws IOException {
+                Path csv = Paths.get(csvPath);
+                if (Files.isDirectory(csv)) {
+                        // Snapshots are per file; partitioned directories are always read from CSV
+                        return new SalesAnalysis(csvPath, exactMoney);
+                }
+                Path snapshot = SalesSnapshot.defaultPath(csv);
+                if (SalesSnapshot.isCurrent(snapshot, csv)) {
+                        try {
+                                SalesColumns columns = SalesSnapshot.read(snapshot);
+                                if (columns.hasExactMoney() == exactMoney) {
+                                        return new SalesAnalysis(columns);
+                                }
+                        } catch (IOException e) {
+                                // Corrupt or unreadable snapshot: fall back to the CSV and replace it
+                        }
+                }
+                SalesAnalysis analysis = new SalesAnalysis(csvPath, exactMoney);
+                analysis.writeSnapshot(snapshot, csv);
+                return analysis;
+        }
+
+        // Like open(csvPath, exactMoney), but the rows stay off the heap in the mapped snapshot
+        // (see OffHeapSalesColumns), so heap use and GC pauses do not grow with the row count.
+        // A missing or stale snapshot is rebuilt from the CSV first. A partitioned directory has no
+        // snapshot: it is read from CSV and copied into direct buffers.
+        public static SalesAnalysis openOffHeap(String csvPath, boolean exactMoney) throws IOException {
+                Path csv = Paths.get(csvPath);
+                if (Files.isDirectory(csv)) {
+                        SalesPartitions partitions = new PartitionedCsvLoader(exactMoney).load(csv);
+                        return new SalesAnalysis(OffHeapSalesColumns.copyOf(partitions.columns()));
+                }
+                Path snapshot = SalesSnapshot.defaultPath(csv);
+                if (SalesSnapshot.isCurrent(snapshot, csv)) {
+                        try {
+                                OffHeapSalesColumns columns = SalesSnapshot.map(snapshot);
+                                if (columns.hasExactMoney() == exactMoney) {
+                                        return new SalesAnalysis(columns);
+                                }
+                        } catch (IOException e) {
+                                // Corrupt or unreadable snapshot: fall back to the CSV and replace it
+                        }
+                }
+                SalesSnapshot.write(loadSalesData(csvPath, exactMoney), snapshot, csv);
+                return new SalesAnalysis(SalesSnapshot.map(snapshot));
+        }
+
+        // Save the loaded rows as a binary snapshot; sourceCsv (may be null) is recorded for invalidation
+        public void writeSnapshot(Path snapshot, Path sourceCsv) throws IOException {
+                SalesSnapshot.write(columns, snapshot, sourceCsv);
         }
 
-        // Read CSV and convert to list of records
-        private List<SalesRecord> loadSalesData(String csvPath) throws IOException {
-                try (Stream<String> lines = Files.lines(Paths.get(csvPath),
-                                java.nio.charset.StandardCharsets.ISO_8859_1)) {
-                        return lines.skip(1) // Skip header
-                                        .map(SalesRecord::fromCsvLine)
-                                        .collect(Collectors.toList());
+        // Replace the rows being analyzed; cached results for the old rows are dropped
+        public void setData(SalesColumns columns) {
+                this.columns = columns;
+                if (indexes != null) {
+                        indexes = columns.isOffHeap() ? null : new SalesIndexes(columns); // see buildIndexes
                 }
+                SalesCube oldCube = cube;
+                if (oldCube != null) {
+                        cube = new SalesCube(columns, executor, oldCube.getMetric(),
+                                        oldCube.getDimensions().toArray(new Dimension[0]));
+                }
+                cache.invalidate();
+        }
+
+        // Build the sales-order and lookup indexes for the loaded rows (O(n log n), about 20
+        // bytes per row). Afterwards getHighValueOrders and the getOrdersFor... / getOrderLines /
+        // getOrdersInSalesRange lookups use them instead of scanning; setData rebuilds them.
+        // Not available for off-heap rows: the indexes would put per-row arrays back on the heap.
+        public void buildIndexes() {
+                if (columns.isOffHeap()) {
+                        throw new UnsupportedOperationException("Indexes need on-heap columns");
+                }
+                indexes = new SalesIndexes(columns);
+        }
+
+        // Precompute a rollup cube of sales over these dimensions in one pass. Any groupBy over
+        // a subset of them is then answered from the cube's cells instead of the rows.
+        public void buildCube(Dimension... dimensions) {
+                buildCube(Metric.SALES, dimensions);
+        }
+
+        public void buildCube(Metric metric, Dimension... dimensions) {
+                cube = new SalesCube(columns, executor, metric, dimensions);
+        }
+
+        // Sales count/sum/avg/min/max per combination of the given dimensions,
+        // e.g. groupBy(Dimension.PRODUCT_LINE, Dimension.YEAR, Dimension.TERRITORY)
+        public GroupByResult groupBy(Dimension... dimensions) {
+                return groupBy(Metric.SALES, dimensions);
+        }
+
+        // Same for quantity or price each; uses the cube when it covers the dimensions
+        public GroupByResult groupBy(Metric metric, Dimension... dimensions) {
+                SalesCube current = cube;
+                if (current != null && current.columns() == columns && current.getMetric() == metric
+                                && current.covers(dimensions)) {
+                        return current.groupBy(dimensions);
+                }
+                return cached(List.of("groupBy", metric, List.of(dimensions)),
+                                () -> scan(new GroupBy(metric, dimensions)).result());
+        }
+
+        // Time index for the current rows, built on first use and after setData. It is a few
+        // dozen bytes per calendar day, so unlike buildIndexes it needs no opt-in. Concurrent
+        // first queries wait for one build instead of each scanning the rows.
+        private SalesTimeIndex timeIndex() {
+                SalesColumns data = columns;
+                SalesTimeIndex current = timeIndex;
+                if (current != null && current.columns() == data) {
+                        return current;
+                }
+                synchronized (timeIndexLock) {
+                        current = timeIndex;
+                        if (current == null || current.columns() != data) {
+                                current = SalesTimeIndex.build(data, executor);
+                                timeIndex = current;
+                        }
+                        return current;
+                }
+        }
+
+        // Partitions of the current rows, or null (not partitioned, or replaced by setData)
+        private SalesPartitions partitions() {
+                SalesPartitions current = partitions;
+                return current != null && current.columns() == columns ? current : null;
+        }
+
+        // The files the rows were loaded from, with their statistics; empty unless partitioned
+        public List<Partition> getPartitions() {
+                SalesPartitions current = partitions();
+                return current != null ? current.getPartitions() : List.of();
+        }
+
+        // Indexes for the current rows, or null (not built, or setData is swapping them)
+        private SalesIndexes indexes() {
+                SalesIndexes current = indexes;
+                return current != null && current.columns() == columns ? current : null;
+        }
+
+        // Hit/miss counters and size of the result cache
+        public QueryCache getQueryCache() {
+                return cache;
+        }
+
+        // Use a differently sized cache, e.g. new QueryCache(0) to turn caching off
+        public void setQueryCache(QueryCache cache) {
+                this.cache = cache;
+        }
+
+        // Opt in to parallel queries, e.g. setQueryExecutor(QueryExecutor.parallel(8)); the caller
+        // keeps the executor and closes it when done
+        public void setQueryExecutor(QueryExecutor executor) {
+                this.executor = executor;
+        }
+
+        // Read CSV straight into columns (memory-mapped, parsed in parallel chunks)
+        // A .csv.gz cannot be memory-mapped and split, so it streams through the pipelined loader
+        private static SalesColumns loadSalesData(String csvPath, boolean exactMoney) throws IOException {
+                Path csv = Paths.get(csvPath);
+                if (ParallelGzipInputStream.isGzip(csv)) {
+                        return new PipelinedCsvLoader(exactMoney).load(csv);
+                }
+                return new ChunkedCsvLoader(exactMoney).load(csv);
         }
 
         // Get total revenue from all sales
         public double getTotalRevenue() {
-                return salesData.stream().mapToDouble(SalesRecord::getSales).sum();
+                return totals().getRevenue();
         }
 
         // Revenue grouped by product line
         public Map<String, Double> getRevenueByProductLine() {
-                return salesData.stream().collect(Collectors.groupingBy(SalesRecord::getProductLine,
-                                Collectors.summingDouble(SalesRecord::getSales)));
+                return cached(List.of("revenueByProductLine"),
+                                () -> unmodifiableMap(scan(new RevenueBy(TextColumn.PRODUCT_LINE)).result()));
         }
 
         // Revenue by territory
         public Map<String, Double> getRevenueByTerritory() {
-                return salesData.stream().collect(Collectors.groupingBy(SalesRecord::getTerritory,
-                                Collectors.summingDouble(SalesRecord::getSales)));
+                return cached(List.of("revenueByTerritory"),
+                                () -> unmodifiableMap(scan(new RevenueBy(TextColumn.TERRITORY)).result()));
         }
 
         // Revenue grouped by deal size (small/medium/large)
         public Map<String, Double> getRevenueByDealSize() {
-                return salesData.stream().collect(Collectors.groupingBy(SalesRecord::getDealSize,
-                                Collectors.summingDouble(SalesRecord::getSales)));
+                return cached(List.of("revenueByDealSize"),
+                                () -> unmodifiableMap(scan(new RevenueBy(TextColumn.DEAL_SIZE)).result()));
         }
 
         // Get top N customers sorted by revenue
         public List<Map.Entry<String, Double>> getTopCustomers(int n) {
-                return salesData.stream()
-                                .collect(Collectors.groupingBy(
-                                                SalesRecord::getCustomerName,
-                                                Collectors.summingDouble(SalesRecord::getSales)))
-                                .entrySet()
-                                .stream()
-                                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                                .limit(n)
-                                .collect(Collectors.toList());
+                return cached(List.of("topCustomers", n),
+                                () -> unmodifiableList(scan(new RevenueBy(TextColumn.CUSTOMER_NAME)).top(n)));
+        }
+
+        // Top N customers by revenue within one year; partitions without that year are skipped
+        public List<Map.Entry<String, Double>> getTopCustomers(int n, int year) {
+                return cached(List.of("topCustomers", n, year), () -> unmodifiableList(
+                                scanYear(new RevenueBy(TextColumn.CUSTOMER_NAME), year).top(n)));
         }
 
         // Top N countries by revenue
         public List<Map.Entry<String, Double>> getTopCountries(int n) {
-                return salesData.stream()
-                                .collect(Collectors.groupingBy(
-                                                SalesRecord::getCountry,
-                                                Collectors.summingDouble(SalesRecord::getSales)))
-                                .entrySet()
-                                .stream()
-                                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                                .limit(n)
-                                .collect(Collectors.toList());
+                return cached(List.of("topCountries", n),
+                                () -> unmodifiableList(scan(new RevenueBy(TextColumn.COUNTRY)).top(n)));
         }
 
         // Average value per order
         public double getAverageOrderValue() {
-                return salesData.stream().mapToDouble(SalesRecord::getSales).average().orElse(0.0);
+                return totals().getAverage();
         }
 
         // Just count how many transactions we have
         public long getTotalTransactions() {
-                return salesData.size();
+                return columns.size;
         }
 
         // Total quantity sold for each product line
         public Map<String, Integer> getQuantityByProductLine() {
-                return salesData.stream().collect(Collectors.groupingBy(SalesRecord::getProductLine,
-                                Collectors.summingInt(SalesRecord::getQuantityOrdered)));
+                return cached(List.of("quantityByProductLine"),
+                                () -> unmodifiableMap(scan(new QuantityBy(TextColumn.PRODUCT_LINE)).result()));
         }
 
-        // Revenue broken down by year
+        // Revenue broken down by year; from the partition statistics when partitioned
         public Map<Integer, Double> getRevenueByYear() {
-                return salesData.stream().collect(Collectors.groupingBy(SalesRecord::getYearId,
-                                Collectors.summingDouble(SalesRecord::getSales)));
+                SalesPartitions current = partitions();
+                if (current != null) {
+                        return cached(List.of("revenueByYear"), current::getRevenueByYear);
+                }
+                return cached(List.of("revenueByYear"), () -> unmodifiableMap(scan(new RevenueByYear()).result()));
+        }
+
+        // Date-window totals, from..to with both days included. Each is answered from the
+        // time index in O(1), so they are not cached.
+        public double getRevenueBetween(LocalDate from, LocalDate to) {
+                return traced("revenueBetween", () -> timeIndex().revenue(from, to));
+        }
+
+        public long getQuantityBetween(LocalDate from, LocalDate to) {
+                return traced("quantityBetween", () -> timeIndex().quantity(from, to));
+        }
+
+        // Order lines (rows, as getTotalTransactions counts them) dated from..to
+        public long getOrderCountBetween(LocalDate from, LocalDate to) {
+                return traced("orderCountBetween", () -> timeIndex().orderLines(from, to));
+        }
+
+        // Revenue per day, week (from Monday) or month of from..to, keyed by bucket start, empty
+        // buckets included, e.g. getRevenueByPeriod(Bucket.MONTH, 2004-01-01, 2004-12-31)
+        public Map<LocalDate, Double> getRevenueByPeriod(Bucket bucket, LocalDate from, LocalDate to) {
+                return traced("revenueByPeriod", () -> unmodifiableMap(timeIndex().revenueBy(bucket, from, to)));
+        }
+
+        // For every day of from..to, the revenue of the 'days' days ending on it
+        public Map<LocalDate, Double> getRollingRevenue(LocalDate from, LocalDate to, int days) {
+                return traced("rollingRevenue", () -> unmodifiableMap(timeIndex().rollingRevenue(from, to, days)));
         }
 
         // Filter orders above a certain value
         public List<SalesRecord> getHighValueOrders(double threshold) {
-                return salesData.stream().filter(record -> record.getSales() > threshold)
-                                .sorted(Comparator.comparingDouble(SalesRecord::getSales).reversed())
-                                .collect(Collectors.toList());
+                return cached(List.of("highValueOrders", threshold), () -> {
+                        SalesIndexes index = indexes();
+                        if (index != null) {
+                                int count = index.countSalesAbove(threshold);
+                                return records(index.columns(), Arrays.copyOf(index.bySales(), count));
+                        }
+                        return unmodifiableList(scan(new HighValueOrders(threshold, Integer.MAX_VALUE)).result());
+                });
+        }
+
+        // One page of orders above a threshold, highest first, plus the total match count.
+        // Only offset + limit rows are kept while scanning (O(n log k)).
+        public HighValueOrderPage getHighValueOrders(double threshold, int offset, int limit) {
+                if (offset < 0 || limit < 0) {
+                        throw new IllegalArgumentException("offset and limit must not be negative");
+                }
+                return cached(List.of("highValueOrderPage", threshold, offset, limit), () -> {
+                        SalesIndexes index = indexes();
+                        if (index != null) {
+                                int count = index.countSalesAbove(threshold);
+                                int from = Math.min(offset, count);
+                                int to = (int) Math.min(count, (long) from + limit);
+                                return new HighValueOrderPage(
+                                                records(index.columns(), Arrays.copyOfRange(index.bySales(), from, to)),
+                                                count, offset);
+                        }
+                        int keep = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+                        HighValueOrders top = scan(new HighValueOrders(threshold, keep));
+                        List<SalesRecord> sorted = top.result();
+                        List<SalesRecord> page = sorted.subList(Math.min(offset, sorted.size()), sorted.size());
+                        return new HighValueOrderPage(unmodifiableList(page), top.getMatchCount(), offset);
+                });
+        }
+
+        // Every line of every order placed by one customer, in file order
+        public List<SalesRecord> getOrdersForCustomer(String customerName) {
+                return traced("ordersForCustomer", () -> rowsWhere(TextColumn.CUSTOMER_NAME, customerName));
+        }
+
+        // Every row shipped to one country, in file order
+        public List<SalesRecord> getOrdersForCountry(String country) {
+                return traced("ordersForCountry", () -> rowsWhere(TextColumn.COUNTRY, country));
+        }
+
+        // Every row for one product line, in file order
+        public List<SalesRecord> getOrdersForProductLine(String productLine) {
+                return traced("ordersForProductLine", () -> rowsWhere(TextColumn.PRODUCT_LINE, productLine));
+        }
+
+        // The line items of one order number, in file order
+        public List<SalesRecord> getOrderLines(int orderNumber) {
+                return traced("orderLines", () -> orderLines(orderNumber));
+        }
+
+        private List<SalesRecord> orderLines(int orderNumber) {
+                SalesIndexes index = indexes();
+                if (index != null) {
+                        return records(index.columns(), index.rowsForOrder(orderNumber));
+                }
+                SalesColumns data = columns;
+                return records(data, matchingRows(data, row -> data.orderNumberAt(row) == orderNumber));
+        }
+
+        // Rows with min <= sales <= max, highest sales first (ties in file order)
+        public List<SalesRecord> getOrdersInSalesRange(double min, double max) {
+                return traced("ordersInSalesRange", () -> ordersInSalesRange(min, max));
+        }
+
+        private List<SalesRecord> ordersInSalesRange(double min, double max) {
+                SalesIndexes index = indexes();
+                if (index != null) {
+                        return records(index.columns(), index.rowsWithSalesBetween(min, max));
+                }
+                SalesColumns data = columns;
+                int[] rows = matchingRows(data, row -> data.salesAt(row) >= min && data.salesAt(row) <= max);
+                SalesIndexes.sort(rows, (a, b) -> Double.compare(data.salesAt(b), data.salesAt(a)));
+                return records(data, rows);
+        }
+
+        private List<SalesRecord> rowsWhere(TextColumn column, String value) {
+                SalesIndexes index = indexes();
+                if (index != null) {
+                        return records(index.columns(), index.rowsWhere(column, value));
+                }
+                SalesColumns data = columns;
+                int code = data.dictionary(column).find(value);
+                if (code < 0) {
+                        return List.of();
+                }
+                return records(data, matchingRows(data, row -> data.codeAt(column, row) == code));
+        }
+
+        // Full scan fallback when no index has been built
+        private static int[] matchingRows(SalesColumns data, IntPredicate test) {
+                int[] rows = new int[16];
+                int count = 0;
+                for (int row = 0; row < data.size; row++) {
+                        if (test.test(row)) {
+                                if (count == rows.length) {
+                                        rows = Arrays.copyOf(rows, count * 2);
+                                }
+                                rows[count++] = row;
+                        }
+                }
+                return Arrays.copyOf(rows, count);
+        }
+
+        private static List<SalesRecord> records(SalesColumns data, int[] rows) {
+                List<SalesRecord> result = new ArrayList<>(rows.length);
+                for (int row : rows) {
+                        result.add(data.record(row));
+                }
+                return unmodifiableList(result);
         }
 
         // Count unique customers
         public long getDistinctCustomerCount() {
-                return salesData.stream().map(SalesRecord::getCustomerName).distinct().count();
+                return cached(List.of("distinctCustomers"), () -> scan(new CountBy(TextColumn.CUSTOMER_NAME)).distinct());
+        }
+
+        // Approximate number of distinct values of a text column (customers, product codes,
+        // cities, ...) from a HyperLogLog sketch: fixed memory, about 0.8% standard error
+        public long getApproxDistinctCount(TextColumn column) {
+                return getApproxDistinctCount(column, HyperLogLog.DEFAULT_PRECISION);
+        }
+
+        // Precision p uses 2^p bytes and gives about 1.04 / sqrt(2^p) relative error
+        public long getApproxDistinctCount(TextColumn column, int precision) {
+                return distinctSketch(column, precision).estimate();
+        }
+
+        // The sketch itself (a copy), to merge with sketches of other files or partitions
+        public HyperLogLog getDistinctSketch(TextColumn column, int precision) {
+                return distinctSketch(column, precision).sketch();
+        }
+
+        // Approximate quantiles of sales, quantity or price each, e.g.
+        // getApproxQuantiles(Metric.SALES, 0.5, 0.9, 0.99) for p50/p90/p99 (KLL sketch)
+        public double[] getApproxQuantiles(Metric metric, double... quantiles) {
+                ApproxQuantiles sketch = quantileSketch(metric);
+                double[] result = new double[quantiles.length];
+                for (int i = 0; i < quantiles.length; i++) {
+                        result[i] = sketch.quantile(quantiles[i]);
+                }
+                return result;
+        }
+
+        // The sketch itself (a copy), to merge with sketches of other files or partitions
+        public KllSketch getQuantileSketch(Metric metric) {
+                return quantileSketch(metric).sketch();
+        }
+
+        private ApproxDistinct distinctSketch(TextColumn column, int precision) {
+                return cached(List.of("approxDistinct", column, precision),
+                                () -> scan(new ApproxDistinct(column, precision)));
+        }
+
+        private ApproxQuantiles quantileSketch(Metric metric) {
+                return cached(List.of("approxQuantiles", metric),
+                                () -> scan(new ApproxQuantiles(metric, KllSketch.DEFAULT_K)));
         }
 
         // How many orders for each status (shipped, cancelled, etc)
         public Map<String, Long> getOrderStatusDistribution() {
-                return salesData.stream().collect(Collectors.groupingBy(SalesRecord::getStatus, Collectors.counting()));
+                return cached(List.of("orderStatusDistribution"),
+                                () -> unmodifiableMap(scan(new CountBy(TextColumn.STATUS)).result()));
+        }
+
+        // Revenue, count and average come out of one scan, shared by the methods that need them
+        private Totals totals() {
+                SalesPartitions current = partitions();
+                return cached(List.of("totals"), () -> current != null ? current.totals() : scan(new Totals()));
+        }
+
+        // Result of an earlier identical query, or compute and remember it.
+        // Keys are the query name followed by its parameters; metrics are kept per name.
+        private <T> T cached(List<Object> key, Supplier<T> query) {
+                return traced((String) key.get(0), () -> cache.get(key, query));
+        }
+
+        // Run a query under SalesMetrics (latency, rows and bytes scanned, JFR event); when
+        // metrics and events are off this is one flag check
+        private static <T> T traced(String name, Supplier<T> query) {
+                Timer timer = SalesMetrics.global().startQuery(name);
+                try {
+                        T result = query.get();
+                        timer.succeeded();
+                        return result;
+                } finally {
+                        timer.end();
+                }
         }
 
+        // Run one aggregator over every row
+        private <A extends SalesAggregator> A scan(A aggregator) {
+                return executor.run(columns, aggregator);
+        }
+
+        // Run one aggregator over the rows of one year. Partitioned rows skip every partition
+        // without that year and read single-year partitions whole; other rows are filtered.
+        private <A extends SalesAggregator> A scanYear(A aggregator, int year) {
+                SalesPartitions current = partitions();
+                if (current == null) {
+                        executor.run(columns, new YearFilter(year, aggregator));
+                        return aggregator;
+                }
+                for (Partition partition : current.getPartitions()) {
+                        if (!partition.mayContainYear(year)) {
+                                continue;
+                        }
+                        SalesAggregator part = aggregator.emptyCopy();
+                        int from = partition.getFirstRow();
+                        int to = from + partition.getRowCount();
+                        executor.run(current.columns(), from, to,
+                                        partition.containsOnlyYear(year) ? part : new YearFilter(year, part));
+                        aggregator.merge(part);
+                }
+                return aggregator;
+        }
+
+        // All report sections are computed in a single fused scan over the columns
         public void printAnalysis() {
-                System.out.println("╔═══════════════════════════════════════════════════════════════════════════╗");
-                System.out.println("║              Sales Data Analysis - Java Streams Demonstration             ║");
-                System.out.println("╚═══════════════════════════════════════════════════════════════════════════╝");
-                System.out.println();
-
-                printBasicStats();
-                printRevenueByProductLine();
-                printRevenueByTerritory();
-                printRevenueByDealSize();
-                printTopCustomers(10);
-                printTopCountries(10);
-                printRevenueByYear();
-                printQuantityByProductLine();
-                printOrderStatusDistribution();
-                printHighValueOrders(10000.0, 5);
-
-                System.out.println("╔═══════════════════════════════════════════════════════════════════════════╗");
-                System.out.println("║                         Analysis Complete                                 ║");
-                System.out.println("╚═══════════════════════════════════════════════════════════════════════════╝");
-        }
-
-        private void printBasicStats() {
-                System.out.println("1. TOTAL REVENUE");
-                System.out.println("   " + "─".repeat(70));
-                System.out.printf("   Total Revenue: $%,.2f\n", getTotalRevenue());
-                System.out.printf("   Total Transactions: %,d\n", getTotalTransactions());
-                System.out.printf("   Average Order Value: $%,.2f\n", getAverageOrderValue());
-                System.out.printf("   Distinct Customers: %,d\n", getDistinctCustomerCount());
-                System.out.println();
-        }
-
-        private void printRevenueByProductLine() {
-                System.out.println("2. REVENUE BY PRODUCT LINE");
-                System.out.println("   " + "─".repeat(70));
-                getRevenueByProductLine().entrySet().stream()
-                                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                                .forEach(e -> System.out.printf("   %-30s $%,12.2f\n", e.getKey() + ":", e.getValue()));
-                System.out.println();
-        }
-
-        private void printRevenueByTerritory() {
-                System.out.println("3. REVENUE BY TERRITORY");
-                System.out.println("   " + "─".repeat(70));
-                getRevenueByTerritory().entrySet().stream()
-                                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                                .forEach(e -> System.out.printf("   %-30s $%,12.2f\n", e.getKey() + ":", e.getValue()));
-                System.out.println();
-        }
-
-        private void printRevenueByDealSize() {
-                System.out.println("4. REVENUE BY DEAL SIZE");
-                System.out.println("   " + "─".repeat(70));
-                getRevenueByDealSize().entrySet().stream()
-                                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                                .forEach(e -> System.out.printf("   %-30s $%,12.2f\n", e.getKey() + ":", e.getValue()));
-                System.out.println();
-        }
-
-        private void printTopCustomers(int n) {
-                System.out.println("5. TOP " + n + " CUSTOMERS BY REVENUE");
-                System.out.println("   " + "─".repeat(70));
-                getTopCustomers(n).forEach(e -> System.out.printf("   %-50s $%,10.2f\n", e.getKey(), e.getValue()));
-                System.out.println();
-        }
-
-        private void printTopCountries(int n) {
-                System.out.println("6. TOP " + n + " COUNTRIES BY REVENUE");
-                System.out.println("   " + "─".repeat(70));
-                getTopCountries(n)
-                                .forEach(e -> System.out.printf("   %-30s $%,12.2f\n", e.getKey() + ":", e.getValue()));
-                System.out.println();
-        }
-
-        private void printRevenueByYear() {
-                System.out.println("7. REVENUE BY YEAR");
-                System.out.println("   " + "─".repeat(70));
-                getRevenueByYear().entrySet().stream().sorted(Map.Entry.comparingByKey())
-                                .forEach(e -> System.out.printf("   %d: $%,12.2f\n", e.getKey(), e.getValue()));
-                System.out.println();
-        }
-
-        private void printQuantityByProductLine() {
-                System.out.println("8. QUANTITY SOLD BY PRODUCT LINE");
-                System.out.println("   " + "─".repeat(70));
-                getQuantityByProductLine().entrySet().stream()
-                                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                                .forEach(e -> System.out.printf("   %-30s %,8d units\n", e.getKey() + ":",
-                                                e.getValue()));
-                System.out.println();
-        }
-
-        private void printOrderStatusDistribution() {
-                System.out.println("9. ORDER STATUS DISTRIBUTION");
-                System.out.println("   " + "─".repeat(70));
-                getOrderStatusDistribution().entrySet().stream()
-                                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()).forEach(e -> System.out
-                                                .printf("   %-30s %,8d orders\n", e.getKey() + ":", e.getValue()));
-                System.out.println();
-        }
-
-        private void printHighValueOrders(double threshold, int limit) {
-                System.out.println(
-                                "10. HIGH VALUE ORDERS (> $" + String.format("%,.0f", threshold) + ") - Top " + limit);
-                System.out.println("    " + "─".repeat(70));
-                List<SalesRecord> orders = getHighValueOrders(threshold);
-                orders.stream()
-                                .limit(limit)
-                                .forEach(record -> System.out.printf(
-                                                "    Order #%-8d | %-25s | %-20s | $%,10.2f\n",
-                                                record.getOrderNumber(),
-                                                record.getProductLine(),
-                                                record.getCustomerName().substring(0,
-                                                                Math.min(20, record.getCustomerName().length())),
-                                                record.getSales()));
-                System.out.printf("    Total high-value orders: %d\n", orders.size());
-                System.out.println();
+                printAnalysis(System.out);
+        }
+
+        public void printAnalysis(PrintStream out) {
+                cached(List.of("report"), () -> scan(new SalesReport())).print(out);
+        }
+
+        // Poll until interrupted, printing the report whenever new rows were ingested
+        private static void follow(Path source, int seconds) throws IOException {
+                try (LiveSalesAnalysis live = new LiveSalesAnalysis(source)) {
+                        while (!Thread.currentThread().isInterrupted()) {
+                                if (live.poll() > 0) {
+                                        live.snapshot().printAnalysis(System.out);
+                                }
+                                try {
+                                        Thread.sleep(seconds * 1000L);
+                                } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                }
+                        }
+                }
+        }
+
+        // The load of main and serve: from csvPath.snap, through the read/parse pipeline, or chunked.
+        // executor (null: sequential) is shared, not owned, by the result.
+        private static SalesAnalysis load(String csvPath, boolean exact, boolean snapshot, boolean offHeap,
+                        boolean pipelined, QueryExecutor executor) throws IOException {
+                SalesAnalysis analysis;
+                if (offHeap) {
+                        analysis = openOffHeap(csvPath, exact);
+                } else if (snapshot) {
+                        analysis = open(csvPath, exact);
+                } else if (pipelined) {
+                        PipelinedCsvLoader loader = new PipelinedCsvLoader(exact);
+                        analysis = new SalesAnalysis(csvPath.equals("-") ? loader.load(System.in)
+                                        : loader.load(Paths.get(csvPath)));
+                        if (SalesMetrics.global().isEnabled()) {
+                                System.err.println(loader.getLastStats());
+                        }
+                } else {
+                        analysis = new SalesAnalysis(csvPath, exact);
+                }
+                if (executor != null) {
+                        analysis.setQueryExecutor(executor);
+                }
+                return analysis;
+        }
+
+        // Load as main does, then keep serving; every reload repeats the same load, and all of them
+        // share one query pool for the life of the server
+        private static void serve(String csvPath, boolean exact, boolean snapshot, boolean offHeap,
+                        boolean pipelined, int threads, boolean metrics, int port) throws IOException {
+                SalesMetrics.global().setEnabled(metrics);
+                QueryExecutor executor = threads > 0 ? QueryExecutor.parallel(threads) : null;
+                SalesServer server = new SalesServer(() -> load(csvPath, exact, snapshot, offHeap, pipelined, executor),
+                                port, Runtime.getRuntime().availableProcessors());
+                server.start();
+                System.out.println("Serving " + server.getAnalysis().getTotalTransactions() + " rows of " + csvPath
+                                + " on http://127.0.0.1:" + server.getPort() + "/");
         }
 
+        // Usage: SalesAnalysis [--threads N] [--snapshot] [csvPath|dir]  load the file (or every
+        //                                         *.csv of a partitioned directory), then report
+        //                                         (--snapshot: reuse or create csvPath.snap;
+        //                                         --off-heap: also keep the rows in it, off the heap)
+        //        SalesAnalysis --stream [csvPath|-]       one constant-memory pass (- reads stdin)
+        //        (csvPath may be gzipped in every form but --follow; bgzip files inflate in parallel)
+        //        --exact (with either of the above)       sum money in exact long cents
+        //        --metrics (with the first form)          print load/query metrics to stderr afterwards
+        //        --pipelined (with the first form)        overlap reading csvPath (- reads stdin) with
+        //                                         parsing, instead of memory-mapping it
+        //        SalesAnalysis --serve PORT [...] [csvPath|dir]  load once (with any of the first form's
+        //                                         options), then answer queries over HTTP (see SalesServer)
+        //        SalesAnalysis --follow SECONDS [csvPath|dir]  tail a growing file (or directory of
+        //                                         rolling files), re-printing the report as rows arrive
         public static void main(String[] args) {
                 try {
+                        boolean streaming = false;
+                        boolean snapshot = false;
+                        boolean exact = false;
+                        boolean offHeap = false;
+                        boolean metrics = false;
+                        boolean pipelined = false;
+                        int threads = 0;
+                        int followSeconds = 0;
+                        int servePort = -1;
                         String csvPath = "src/main/resources/sales.csv";
-                        SalesAnalysis analysis = new SalesAnalysis(csvPath);
-                        analysis.printAnalysis();
+                        for (int i = 0; i < args.length; i++) {
+                                if (args[i].equals("--stream")) {
+                                        streaming = true;
+                                } else if (args[i].equals("--snapshot")) {
+                                        snapshot = true;
+                                } else if (args[i].equals("--exact")) {
+                                        exact = true;
+                                } else if (args[i].equals("--off-heap")) {
+                                        offHeap = true;
+                                } else if (args[i].equals("--metrics")) {
+                                        metrics = true;
+                                } else if (args[i].equals("--pipelined")) {
+                                        pipelined = true;
+                                } else if (args[i].equals("--follow") && i + 1 < args.length) {
+                                        followSeconds = Integer.parseInt(args[++i]);
+                                } else if (args[i].equals("--serve") && i + 1 < args.length) {
+                                        servePort = Integer.parseInt(args[++i]);
+                                } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                                        threads = Integer.parseInt(args[++i]);
+                                } else {
+                                        csvPath = args[i];
+                                }
+                        }
+                        if (followSeconds > 0) {
+                                follow(Paths.get(csvPath), followSeconds);
+                        } else if (streaming && csvPath.equals("-")) {
+                                StreamingSalesAnalysis.printAnalysis(System.in, exact);
+                        } else if (streaming) {
+                                Path csv = Paths.get(csvPath);
+                                try (InputStream in = ParallelGzipInputStream.isGzip(csv)
+                                                ? ParallelGzipInputStream.open(csv) : Files.newInputStream(csv)) {
+                                        StreamingSalesAnalysis.printAnalysis(in, exact);
+                                }
+                        } else if (servePort >= 0) {
+                                serve(csvPath, exact, snapshot, offHeap, pipelined, threads, metrics, servePort);
+                        } else {
+                                if (metrics) {
+                                        SalesMetrics.global().setEnabled(true);
+                                }
+                                try (QueryExecutor executor = threads > 0 ? QueryExecutor.parallel(threads)
+                                                : QueryExecutor.sequential()) {
+                                        load(csvPath, exact, snapshot, offHeap, pipelined, executor).printAnalysis();
+                                }
+                                if (metrics) {
+                                        System.err.print(SalesMetrics.global().toText());
+                                }
+                        }
                 } catch (IOException e) {
                         System.err.println("Error reading CSV file: " + e.getMessage());
                         e.printStackTrace();
@@ -0,0 +1,456 @@
+package com.example.dataanalysis;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// Column-oriented, dictionary-encoded storage for sales rows.
+// Numbers and dates live in primitive arrays; text columns are stored as int
+// codes into a per-column StringDictionary. Row i is the i-th entry of every array.
+// With exact money, priceEach and sales are also kept as long cents parsed from the
+// text, and the money aggregators sum those instead of the doubles.
+// A builder can be given a projection: columns outside it are not decoded and read as
+// 0 (numbers, dates as 1970-01-01) or "" (text).
+public class SalesColumns {
+
+    // Every stored column, for projections
+    public enum Column {
+        ORDER_NUMBER, QUANTITY_ORDERED, PRICE_EACH, SALES, ORDER_DATE, QTR_ID, MONTH_ID, YEAR_ID,
+        STATUS(TextColumn.STATUS),
+        PRODUCT_LINE(TextColumn.PRODUCT_LINE),
+        PRODUCT_CODE(TextColumn.PRODUCT_CODE),
+        CUSTOMER_NAME(TextColumn.CUSTOMER_NAME),
+        CITY(TextColumn.CITY),
+        COUNTRY(TextColumn.COUNTRY),
+        TERRITORY(TextColumn.TERRITORY),
+        DEAL_SIZE(TextColumn.DEAL_SIZE);
+
+        final TextColumn text; // null for numbers and dates
+
+        Column() {
+            this(null);
+        }
+
+        Column(TextColumn text) {
+            this.text = text;
+        }
+
+        // The column holding a text column's codes
+        static Column of(TextColumn text) {
+            for (Column column : values()) {
+                if (column.text == text) {
+                    return column;
+                }
+            }
+            throw new IllegalArgumentException(String.valueOf(text));
+        }
+    }
+
+    // Text columns that are dictionary-encoded
+    public enum TextColumn {
+        STATUS(SalesRecord.COL_STATUS),
+        PRODUCT_LINE(SalesRecord.COL_PRODUCT_LINE),
+        PRODUCT_CODE(SalesRecord.COL_PRODUCT_CODE),
+        CUSTOMER_NAME(SalesRecord.COL_CUSTOMER_NAME),
+        CITY(SalesRecord.COL_CITY),
+        COUNTRY(SalesRecord.COL_COUNTRY),
+        TERRITORY(SalesRecord.COL_TERRITORY),
+        DEAL_SIZE(SalesRecord.COL_DEAL_SIZE);
+
+        final int csvColumn;
+
+        TextColumn(int csvColumn) {
+            this.csvColumn = csvColumn;
+        }
+    }
+
+    private static final TextColumn[] TEXT_COLUMNS = TextColumn.values();
+    private static final Column[] COLUMNS = Column.values();
+
+    final int size;
+    final int[] orderNumber;
+    final int[] quantityOrdered;
+    final double[] priceEach;
+    final double[] sales;
+    final int[] orderEpochDay;
+    final int[] qtrId;
+    final int[] monthId;
+    final int[] yearId;
+    final int[][] codes; // indexed by TextColumn.ordinal()
+    final StringDictionary[] dictionaries;
+    final long[] priceEachCents; // null unless exact money
+    final long[] salesCents;     // null unless exact money
+
+    SalesColumns(int size, int[] orderNumber, int[] quantityOrdered, double[] priceEach, double[] sales,
+            int[] orderEpochDay, int[] qtrId, int[] monthId, int[] yearId,
+            int[][] codes, StringDictionary[] dictionaries) {
+        this(size, orderNumber, quantityOrdered, priceEach, sales, orderEpochDay, qtrId, monthId, yearId, codes,
+                dictionaries, null, null);
+    }
+
+    SalesColumns(int size, int[] orderNumber, int[] quantityOrdered, double[] priceEach, double[] sales,
+            int[] orderEpochDay, int[] qtrId, int[] monthId, int[] yearId,
+            int[][] codes, StringDictionary[] dictionaries, long[] priceEachCents, long[] salesCents) {
+        this.size = size;
+        this.orderNumber = orderNumber;
+        this.quantityOrdered = quantityOrdered;
+        this.priceEach = priceEach;
+        this.sales = sales;
+        this.orderEpochDay = orderEpochDay;
+        this.qtrId = qtrId;
+        this.monthId = monthId;
+        this.yearId = yearId;
+        this.codes = codes;
+        this.dictionaries = dictionaries;
+        this.priceEachCents = priceEachCents;
+        this.salesCents = salesCents;
+    }
+
+    public static SalesColumns of(List<SalesRecord> records) {
+        Builder builder = new Builder(records.size());
+        records.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // True when money is held as exact cents (see Builder(int, boolean))
+    public boolean hasExactMoney() {
+        return salesCents != null;
+    }
+
+    int[] codes(TextColumn column) {
+        return codes[column.ordinal()];
+    }
+
+    public StringDictionary dictionary(TextColumn column) {
+        return dictionaries[column.ordinal()];
+    }
+
+    public String text(TextColumn column, int row) {
+        return dictionaries[column.ordinal()].get(codes[column.ordinal()][row]);
+    }
+
+    // False unless the rows are held outside the heap (OffHeapSalesColumns), in which case
+    // the arrays above are null and rows are read through scan() and the ...At accessors
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    // Fold rows [from, to) into aggregator
+    void scan(SalesAggregator aggregator, int from, int to) {
+        aggregator.accept(this, from, to);
+    }
+
+    // Bytes of column data one row of these columns occupies: 8 per double, 4 per int,
+    // date or dictionary code, plus 8 per money column kept as exact cents
+    static int bytesPerRow(Set<Column> columns, boolean exactMoney) {
+        int bytes = 0;
+        for (Column column : columns) {
+            boolean money = column == Column.PRICE_EACH || column == Column.SALES;
+            bytes += money ? (exactMoney ? 16 : 8) : 4;
+        }
+        return bytes;
+    }
+
+    int orderNumberAt(int row) {
+        return orderNumber[row];
+    }
+
+    double salesAt(int row) {
+        return sales[row];
+    }
+
+    int codeAt(TextColumn column, int row) {
+        return codes[column.ordinal()][row];
+    }
+
+    // Materialize one row as a SalesRecord
+    public SalesRecord record(int row) {
+        return new SalesRecord(orderNumber[row], quantityOrdered[row], priceEach[row], sales[row],
+                LocalDate.ofEpochDay(orderEpochDay[row]), text(TextColumn.STATUS, row),
+                qtrId[row], monthId[row], yearId[row],
+                text(TextColumn.PRODUCT_LINE, row), text(TextColumn.PRODUCT_CODE, row),
+                text(TextColumn.CUSTOMER_NAME, row), text(TextColumn.CITY, row),
+                text(TextColumn.COUNTRY, row), text(TextColumn.TERRITORY, row),
+                text(TextColumn.DEAL_SIZE, row));
+    }
+
+    // Concatenate parts in order, re-encoding each part's codes into shared dictionaries.
+    // No parts give an empty table.
+    public static SalesColumns concat(List<SalesColumns> parts) {
+        if (parts.isEmpty()) {
+            return new Builder(0).build();
+        }
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        int total = 0;
+        for (SalesColumns part : parts) {
+            total += part.size;
+        }
+        Builder builder = new Builder(total, parts.get(0).hasExactMoney());
+        for (SalesColumns part : parts) {
+            builder.addAll(part);
+        }
+        return builder.build();
+    }
+
+    // Append-only builder; add rows, then build() once (or view() and clear() to reuse it per batch)
+    public static class Builder {
+        private int size;
+        private int[] orderNumber;
+        private int[] quantityOrdered;
+        private double[] priceEach;
+        private double[] sales;
+        private int[] orderEpochDay;
+        private int[] qtrId;
+        private int[] monthId;
+        private int[] yearId;
+        private final int[][] codes = new int[TEXT_COLUMNS.length][];
+        private final StringDictionary[] dictionaries = new StringDictionary[TEXT_COLUMNS.length];
+        private long[] priceEachCents;
+        private long[] salesCents;
+        private final boolean[] decode = new boolean[Column.values().length]; // by Column.ordinal()
+        private final boolean decodeAll;
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int capacity) {
+            this(capacity, false);
+        }
+
+        // exactMoney: also keep priceEach and sales as long cents, parsed from the CSV text
+        public Builder(int capacity, boolean exactMoney) {
+            this(capacity, exactMoney, EnumSet.allOf(Column.class));
+        }
+
+        // projection: the columns add(CsvTokenizer) decodes; the rest stay 0 or ""
+        public Builder(int capacity, boolean exactMoney, Set<Column> projection) {
+            for (Column column : projection) {
+                decode[column.ordinal()] = true;
+            }
+            decodeAll = projection.size() == decode.length;
+            capacity = Math.max(16, capacity);
+            if (exactMoney) {
+                priceEachCents = new long[capacity];
+                salesCents = new long[capacity];
+            }
+            orderNumber = new int[capacity];
+            quantityOrdered = new int[capacity];
+            priceEach = new double[capacity];
+            sales = new double[capacity];
+            orderEpochDay = new int[capacity];
+            qtrId = new int[capacity];
+            monthId = new int[capacity];
+            yearId = new int[capacity];
+            for (int c = 0; c < codes.length; c++) {
+                codes[c] = new int[capacity];
+            }
+            newDictionaries();
+        }
+
+        private void newDictionaries() {
+            for (int c = 0; c < dictionaries.length; c++) {
+                dictionaries[c] = new StringDictionary();
+            }
+            for (Column column : Column.values()) {
+                if (column.text != null && !decode[column.ordinal()]) {
+                    dictionaries[column.text.ordinal()].encode(""); // code 0, which the zeroed codes point at
+                }
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= orderNumber.length) {
+                return;
+            }
+            int capacity = Math.max(needed, orderNumber.length + (orderNumber.length >> 1));
+            orderNumber = Arrays.copyOf(orderNumber, capacity);
+            quantityOrdered = Arrays.copyOf(quantityOrdered, capacity);
+            priceEach = Arrays.copyOf(priceEach, capacity);
+            sales = Arrays.copyOf(sales, capacity);
+            orderEpochDay = Arrays.copyOf(orderEpochDay, capacity);
+            qtrId = Arrays.copyOf(qtrId, capacity);
+            monthId = Arrays.copyOf(monthId, capacity);
+            yearId = Arrays.copyOf(yearId, capacity);
+            for (int c = 0; c < codes.length; c++) {
+                codes[c] = Arrays.copyOf(codes[c], capacity);
+            }
+            if (salesCents != null) {
+                priceEachCents = Arrays.copyOf(priceEachCents, capacity);
+                salesCents = Arrays.copyOf(salesCents, capacity);
+            }
+        }
+
+        public void add(SalesRecord record) {
+            ensureCapacity(size + 1);
+            int row = size++;
+            orderNumber[row] = record.getOrderNumber();
+            quantityOrdered[row] = record.getQuantityOrdered();
+            priceEach[row] = record.getPriceEach();
+            sales[row] = record.getSales();
+            if (salesCents != null) {
+                priceEachCents[row] = Math.round(record.getPriceEach() * 100);
+                salesCents[row] = Math.round(record.getSales() * 100);
+            }
+            orderEpochDay[row] = (int) record.getOrderDate().toEpochDay();
+            qtrId[row] = record.getQtrId();
+            monthId[row] = record.getMonthId();
+            yearId[row] = record.getYearId();
+            setCode(TextColumn.STATUS, row, record.getStatus());
+            setCode(TextColumn.PRODUCT_LINE, row, record.getProductLine());
+            setCode(TextColumn.PRODUCT_CODE, row, record.getProductCode());
+            setCode(TextColumn.CUSTOMER_NAME, row, record.getCustomerName());
+            setCode(TextColumn.CITY, row, record.getCity());
+            setCode(TextColumn.COUNTRY, row, record.getCountry());
+            setCode(TextColumn.TERRITORY, row, record.getTerritory());
+            setCode(TextColumn.DEAL_SIZE, row, record.getDealSize());
+        }
+
+        private void setCode(TextColumn column, int row, String value) {
+            codes[column.ordinal()][row] = dictionaries[column.ordinal()].encode(value);
+        }
+
+        // Decode a tokenized CSV line straight into the columns
+        public void add(CsvTokenizer tokens) {
+            if (!decodeAll) {
+                addProjected(tokens);
+                return;
+            }
+            ensureCapacity(size + 1);
+            int row = size;
+            orderNumber[row] = tokens.getInt(SalesRecord.COL_ORDER_NUMBER);
+            quantityOrdered[row] = tokens.getInt(SalesRecord.COL_QUANTITY_ORDERED);
+            if (salesCents != null) {
+                // The doubles are the cents value / 100.0: more than 2 decimals are rounded in both
+                priceEachCents[row] = tokens.getCents(SalesRecord.COL_PRICE_EACH);
+                salesCents[row] = tokens.getCents(SalesRecord.COL_SALES);
+                priceEach[row] = priceEachCents[row] / 100.0;
+                sales[row] = salesCents[row] / 100.0;
+            } else {
+                priceEach[row] = tokens.getDouble(SalesRecord.COL_PRICE_EACH);
+                sales[row] = tokens.getDouble(SalesRecord.COL_SALES);
+            }
+            orderEpochDay[row] = (int) tokens.getEpochDay(SalesRecord.COL_ORDER_DATE);
+            qtrId[row] = tokens.getInt(SalesRecord.COL_QTR_ID);
+            monthId[row] = tokens.getInt(SalesRecord.COL_MONTH_ID);
+            yearId[row] = tokens.getInt(SalesRecord.COL_YEAR_ID);
+            for (TextColumn column : TEXT_COLUMNS) {
+                codes[column.ordinal()][row] = dictionaries[column.ordinal()].encode(tokens, column.csvColumn);
+            }
+            size++;
+        }
+
+        // add(CsvTokenizer) for a projection: skipped fields are never parsed. Their array
+        // slots are zeroed explicitly, since clear() lets a batch builder reuse its arrays.
+        private void addProjected(CsvTokenizer tokens) {
+            ensureCapacity(size + 1);
+            int row = size;
+            orderNumber[row] = decode[Column.ORDER_NUMBER.ordinal()] ? tokens.getInt(SalesRecord.COL_ORDER_NUMBER) : 0;
+            quantityOrdered[row] = decode[Column.QUANTITY_ORDERED.ordinal()]
+                    ? tokens.getInt(SalesRecord.COL_QUANTITY_ORDERED) : 0;
+            if (salesCents != null) {
+                priceEachCents[row] = decode[Column.PRICE_EACH.ordinal()] ? tokens.getCents(SalesRecord.COL_PRICE_EACH)
+                        : 0;
+                salesCents[row] = decode[Column.SALES.ordinal()] ? tokens.getCents(SalesRecord.COL_SALES) : 0;
+                priceEach[row] = priceEachCents[row] / 100.0;
+                sales[row] = salesCents[row] / 100.0;
+            } else {
+                priceEach[row] = decode[Column.PRICE_EACH.ordinal()] ? tokens.getDouble(SalesRecord.COL_PRICE_EACH)
+                        : 0;
+                sales[row] = decode[Column.SALES.ordinal()] ? tokens.getDouble(SalesRecord.COL_SALES) : 0;
+            }
+            orderEpochDay[row] = decode[Column.ORDER_DATE.ordinal()]
+                    ? (int) tokens.getEpochDay(SalesRecord.COL_ORDER_DATE) : 0;
+            qtrId[row] = decode[Column.QTR_ID.ordinal()] ? tokens.getInt(SalesRecord.COL_QTR_ID) : 0;
+            monthId[row] = decode[Column.MONTH_ID.ordinal()] ? tokens.getInt(SalesRecord.COL_MONTH_ID) : 0;
+            yearId[row] = decode[Column.YEAR_ID.ordinal()] ? tokens.getInt(SalesRecord.COL_YEAR_ID) : 0;
+            for (Column column : COLUMNS) {
+                if (column.text != null) {
+                    int c = column.text.ordinal();
+                    codes[c][row] = decode[column.ordinal()]
+                            ? dictionaries[c].encode(tokens, column.text.csvColumn) : 0;
+                }
+            }
+            size++;
+        }
+
+        // Append all rows of another column set
+        public void addAll(SalesColumns part) {
+            ensureCapacity(size + part.size);
+            System.arraycopy(part.orderNumber, 0, orderNumber, size, part.size);
+            System.arraycopy(part.quantityOrdered, 0, quantityOrdered, size, part.size);
+            System.arraycopy(part.priceEach, 0, priceEach, size, part.size);
+            System.arraycopy(part.sales, 0, sales, size, part.size);
+            System.arraycopy(part.orderEpochDay, 0, orderEpochDay, size, part.size);
+            System.arraycopy(part.qtrId, 0, qtrId, size, part.size);
+            System.arraycopy(part.monthId, 0, monthId, size, part.size);
+            System.arraycopy(part.yearId, 0, yearId, size, part.size);
+            if (salesCents != null) {
+                for (int row = 0; row < part.size; row++) {
+                    priceEachCents[size + row] = part.priceEachCents != null ? part.priceEachCents[row]
+                            : Math.round(part.priceEach[row] * 100);
+                    salesCents[size + row] = part.salesCents != null ? part.salesCents[row]
+                            : Math.round(part.sales[row] * 100);
+                }
+            }
+            for (int c = 0; c < codes.length; c++) {
+                StringDictionary from = part.dictionaries[c];
+                int[] remap = new int[from.size()];
+                for (int code = 0; code < remap.length; code++) {
+                    remap[code] = dictionaries[c].encode(from.get(code));
+                }
+                int[] source = part.codes[c];
+                int[] target = codes[c];
+                for (int row = 0; row < part.size; row++) {
+                    target[size + row] = remap[source[row]];
+                }
+            }
+            size += part.size;
+        }
+
+        // Drop the rows but keep the arrays and dictionaries, so codes stay stable across batches
+        public void clear() {
+            size = 0;
+        }
+
+        // Drop the rows and start empty dictionaries (earlier views keep the old ones), so memory
+        // does not grow with the distinct values of all batches, only with those of one batch
+        public void reset() {
+            size = 0;
+            newDictionaries();
+        }
+
+        // Columns over the rows added so far, sharing this builder's arrays (no copy).
+        // Only valid until the next add() or clear().
+        public SalesColumns view() {
+            return new SalesColumns(size, orderNumber, quantityOrdered, priceEach, sales, orderEpochDay,
+                    qtrId, monthId, yearId, codes.clone(), dictionaries.clone(), priceEachCents, salesCents);
+        }
+
+        public SalesColumns build() {
+            int[][] trimmed = new int[codes.length][];
+            for (int c = 0; c < codes.length; c++) {
+                trimmed[c] = Arrays.copyOf(codes[c], size);
+            }
+            return new SalesColumns(size, Arrays.copyOf(orderNumber, size), Arrays.copyOf(quantityOrdered, size),
+                    Arrays.copyOf(priceEach, size), Arrays.copyOf(sales, size),
+                    Arrays.copyOf(orderEpochDay, size), Arrays.copyOf(qtrId, size),
+                    Arrays.copyOf(monthId, size), Arrays.copyOf(yearId, size),
+                    trimmed, dictionaries.clone(),
+                    salesCents == null ? null : Arrays.copyOf(priceEachCents, size),
+                    salesCents == null ? null : Arrays.copyOf(salesCents, size));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.dataanalysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.dataanalysis.GroupBy.Dimension;
+import com.example.dataanalysis.GroupBy.Metric;
+
+// Precomputed rollup cube: one pass over the rows builds the finest cuboid (every
+// combination of the cube's dimensions); any group-by over a subset of them is then
+// answered by rolling up cells, never by rescanning rows. Rolled-up cuboids are kept,
+// and each new one is rolled up from the smallest kept cuboid that covers it, so
+// drilling from productLine x year x territory to productLine x year to year gets
+// cheaper at every step. Thread-safe; results are immutable.
+public class SalesCube {
+
+    private final SalesColumns columns;
+    private final GroupBy base;
+    private final List<GroupBy> cuboids = new ArrayList<>();
+    private final Map<List<Dimension>, GroupByResult> results = new HashMap<>();
+
+    public SalesCube(SalesColumns columns, Metric metric, Dimension... dimensions) {
+        this(columns, QueryExecutor.sequential(), metric, dimensions);
+    }
+
+    public SalesCube(SalesColumns columns, QueryExecutor executor, Metric metric, Dimension... dimensions) {
+        this.columns = columns;
+        this.base = executor.run(columns, new GroupBy(metric, dimensions));
+        cuboids.add(base);
+    }
+
+    // The rows the cube was built from
+    SalesColumns columns() {
+        return columns;
+    }
+
+    public Metric getMetric() {
+        return base.getMetric();
+    }
+
+    public List<Dimension> getDimensions() {
+        return base.getDimensions();
+    }
+
+    // Number of cells in the finest cuboid
+    public int size() {
+        return base.size();
+    }
+
+    public boolean covers(Dimension... dimensions) {
+        return base.covers(dimensions);
+    }
+
+    // Group by any subset of the cube's dimensions, in any order
+    public synchronized GroupByResult groupBy(Dimension... dimensions) {
+        List<Dimension> wanted = List.of(dimensions);
+        GroupByResult cached = results.get(wanted);
+        if (cached != null) {
+            return cached;
+        }
+        if (!base.covers(dimensions)) {
+            throw new IllegalArgumentException("Cube over " + getDimensions() + " cannot group by " + wanted);
+        }
+        GroupBy smallest = base;
+        for (GroupBy cuboid : cuboids) {
+            if (cuboid.size() < smallest.size() && cuboid.covers(dimensions)) {
+                smallest = cuboid;
+            }
+        }
+        GroupBy rolled = smallest.getDimensions().equals(wanted) ? smallest : smallest.rollUp(dimensions);
+        if (rolled != smallest) {
+            cuboids.add(rolled);
+        }
+        GroupByResult result = rolled.result();
+        results.put(wanted, result);
+        return result;
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.dataanalysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic sales CSVs in the sales.csv schema, of any size. The same seed
+// and settings always give the same bytes. Distributions follow the bundled file:
+//  - customers are drawn with a Zipf skew (a few big accounts, a long tail), each with a
+//    fixed country, city and contact; countries, product lines and statuses use the
+//    bundled file's frequencies (USA ~35%, Classic Cars ~34%, Shipped ~93%)
+//  - orders have 1-18 lines (about 9 on average) on one date and with one status
+//  - a configurable fraction of customer names and addresses contain commas and are
+//    quoted, e.g. "Australian Collectors, Co."
+public class SalesDataGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+    public static final int DEFAULT_CUSTOMERS = 10_000;
+    public static final double DEFAULT_QUOTED_FRACTION = 0.1;
+
+    static final String HEADER = "ORDERNUMBER,QUANTITYORDERED,PRICEEACH,SALES,ORDERDATE,STATUS,QTR_ID,MONTH_ID,"
+            + "YEAR_ID,PRODUCTLINE,MSRP,PRODUCTCODE,CUSTOMERNAME,ADDRESSLINE1,ADDRESSLINE2,CITY,POSTALCODE,COUNTRY,"
+            + "TERRITORY,CONTACTLASTNAME,CONTACTFIRSTNAME,DEALSIZE";
+
+    private static final double CUSTOMER_SKEW = 1.0; // Zipf exponent
+    private static final int FIRST_ORDER_NUMBER = 10100;
+    private static final int MAX_LINES_PER_ORDER = 18;
+    private static final long FIRST_DAY = LocalDate.of(2003, 1, 1).toEpochDay();
+    private static final long LAST_DAY = LocalDate.of(2005, 5, 31).toEpochDay();
+
+    // country, territory, cities..., with the bundled file's row counts as weights
+    private static final String[][] COUNTRIES = {
+            { "USA", "NA", "NYC", "San Francisco", "Boston", "Philadelphia", "Los Angeles", "Las Vegas" },
+            { "Spain", "EMEA", "Madrid", "Barcelona", "Sevilla" },
+            { "France", "EMEA", "Paris", "Nantes", "Lyon", "Marseille", "Reims" },
+            { "Australia", "APAC", "Melbourne", "Sydney", "Glen Waverly" },
+            { "UK", "EMEA", "London", "Manchester", "Liverpool" },
+            { "Italy", "EMEA", "Torino", "Bergamo", "Reggio Emilia" },
+            { "Finland", "EMEA", "Helsinki", "Espoo", "Oulu" },
+            { "Norway", "EMEA", "Oslo", "Stavern", "Bergen" },
+            { "Singapore", "APAC", "Singapore" },
+            { "Canada", "NA", "Montreal", "Vancouver", "Toronto" },
+            { "Denmark", "EMEA", "Kobenhavn", "Aarhus" },
+            { "Germany", "EMEA", "Frankfurt", "Munich", "Cologne" },
+            { "Sweden", "EMEA", "Lulea", "Boras" },
+            { "Austria", "EMEA", "Graz", "Salzburg" },
+            { "Japan", "Japan", "Tokyo", "Osaka" },
+            { "Belgium", "EMEA", "Bruxelles", "Charleroi" },
+            { "Switzerland", "EMEA", "Geneve", "Bern" },
+            { "Philippines", "Japan", "Makati City", "Manila" },
+            { "Ireland", "EMEA", "Dublin", "Cork" } };
+    private static final int[] COUNTRY_WEIGHTS = { 1004, 342, 314, 185, 144, 113, 92, 85, 79, 70, 63, 62, 57, 55,
+            52, 33, 31, 26, 16 };
+
+    private static final String[] PRODUCT_LINES = { "Classic Cars", "Vintage Cars", "Motorcycles", "Planes",
+            "Trucks and Buses", "Ships", "Trains" };
+    private static final int[] PRODUCT_LINE_WEIGHTS = { 967, 607, 331, 306, 301, 234, 77 };
+    private static final int[] PRODUCT_SCALES = { 10, 12, 18, 24, 32, 50, 72, 700 };
+
+    private static final String[] STATUSES = { "Shipped", "Cancelled", "Resolved", "On Hold", "In Process",
+            "Disputed" };
+    private static final int[] STATUS_WEIGHTS = { 2617, 60, 47, 44, 41, 14 };
+
+    private static final String[] NAME_PREFIXES = { "Land of", "Euro", "Mini", "Australian", "La Rochelle",
+            "Corporate", "Dragon", "Toys of", "Classic", "Vintage", "Diecast", "Scale", "Royal", "Atelier",
+            "Heintze", "Volvo", "Online", "Gift", "Souveniers", "Muscle", "Auto", "Handji", "Tokyo", "Cruz" };
+    private static final String[] NAME_NOUNS = { "Toys", "Collectables", "Gifts", "Models", "Replicas", "Imports",
+            "Shopping Channel", "Distributors", "Souvenirs", "Classics", "Auto Works", "Traders", "Hobbies" };
+    private static final String[] NAME_SUFFIXES = { "Inc.", "Co.", "Ltd.", "Corp", "& Co.", "GmbH", "AG", "Ltd" };
+    private static final String[] STREETS = { "Long Airport Avenue", "rue de l'Abbaye", "Hillside Dr.",
+            "Seventh Ave", "Geary Street", "Berguvsvagen", "Kingsfordweg", "Strong St.", "North Pendale Street",
+            "Brewery St.", "Moss Lane", "Via Monte Bianco" };
+    private static final String[] FIRST_NAMES = { "Kwai", "Paul", "Daniel", "Julie", "Valarie", "Peter", "Jean",
+            "Maria", "Janine", "Wendy", "Michael", "Dean", "Elizabeth", "Rachel", "Adrian", "Juri" };
+    private static final String[] LAST_NAMES = { "Yu", "Henriot", "Da Cunha", "Young", "Nelson", "Ferguson",
+            "Saveley", "Hernandez", "Labrune", "Victorino", "Frick", "Cassidy", "Devon", "Ashworth", "Huxley",
+            "Natividad" };
+
+    private final long seed;
+    private final String[] customers;     // CUSTOMERNAME..CONTACTFIRSTNAME, CSV-ready
+    private final String[] products;      // PRODUCTLINE,MSRP,PRODUCTCODE, CSV-ready
+    private final int[] productMsrp;
+    private final int[][] productsByLine;
+    private final Sampler customerSampler;
+    private final Sampler lineSampler = new Sampler(PRODUCT_LINE_WEIGHTS);
+    private final Sampler statusSampler = new Sampler(STATUS_WEIGHTS);
+
+    public SalesDataGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public SalesDataGenerator(long seed) {
+        this(seed, DEFAULT_CUSTOMERS, DEFAULT_QUOTED_FRACTION);
+    }
+
+    // quotedFraction: share of customer names (and, separately, addresses) containing a comma
+    public SalesDataGenerator(long seed, int customers, double quotedFraction) {
+        if (customers <= 0) {
+            throw new IllegalArgumentException("customers must be positive: " + customers);
+        }
+        if (!(quotedFraction >= 0 && quotedFraction <= 1)) {
+            throw new IllegalArgumentException("quotedFraction must be between 0 and 1: " + quotedFraction);
+        }
+        this.seed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        this.customers = makeCustomers(random, customers, quotedFraction);
+        double[] weights = new double[customers];
+        for (int i = 0; i < customers; i++) {
+            weights[i] = 1 / Math.pow(i + 1, CUSTOMER_SKEW);
+        }
+        this.customerSampler = new Sampler(weights);
+
+        int productCount = 0;
+        int[] perLine = new int[PRODUCT_LINES.length];
+        for (int line = 0; line < PRODUCT_LINES.length; line++) {
+            // 109 products in the bundled file, split like the rows
+            perLine[line] = Math.max(3, PRODUCT_LINE_WEIGHTS[line] * 109 / 2823);
+            productCount += perLine[line];
+        }
+        this.products = new String[productCount];
+        this.productMsrp = new int[productCount];
+        this.productsByLine = new int[PRODUCT_LINES.length][];
+        Set<String> codes = new HashSet<>();
+        int product = 0;
+        for (int line = 0; line < PRODUCT_LINES.length; line++) {
+            productsByLine[line] = new int[perLine[line]];
+            for (int i = 0; i < perLine[line]; i++) {
+                String code;
+                do {
+                    code = "S" + PRODUCT_SCALES[random.nextInt(PRODUCT_SCALES.length)] + "_"
+                            + (1000 + random.nextInt(9000));
+                } while (!codes.add(code));
+                productMsrp[product] = 33 + random.nextInt(182);
+                products[product] = PRODUCT_LINES[line] + "," + productMsrp[product] + "," + code;
+                productsByLine[line][i] = product++;
+            }
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Write a header and exactly rows data rows; returns the file size
+    public long writeRows(Path out, long rows) throws IOException {
+        write(out, rows, Long.MAX_VALUE);
+        return Files.size(out);
+    }
+
+    // Write whole rows until the file reaches at least targetBytes; returns the row count
+    public long writeBytes(Path out, long targetBytes) throws IOException {
+        return write(out, Long.MAX_VALUE, targetBytes);
+    }
+
+    private long write(Path out, long maxRows, long maxBytes) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.ISO_8859_1)) {
+            return write(writer, maxRows, maxBytes);
+        }
+    }
+
+    // Rows are ASCII, so characters written equal bytes written
+    long write(Writer out, long maxRows, long maxBytes) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        StringBuilder line = new StringBuilder(512);
+        line.append(HEADER).append("\r\n");
+        out.append(line);
+        long bytes = line.length();
+        long rows = 0;
+        int orderNumber = FIRST_ORDER_NUMBER;
+        while (rows < maxRows && bytes < maxBytes) {
+            String customer = customers[customerSampler.next(random)];
+            String status = STATUSES[statusSampler.next(random)];
+            LocalDate date = LocalDate.ofEpochDay(FIRST_DAY + random.nextLong(LAST_DAY - FIRST_DAY + 1));
+            int lines = 1 + random.nextInt(MAX_LINES_PER_ORDER);
+            for (int l = 0; l < lines && rows < maxRows && bytes < maxBytes; l++) {
+                int[] lineProducts = productsByLine[lineSampler.next(random)];
+                int product = lineProducts[random.nextInt(lineProducts.length)];
+                // Mostly 20-50 units, occasionally anywhere in 6-97 as in the bundled file
+                int quantity = random.nextInt(10) == 0 ? 6 + random.nextInt(92) : 20 + random.nextInt(31);
+                long priceCents = Math.round(productMsrp[product] * (75 + random.nextInt(51)));
+                long salesCents = quantity * priceCents;
+
+                line.setLength(0);
+                line.append(orderNumber).append(',').append(quantity).append(',');
+                appendMoney(line, priceCents).append(',');
+                appendMoney(line, salesCents).append(',');
+                line.append(date.getMonthValue()).append('/').append(date.getDayOfMonth()).append('/')
+                        .append(date.getYear()).append(" 0:00,").append(status).append(',')
+                        .append((date.getMonthValue() + 2) / 3).append(',').append(date.getMonthValue()).append(',')
+                        .append(date.getYear()).append(',').append(products[product]).append(',')
+                        .append(customer).append(',')
+                        .append(salesCents < 300_000 ? "Small" : salesCents < 700_000 ? "Medium" : "Large")
+                        .append("\r\n");
+                out.append(line);
+                bytes += line.length();
+                rows++;
+            }
+            orderNumber++;
+        }
+        return rows;
+    }
+
+    // 2871.00 -> "2871", 95.70 -> "95.7", 81.35 -> "81.35", like the bundled file
+    private static StringBuilder appendMoney(StringBuilder out, long cents) {
+        out.append(cents / 100);
+        int fraction = (int) (cents % 100);
+        if (fraction != 0) {
+            out.append('.').append(fraction / 10);
+            if (fraction % 10 != 0) {
+                out.append(fraction % 10);
+            }
+        }
+        return out;
+    }
+
+    static String[] makeCustomers(SplittableRandom random, int count, double quotedFraction) {
+        String[] result = new String[count];
+        Sampler countries = new Sampler(COUNTRY_WEIGHTS);
+        Set<String> names = new HashSet<>();
+        // Next number to try per base name, so a base seen k times costs one try, not k
+        Map<String, Integer> nextNumber = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String base = pick(random, NAME_PREFIXES) + " " + pick(random, NAME_NOUNS);
+            String name;
+            if (random.nextDouble() < quotedFraction) {
+                name = base + ", " + pick(random, NAME_SUFFIXES);
+            } else {
+                name = random.nextBoolean() ? base : base + " " + pick(random, NAME_SUFFIXES);
+            }
+            if (!names.add(name)) {
+                String suffix = name.contains(",") ? ", " + pick(random, NAME_SUFFIXES) : "";
+                int n = nextNumber.getOrDefault(base, 2);
+                while (!names.add(base + " " + n + suffix)) {
+                    n++;
+                }
+                name = base + " " + n + suffix;
+                nextNumber.put(base, n + 1);
+            }
+            String[] country = COUNTRIES[countries.next(random)];
+            String street = (1 + random.nextInt(999)) + " " + pick(random, STREETS);
+            String address = random.nextDouble() < quotedFraction
+                    ? "Suite " + (100 + random.nextInt(900)) + ", " + street
+                    : street;
+            result[i] = String.join(",", quote(name), quote(address), "",
+                    country[2 + random.nextInt(country.length - 2)],
+                    String.format(Locale.ROOT, "%05d", random.nextInt(100_000)), country[0], country[1],
+                    pick(random, LAST_NAMES), pick(random, FIRST_NAMES));
+        }
+        return result;
+    }
+
+    private static String quote(String field) {
+        return field.indexOf(',') >= 0 ? '"' + field + '"' : field;
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Draws indexes in proportion to fixed weights: binary search over the cumulative weights
+    private static class Sampler {
+        private final double[] cumulative;
+
+        Sampler(int[] weights) {
+            this(Arrays.stream(weights).asDoubleStream().toArray());
+        }
+
+        Sampler(double[] weights) {
+            cumulative = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            index = index >= 0 ? index + 1 : -index - 1;
+            return Math.min(index, cumulative.length - 1);
+        }
+    }
+
+    // "500000", "64KB", "1.5GB", "50GB" -> bytes (binary units)
+    static long parseSize(String size) {
+        String s = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        for (String[] suffix : new String[][] { { "KB", "10" }, { "MB", "20" }, { "GB", "30" }, { "TB", "40" },
+                { "K", "10" }, { "M", "20" }, { "G", "30" }, { "T", "40" }, { "B", "0" } }) {
+            if (s.endsWith(suffix[0])) {
+                unit = 1L << Integer.parseInt(suffix[1]);
+                s = s.substring(0, s.length() - suffix[0].length()).trim();
+                break;
+            }
+        }
+        try {
+            return (long) (Double.parseDouble(s) * unit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a size: " + size);
+        }
+    }
+
+    // Usage: SalesDataGenerator [--seed N] [--customers N] [--quoted FRACTION] (--rows N | --size 1GB) out.csv
+    public static void main(String[] args) throws IOException {
+        long seed = DEFAULT_SEED;
+        int customers = DEFAULT_CUSTOMERS;
+        double quoted = DEFAULT_QUOTED_FRACTION;
+        long rows = -1;
+        long size = -1;
+        String out = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--customers") && i + 1 < args.length) {
+                customers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--quoted") && i + 1 < args.length) {
+                quoted = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--rows") && i + 1 < args.length) {
+                rows = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--size") && i + 1 < args.length) {
+                size = parseSize(args[++i]);
+            } else {
+                out = args[i];
+            }
+        }
+        if (out == null || (rows < 0) == (size < 0)) {
+            System.err.println("Usage: SalesDataGenerator [--seed N] [--customers N] [--quoted FRACTION] "
+                    + "(--rows N | --size 1GB) out.csv");
+            System.exit(2);
+        }
+        SalesDataGenerator generator = new SalesDataGenerator(seed, customers, quoted);
+        Path path = Paths.get(out);
+        long start = System.nanoTime();
+        if (rows >= 0) {
+            size = generator.writeRows(path, rows);
+        } else {
+            rows = generator.writeBytes(path, size);
+            size = Files.size(path);
+        }
+        System.out.printf(Locale.ROOT, "Wrote %,d rows (%,d bytes) to %s in %.1f s%n", rows, size, path,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.dataanalysis;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder events for loads and queries. They cost nothing until a recording
+// enables them, e.g. java -XX:StartFlightRecording:filename=sales.jfr ..., and then show
+// up under "Sales Analysis" in JDK Mission Control or `jfr print --events Query sales.jfr`.
+// Duration is the event's own start/end; SalesMetrics begins and commits them.
+final class SalesEvents {
+
+    private SalesEvents() {
+    }
+
+    @StackTrace(false)
+    abstract static class SalesEvent extends Event {
+        @Label("Rows")
+        @Description("Rows scanned or parsed")
+        long rows;
+
+        @Label("Bytes")
+        @Description("Column bytes scanned, or CSV bytes parsed")
+        @DataAmount
+        long bytes;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("com.example.dataanalysis.Query")
+    @Label("Sales Query")
+    @Category("Sales Analysis")
+    @Description("One SalesAnalysis query, including cache lookups")
+    static class QueryEvent extends SalesEvent {
+        @Label("Query")
+        String query;
+    }
+
+    @Name("com.example.dataanalysis.LoadPhase")
+    @Label("Sales Load Phase")
+    @Category("Sales Analysis")
+    @Description("One phase of a CSV load: read (chunk split), parse (one chunk) or build (merge)")
+    static class LoadPhaseEvent extends SalesEvent {
+        @Label("Phase")
+        String phase;
+
+        @Label("Path")
+        String path;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.dataanalysis;
+
+import java.util.Arrays;
+
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// Secondary indexes over one SalesColumns, built once in O(n log n) and read-only after:
+//  - rows sorted by sales (highest first, ties in row order), so "sales above x" and
+//    "sales between a and b" are a binary search plus a slice of that order
+//  - posting lists for customer, country and product line: the rows of every dictionary
+//    code stored contiguously (CSR layout: offsets[code]..offsets[code + 1]), in row order
+//  - rows sorted by order number, with a binary search to find one order's lines
+// All lookups return row numbers; callers materialize only the rows they need.
+public class SalesIndexes {
+
+    static final TextColumn[] POSTING_COLUMNS = { TextColumn.CUSTOMER_NAME, TextColumn.COUNTRY,
+            TextColumn.PRODUCT_LINE };
+
+    private final SalesColumns columns;
+    private final int[] bySales;
+    private final int[] byOrderNumber;
+    private final int[][] postingOffsets = new int[TextColumn.values().length][];
+    private final int[][] postingRows = new int[TextColumn.values().length][];
+
+    public SalesIndexes(SalesColumns columns) {
+        this.columns = columns;
+        int size = columns.size();
+        double[] sales = columns.sales;
+        int[] orderNumber = columns.orderNumber;
+        this.bySales = sortedRows(size, (a, b) -> Double.compare(sales[b], sales[a]));
+        this.byOrderNumber = sortedRows(size, (a, b) -> Integer.compare(orderNumber[a], orderNumber[b]));
+        for (TextColumn column : POSTING_COLUMNS) {
+            buildPostings(column);
+        }
+    }
+
+    // Counting sort of rows by code: one pass to count, one to place
+    private void buildPostings(TextColumn column) {
+        int[] codes = columns.codes(column);
+        int size = columns.size();
+        int[] offsets = new int[columns.dictionary(column).size() + 1];
+        for (int row = 0; row < size; row++) {
+            offsets[codes[row] + 1]++;
+        }
+        for (int code = 0; code < offsets.length - 1; code++) {
+            offsets[code + 1] += offsets[code];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[next[codes[row]]++] = row;
+        }
+        postingOffsets[column.ordinal()] = offsets;
+        postingRows[column.ordinal()] = rows;
+    }
+
+    public SalesColumns columns() {
+        return columns;
+    }
+
+    // Number of rows with sales > threshold; they are bySales()[0 .. count)
+    public int countSalesAbove(double threshold) {
+        return firstSalesAtMost(threshold);
+    }
+
+    // Rows with min <= sales <= max, highest sales first
+    public int[] rowsWithSalesBetween(double min, double max) {
+        if (!(min <= max)) {
+            return new int[0];
+        }
+        int from = firstSalesAtMost(max);
+        int to = firstSalesAtMost(Math.nextDown(min));
+        return Arrays.copyOfRange(bySales, from, to);
+    }
+
+    // All rows, highest sales first (ties in row order); shared, do not modify
+    int[] bySales() {
+        return bySales;
+    }
+
+    // Rows whose text column equals value exactly, in row order
+    public int[] rowsWhere(TextColumn column, String value) {
+        int[] offsets = postingOffsets[column.ordinal()];
+        if (offsets == null) {
+            throw new IllegalArgumentException("No index on " + column);
+        }
+        int code = columns.dictionary(column).find(value);
+        if (code < 0) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(postingRows[column.ordinal()], offsets[code], offsets[code + 1]);
+    }
+
+    // Line items of one order, in row order
+    public int[] rowsForOrder(int orderNumber) {
+        int[] numbers = columns.orderNumber;
+        int low = 0;
+        int high = byOrderNumber.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (numbers[byOrderNumber[mid]] < orderNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < byOrderNumber.length && numbers[byOrderNumber[end]] == orderNumber) {
+            end++;
+        }
+        return Arrays.copyOfRange(byOrderNumber, low, end);
+    }
+
+    // Position in bySales of the first row with sales <= value (sales are descending)
+    private int firstSalesAtMost(double value) {
+        double[] sales = columns.sales;
+        int low = 0;
+        int high = bySales.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sales[bySales[mid]] > value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    interface RowOrder {
+        int compare(int a, int b);
+    }
+
+    // Row numbers 0..size-1 in the given order, ties in row order
+    static int[] sortedRows(int size, RowOrder order) {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        sort(rows, order);
+        return rows;
+    }
+
+    // Stable bottom-up merge sort of row numbers, on primitive ints so there is
+    // no boxing for large tables
+    static void sort(int[] rows, RowOrder order) {
+        int size = rows.length;
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int left = 0; left < size - width; left += 2 * width) {
+                int mid = left + width;
+                int right = Math.min(left + 2 * width, size);
+                if (order.compare(rows[mid - 1], rows[mid]) <= 0) {
+                    continue; // already in order
+                }
+                int i = left;
+                int j = mid;
+                int k = left;
+                while (i < mid && j < right) {
+                    buffer[k++] = order.compare(rows[j], rows[i]) < 0 ? rows[j++] : rows[i++];
+                }
+                while (i < mid) {
+                    buffer[k++] = rows[i++];
+                }
+                while (j < right) {
+                    buffer[k++] = rows[j++];
+                }
+                System.arraycopy(buffer, left, rows, left, right - left);
+            }
+        }
+    }
+}
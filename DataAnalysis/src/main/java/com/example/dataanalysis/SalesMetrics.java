@@ -0,0 +1,340 @@
+package com.example.dataanalysis;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.dataanalysis.SalesEvents.LoadPhaseEvent;
+import com.example.dataanalysis.SalesEvents.QueryEvent;
+import com.example.dataanalysis.SalesEvents.SalesEvent;
+
+// Process-wide counters and latency histograms for SalesAnalysis queries and CSV load
+// phases, plus the matching JFR events (see SalesEvents). Off by default; switch on with
+// -Ddataanalysis.metrics=true, --metrics or global().setEnabled(true). While off, and
+// with no JFR recording, each query or load phase costs one flag check. Per name it
+// keeps calls, errors, rows and bytes scanned, and a latency histogram; toText() and
+// toJson() snapshot them. A query that scans 0 rows was a cache hit (or used an index).
+public class SalesMetrics {
+
+    // Phases of a ChunkedCsvLoader load. Tokenizing and decoding happen in the same pass
+    // over each line, so they are one phase.
+    public enum LoadPhase {
+        READ,  // scan the file for quote-aware chunk boundaries
+        PARSE, // tokenize and decode one chunk into columns
+        BUILD  // merge the chunks' columns and dictionaries
+    }
+
+    private static final SalesMetrics GLOBAL = new SalesMetrics(Boolean.getBoolean("dataanalysis.metrics"));
+
+    private static final String TEXT_HEADER = "%-24s %8s %6s %12s %14s %10s %10s %10s %10s%n";
+    private static final String TEXT_ROW = "%-24s %8d %6d %12d %14d %10.1f %10.1f %10.1f %10.1f%n";
+
+    // The query being timed on this thread, so scans can add their rows to it
+    private static final ThreadLocal<Timer> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean enabled;
+    private final Map<String, Stats> queries = new ConcurrentHashMap<>();
+    private final Map<LoadPhase, Stats> loads = new ConcurrentHashMap<>();
+
+    SalesMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static SalesMetrics global() {
+        return GLOBAL;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Forget everything recorded so far
+    public void reset() {
+        queries.clear();
+        loads.clear();
+    }
+
+    // Stats per query name, sorted by name; a copy of the map, but the live Stats
+    public Map<String, Stats> getQueries() {
+        return new TreeMap<>(queries);
+    }
+
+    public Map<LoadPhase, Stats> getLoadPhases() {
+        return new TreeMap<>(loads);
+    }
+
+    // Start timing a query; Timer.NONE when neither the metrics nor the JFR event are on.
+    // Must be ended on the same thread.
+    Timer startQuery(String name) {
+        QueryEvent event = new QueryEvent();
+        boolean on = enabled;
+        if (!on && !event.isEnabled()) {
+            return Timer.NONE;
+        }
+        event.query = name;
+        Timer timer = new Timer(on ? queries.computeIfAbsent(name, k -> new Stats()) : null, event, CURRENT.get());
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    // Start timing a load phase; Timer.NONE when neither the metrics nor the JFR event are on
+    Timer startLoad(LoadPhase phase, Path path) {
+        LoadPhaseEvent event = new LoadPhaseEvent();
+        boolean on = enabled;
+        if (!on && !event.isEnabled()) {
+            return Timer.NONE;
+        }
+        event.phase = phase.name().toLowerCase(Locale.ROOT);
+        event.path = String.valueOf(path);
+        return new Timer(on ? loads.computeIfAbsent(phase, k -> new Stats()) : null, event, null);
+    }
+
+    // Called by QueryExecutor for every scan; charged to the query timed on this thread, if any
+    static void scanned(SalesColumns columns, SalesAggregator aggregator, int rows) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            timer.add(rows, (long) rows * SalesColumns.bytesPerRow(aggregator.columns(), columns.hasExactMoney()));
+        }
+    }
+
+    // One timed query or load phase. end() records it, failed unless succeeded() was called:
+    //   Timer timer = metrics.startLoad(...); try { ...; timer.succeeded(); } finally { timer.end(); }
+    static final class Timer {
+        // Records nothing; returned while metrics and events are off
+        static final Timer NONE = new Timer();
+
+        private final Stats stats;
+        private final SalesEvent event;
+        private final Timer outer;
+        private final long start;
+        private long rows;
+        private long bytes;
+        private boolean succeeded;
+
+        private Timer(Stats stats, SalesEvent event, Timer outer) {
+            this.stats = stats;
+            this.event = event;
+            this.outer = outer;
+            this.start = System.nanoTime();
+            event.begin();
+        }
+
+        private Timer() {
+            this.stats = null;
+            this.event = null;
+            this.outer = null;
+            this.start = 0;
+        }
+
+        void add(long rows, long bytes) {
+            if (event == null) {
+                return;
+            }
+            this.rows += rows;
+            this.bytes += bytes;
+        }
+
+        void succeeded() {
+            succeeded = true;
+        }
+
+        void end() {
+            if (event == null) {
+                return;
+            }
+            event.end();
+            long nanos = System.nanoTime() - start;
+            if (stats != null) {
+                stats.record(nanos, rows, bytes, succeeded);
+            }
+            if (event.shouldCommit()) {
+                event.rows = rows;
+                event.bytes = bytes;
+                event.failed = !succeeded;
+                event.commit();
+            }
+            if (event instanceof QueryEvent) {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    // Counters and latencies of one query or load phase; safe to update from many threads
+    public static final class Stats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final Histogram latency = new Histogram();
+
+        void record(long nanos, long rows, long bytes, boolean succeeded) {
+            calls.increment();
+            if (!succeeded) {
+                errors.increment();
+            }
+            this.rows.add(rows);
+            this.bytes.add(bytes);
+            latency.record(nanos);
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        // Calls that threw, e.g. loads of malformed lines
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        // Latencies in nanoseconds
+        public Histogram getLatency() {
+            return latency;
+        }
+    }
+
+    // Log-linear histogram of non-negative longs: values under 16 are exact, larger ones fall in
+    // 8 buckets per power of two, so a percentile is within 12.5% of the true value. Recording
+    // is a few lock-free adds on a fixed array of 488 counters; nothing is allocated.
+    public static final class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int LINEAR = 2 * SUB_BUCKETS;
+        private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            long v = Math.max(0, value);
+            counts.incrementAndGet(bucket(v));
+            count.increment();
+            total.add(v);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        static int bucket(long value) {
+            if (value < LINEAR) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value); // >= 4
+            int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+            return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+        }
+
+        // Largest value that falls in bucket
+        static long upperBound(int bucket) {
+            if (bucket < LINEAR) {
+                return bucket;
+            }
+            int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+            long sub = (bucket - LINEAR) % SUB_BUCKETS;
+            long width = 1L << (exponent - 3);
+            return ((SUB_BUCKETS + sub) << (exponent - 3)) + width - 1;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) total.sum() / n;
+        }
+
+        // Upper bound of the bucket holding the q-quantile (0 < q <= 1), capped at the maximum; 0 when empty
+        public long percentile(double q) {
+            if (q <= 0 || q > 1) {
+                throw new IllegalArgumentException("q must be in (0, 1]");
+            }
+            long n = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                n += snapshot[i];
+            }
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBound(i), getMax());
+                }
+            }
+            return 0;
+        }
+    }
+
+    // One line per query and load phase; latencies in microseconds
+    public String toText() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, TEXT_HEADER, "QUERY", "CALLS", "ERRORS", "ROWS", "BYTES", "MEAN_US",
+                "P50_US", "P99_US", "MAX_US"));
+        getQueries().forEach((name, stats) -> appendText(out, name, stats));
+        out.append(String.format(Locale.ROOT, TEXT_HEADER, "LOAD PHASE", "CALLS", "ERRORS", "ROWS", "BYTES",
+                "MEAN_US", "P50_US", "P99_US", "MAX_US"));
+        getLoadPhases().forEach((phase, stats) -> appendText(out, phase.name().toLowerCase(Locale.ROOT), stats));
+        return out.toString();
+    }
+
+    private static void appendText(StringBuilder out, String name, Stats stats) {
+        Histogram latency = stats.getLatency();
+        out.append(String.format(Locale.ROOT, TEXT_ROW, name, stats.getCalls(), stats.getErrors(), stats.getRows(),
+                stats.getBytes(), latency.getMean() / 1000, latency.percentile(0.5) / 1000.0,
+                latency.percentile(0.99) / 1000.0, latency.getMax() / 1000.0));
+    }
+
+    // {"enabled":true,"queries":{"topCustomers":{"calls":2,...,"latencyNanos":{...}}},"loadPhases":{...}}
+    public String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"enabled\":").append(enabled).append(",\"queries\":{");
+        appendJson(out, getQueries());
+        out.append("},\"loadPhases\":{");
+        Map<String, Stats> phases = new TreeMap<>();
+        getLoadPhases().forEach((phase, stats) -> phases.put(phase.name().toLowerCase(Locale.ROOT), stats));
+        appendJson(out, phases);
+        return out.append("}}").toString();
+    }
+
+    private static void appendJson(StringBuilder out, Map<String, Stats> stats) {
+        String separator = "";
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            Histogram latency = s.getLatency();
+            out.append(separator).append('"').append(entry.getKey()).append("\":{")
+                    .append("\"calls\":").append(s.getCalls())
+                    .append(",\"errors\":").append(s.getErrors())
+                    .append(",\"rows\":").append(s.getRows())
+                    .append(",\"bytes\":").append(s.getBytes())
+                    .append(",\"latencyNanos\":{\"count\":").append(latency.getCount())
+                    .append(",\"mean\":").append(Math.round(latency.getMean()))
+                    .append(",\"p50\":").append(latency.percentile(0.5))
+                    .append(",\"p90\":").append(latency.percentile(0.9))
+                    .append(",\"p99\":").append(latency.percentile(0.99))
+                    .append(",\"max\":").append(latency.getMax())
+                    .append("}}");
+            separator = ",";
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.dataanalysis;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.example.dataanalysis.SalesAggregators.RevenueByYear;
+import com.example.dataanalysis.SalesAggregators.Totals;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+// A dataset loaded from a directory of partitioned CSV files (see PartitionedCsvLoader).
+// The files are concatenated into one column set in path order, and each file is a
+// Partition that remembers its row range plus statistics taken while it was loaded:
+// row count, first and last order date, year range, revenue and revenue per year.
+// Queries use them to skip partitions, or to answer without reading any rows.
+public class SalesPartitions {
+
+    private final SalesColumns columns;
+    private final List<Partition> partitions;
+
+    SalesPartitions(SalesColumns columns, List<Partition> partitions) {
+        this.columns = columns;
+        this.partitions = unmodifiableList(partitions);
+    }
+
+    public SalesColumns columns() {
+        return columns;
+    }
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    // Revenue per year, merged from the partition statistics in path order
+    public Map<Integer, Double> getRevenueByYear() {
+        RevenueByYear merged = new RevenueByYear();
+        for (Partition partition : partitions) {
+            merged.merge(partition.revenueByYear);
+        }
+        return unmodifiableMap(merged.result());
+    }
+
+    // Row count and revenue of all partitions, merged from their statistics
+    Totals totals() {
+        Totals merged = new Totals();
+        for (Partition partition : partitions) {
+            merged.merge(partition.totals);
+        }
+        return merged;
+    }
+
+    // One loaded file: its YEAR=/MONTH= keys (0 when the path has none), where its rows
+    // are in columns(), and what was seen in them
+    public static class Partition {
+        private final Path path;
+        private final int year;
+        private final int month;
+        int firstRow; // set once the partitions are concatenated
+        private final int rows;
+        private final int minEpochDay;
+        private final int maxEpochDay;
+        private final int minYear;
+        private final int maxYear;
+        private final Totals totals = new Totals();
+        private final RevenueByYear revenueByYear = new RevenueByYear();
+
+        Partition(Path path, int year, int month, SalesColumns part) {
+            this.path = path;
+            this.year = year;
+            this.month = month;
+            this.rows = part.size;
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = Integer.MIN_VALUE;
+            int lowYear = Integer.MAX_VALUE;
+            int highYear = Integer.MIN_VALUE;
+            for (int i = 0; i < rows; i++) {
+                minDay = Math.min(minDay, part.orderEpochDay[i]);
+                maxDay = Math.max(maxDay, part.orderEpochDay[i]);
+                lowYear = Math.min(lowYear, part.yearId[i]);
+                highYear = Math.max(highYear, part.yearId[i]);
+            }
+            this.minEpochDay = minDay;
+            this.maxEpochDay = maxDay;
+            this.minYear = lowYear;
+            this.maxYear = highYear;
+            totals.accept(part, 0, rows);
+            revenueByYear.accept(part, 0, rows);
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public int getMonth() {
+            return month;
+        }
+
+        public int getFirstRow() {
+            return firstRow;
+        }
+
+        public int getRowCount() {
+            return rows;
+        }
+
+        // Earliest and latest ORDERDATE, or null for an empty file
+        public LocalDate getFirstOrderDate() {
+            return rows == 0 ? null : LocalDate.ofEpochDay(minEpochDay);
+        }
+
+        public LocalDate getLastOrderDate() {
+            return rows == 0 ? null : LocalDate.ofEpochDay(maxEpochDay);
+        }
+
+        public double getRevenue() {
+            return totals.getRevenue();
+        }
+
+        // True unless no row has YEAR_ID == year (such partitions are skipped)
+        public boolean mayContainYear(int year) {
+            return minYear <= year && year <= maxYear;
+        }
+
+        // True when every row has YEAR_ID == year (such partitions need no row filter)
+        public boolean containsOnlyYear(int year) {
+            return minYear == year && maxYear == year;
+        }
+
+        @Override
+        public String toString() {
+            return path + " (" + rows + " rows, " + getFirstOrderDate() + " to " + getLastOrderDate() + ")";
+        }
+    }
+}
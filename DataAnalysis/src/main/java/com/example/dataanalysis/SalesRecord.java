@@ -1,7 +1,6 @@
 package com.example.dataanalysis;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 // Class to hold a single sales record from CSV
 public class SalesRecord {
@@ -44,36 +43,53 @@ public class SalesRecord {
         this.dealSize = dealSize;
     }
 
+    // CSV column positions (MSRP, address, postal code and contact columns are skipped)
+    static final int COL_ORDER_NUMBER = 0;
+    static final int COL_QUANTITY_ORDERED = 1;
+    static final int COL_PRICE_EACH = 2;
+    static final int COL_SALES = 3;
+    static final int COL_ORDER_DATE = 4;
+    static final int COL_STATUS = 5;
+    static final int COL_QTR_ID = 6;
+    static final int COL_MONTH_ID = 7;
+    static final int COL_YEAR_ID = 8;
+    static final int COL_PRODUCT_LINE = 9;
+    static final int COL_PRODUCT_CODE = 11;
+    static final int COL_CUSTOMER_NAME = 12;
+    static final int COL_CITY = 15;
+    static final int COL_COUNTRY = 17;
+    static final int COL_TERRITORY = 18;
+    static final int COL_DEAL_SIZE = 21;
+    static final int COLUMN_COUNT = 22;
+
+    // One tokenizer per thread so fromCsvLine stays allocation-free apart from the record
+    private static final ThreadLocal<CsvTokenizer> TOKENIZER =
+            ThreadLocal.withInitial(() -> new CsvTokenizer(COLUMN_COUNT));
+
     // Create a SalesRecord from a CSV line
     public static SalesRecord fromCsvLine(String line) {
-        String[] fields = parseCsvLine(line);
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("M/d/yyyy H:mm");
-        LocalDate orderDate = LocalDate.parse(fields[4], formatter);
+        return fromTokens(TOKENIZER.get().reset(line));
+    }
 
+    // Create a SalesRecord from an already tokenized line
+    static SalesRecord fromTokens(CsvTokenizer tokens) {
         return new SalesRecord(
-                Integer.parseInt(fields[0]), // ORDERNUMBER
-                Integer.parseInt(fields[1]), // QUANTITYORDERED
-                Double.parseDouble(fields[2]), // PRICEEACH
-                Double.parseDouble(fields[3]), // SALES
-                orderDate, // ORDERDATE
-                fields[5], // STATUS
-                Integer.parseInt(fields[6]), // QTR_ID
-                Integer.parseInt(fields[7]), // MONTH_ID
-                Integer.parseInt(fields[8]), // YEAR_ID
-                fields[9], // PRODUCTLINE
-                fields[11], // PRODUCTCODE
-                fields[12], // CUSTOMERNAME
-                fields[15], // CITY
-                fields[17], // COUNTRY
-                fields[18], // TERRITORY
-                fields[21] // DEALSIZE
-        );
-    }
-
-    // Split CSV line, handling commas inside quotes
-    private static String[] parseCsvLine(String line) {
-        return line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+                tokens.getInt(COL_ORDER_NUMBER),
+                tokens.getInt(COL_QUANTITY_ORDERED),
+                tokens.getDouble(COL_PRICE_EACH),
+                tokens.getDouble(COL_SALES),
+                tokens.getDate(COL_ORDER_DATE),
+                tokens.getString(COL_STATUS),
+                tokens.getInt(COL_QTR_ID),
+                tokens.getInt(COL_MONTH_ID),
+                tokens.getInt(COL_YEAR_ID),
+                tokens.getString(COL_PRODUCT_LINE),
+                tokens.getString(COL_PRODUCT_CODE),
+                tokens.getString(COL_CUSTOMER_NAME),
+                tokens.getString(COL_CITY),
+                tokens.getString(COL_COUNTRY),
+                tokens.getString(COL_TERRITORY),
+                tokens.getString(COL_DEAL_SIZE));
     }
 
     // Getters
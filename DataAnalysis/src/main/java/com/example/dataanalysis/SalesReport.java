@@ -0,0 +1,190 @@
+package com.example.dataanalysis;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.dataanalysis.SalesAggregators.CountBy;
+import com.example.dataanalysis.SalesAggregators.HighValueOrders;
+import com.example.dataanalysis.SalesAggregators.QuantityBy;
+import com.example.dataanalysis.SalesAggregators.RevenueBy;
+import com.example.dataanalysis.SalesAggregators.RevenueByYear;
+import com.example.dataanalysis.SalesAggregators.Totals;
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// The printAnalysis report: registers the queries each section needs on one
+// FusedScan and renders the sections from their state. Feed it rows in memory or
+// streamed (it is itself an aggregator), then print().
+public class SalesReport implements SalesAggregator {
+
+    private final int topN;
+    private final double highValueThreshold;
+    private final int highValueLimit;
+
+    private final FusedScan scan;
+    private final Totals totals;
+    private final RevenueBy revenueByProductLine;
+    private final RevenueBy revenueByTerritory;
+    private final RevenueBy revenueByDealSize;
+    private final RevenueBy revenueByCustomer;
+    private final RevenueBy revenueByCountry;
+    private final RevenueByYear revenueByYear;
+    private final QuantityBy quantityByProductLine;
+    private final CountBy statusCounts;
+    private final HighValueOrders highValueOrders;
+
+    // Same settings printAnalysis has always used
+    public SalesReport() {
+        this(10, 10000.0, 5);
+    }
+
+    public SalesReport(int topN, double highValueThreshold, int highValueLimit) {
+        this(topN, highValueThreshold, highValueLimit, new FusedScan());
+    }
+
+    // Register the sections on an existing scan, so queries the caller added to it
+    // share the same pass (and are copied/merged along with the report)
+    SalesReport(int topN, double highValueThreshold, int highValueLimit, FusedScan scan) {
+        this.topN = topN;
+        this.scan = scan;
+        this.highValueThreshold = highValueThreshold;
+        this.highValueLimit = highValueLimit;
+
+        // Section 1 (total, count, average, distinct customers) and sections 5/6 share these
+        this.totals = scan.totals();
+        this.revenueByProductLine = scan.revenueBy(TextColumn.PRODUCT_LINE);
+        this.revenueByTerritory = scan.revenueBy(TextColumn.TERRITORY);
+        this.revenueByDealSize = scan.revenueBy(TextColumn.DEAL_SIZE);
+        this.revenueByCustomer = scan.revenueBy(TextColumn.CUSTOMER_NAME);
+        this.revenueByCountry = scan.revenueBy(TextColumn.COUNTRY);
+        this.revenueByYear = scan.revenueByYear();
+        this.quantityByProductLine = scan.quantityBy(TextColumn.PRODUCT_LINE);
+        this.statusCounts = scan.countBy(TextColumn.STATUS);
+        this.highValueOrders = scan.highValueOrders(highValueThreshold, highValueLimit);
+    }
+
+    @Override
+    public Set<Column> columns() {
+        return scan.columns();
+    }
+
+    // Every section is updated in the same fused pass over the rows
+    @Override
+    public void accept(SalesColumns batch, int from, int to) {
+        scan.accept(batch, from, to);
+    }
+
+    @Override
+    public SalesReport emptyCopy() {
+        return new SalesReport(topN, highValueThreshold, highValueLimit, scan.emptyCopy());
+    }
+
+    @Override
+    public void merge(SalesAggregator other) {
+        scan.merge(((SalesReport) other).scan);
+    }
+
+    // The scan behind the report, for looking up its aggregators
+    FusedScan scan() {
+        return scan;
+    }
+
+    public void print(PrintStream out) {
+        out.println("╔═══════════════════════════════════════════════════════════════════════════╗");
+        out.println("║              Sales Data Analysis - Java Streams Demonstration             ║");
+        out.println("╚═══════════════════════════════════════════════════════════════════════════╝");
+        out.println();
+
+        printBasicStats(out);
+        printRevenue(out, "2. REVENUE BY PRODUCT LINE", revenueByProductLine.result());
+        printRevenue(out, "3. REVENUE BY TERRITORY", revenueByTerritory.result());
+        printRevenue(out, "4. REVENUE BY DEAL SIZE", revenueByDealSize.result());
+        printTopCustomers(out);
+        printTopCountries(out);
+        printRevenueByYear(out);
+        printQuantityByProductLine(out);
+        printOrderStatusDistribution(out);
+        printHighValueOrders(out);
+
+        out.println("╔═══════════════════════════════════════════════════════════════════════════╗");
+        out.println("║                         Analysis Complete                                 ║");
+        out.println("╚═══════════════════════════════════════════════════════════════════════════╝");
+    }
+
+    private void printBasicStats(PrintStream out) {
+        out.println("1. TOTAL REVENUE");
+        out.println("   " + "─".repeat(70));
+        out.printf("   Total Revenue: $%,.2f\n", totals.getRevenue());
+        out.printf("   Total Transactions: %,d\n", totals.getCount());
+        out.printf("   Average Order Value: $%,.2f\n", totals.getAverage());
+        out.printf("   Distinct Customers: %,d\n", revenueByCustomer.result().size());
+        out.println();
+    }
+
+    private void printRevenue(PrintStream out, String title, Map<String, Double> revenue) {
+        out.println(title);
+        out.println("   " + "─".repeat(70));
+        revenue.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .forEach(e -> out.printf("   %-30s $%,12.2f\n", e.getKey() + ":", e.getValue()));
+        out.println();
+    }
+
+    private void printTopCustomers(PrintStream out) {
+        out.println("5. TOP " + topN + " CUSTOMERS BY REVENUE");
+        out.println("   " + "─".repeat(70));
+        revenueByCustomer.top(topN).forEach(e -> out.printf("   %-50s $%,10.2f\n", e.getKey(), e.getValue()));
+        out.println();
+    }
+
+    private void printTopCountries(PrintStream out) {
+        out.println("6. TOP " + topN + " COUNTRIES BY REVENUE");
+        out.println("   " + "─".repeat(70));
+        revenueByCountry.top(topN)
+                .forEach(e -> out.printf("   %-30s $%,12.2f\n", e.getKey() + ":", e.getValue()));
+        out.println();
+    }
+
+    private void printRevenueByYear(PrintStream out) {
+        out.println("7. REVENUE BY YEAR");
+        out.println("   " + "─".repeat(70));
+        revenueByYear.result().entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(e -> out.printf("   %d: $%,12.2f\n", e.getKey(), e.getValue()));
+        out.println();
+    }
+
+    private void printQuantityByProductLine(PrintStream out) {
+        out.println("8. QUANTITY SOLD BY PRODUCT LINE");
+        out.println("   " + "─".repeat(70));
+        quantityByProductLine.result().entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(e -> out.printf("   %-30s %,8d units\n", e.getKey() + ":", e.getValue()));
+        out.println();
+    }
+
+    private void printOrderStatusDistribution(PrintStream out) {
+        out.println("9. ORDER STATUS DISTRIBUTION");
+        out.println("   " + "─".repeat(70));
+        statusCounts.result().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> out.printf("   %-30s %,8d orders\n", e.getKey() + ":", e.getValue()));
+        out.println();
+    }
+
+    private void printHighValueOrders(PrintStream out) {
+        out.println("10. HIGH VALUE ORDERS (> $" + String.format("%,.0f", highValueThreshold) + ") - Top "
+                + highValueLimit);
+        out.println("    " + "─".repeat(70));
+        highValueOrders.result()
+                .forEach(record -> out.printf(
+                        "    Order #%-8d | %-25s | %-20s | $%,10.2f\n",
+                        record.getOrderNumber(),
+                        record.getProductLine(),
+                        record.getCustomerName().substring(0,
+                                Math.min(20, record.getCustomerName().length())),
+                        record.getSales()));
+        out.printf("    Total high-value orders: %d\n", highValueOrders.getMatchCount());
+        out.println();
+    }
+}
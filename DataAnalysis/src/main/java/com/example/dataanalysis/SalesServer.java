@@ -0,0 +1,366 @@
+package com.example.dataanalysis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.dataanalysis.SalesTimeIndex.Bucket;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Resident query server: loads the dataset once and answers the SalesAnalysis queries
+// over HTTP on the loopback interface, as JSON (the report as text), e.g.
+//   GET  /top?by=customer&n=10          GET /revenue?by=territory
+//   GET  /high-value?threshold=9000&offset=0&limit=20
+//   GET  /revenue-by-period?bucket=month&from=2004-01-01&to=2004-12-31
+//   POST /reload                        re-run the loader and swap the new data in
+// See routes() for the full list. Requests run on a fixed pool of workers with a
+// bounded queue; when both are full the accepting thread runs the request itself, so
+// accepting slows down instead of queueing without limit. Each request reads the current
+// SalesAnalysis once and answers from it, and a reload publishes the freshly loaded one
+// with one volatile write: in-flight queries finish on the data they started with, and
+// neither queries nor reloads wait for each other. Results are cached per dataset as usual.
+public class SalesServer implements Closeable {
+
+    // How the server gets its data, initially and on every reload
+    @FunctionalInterface
+    public interface Loader {
+        SalesAnalysis load() throws IOException;
+    }
+
+    static final int QUEUED_PER_WORKER = 64;
+
+    private final Loader loader;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, Route> routes = routes();
+    private volatile SalesAnalysis analysis;
+    private volatile long reloads;
+
+    // Serve csvPath (a file or a partitioned directory) on port (0 picks a free one)
+    public SalesServer(String csvPath, boolean exactMoney, int port) throws IOException {
+        this(() -> new SalesAnalysis(csvPath, exactMoney), port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SalesServer(Loader loader, int port, int workerThreads) throws IOException {
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("workerThreads must be positive");
+        }
+        this.loader = loader;
+        this.analysis = loader.load();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUED_PER_WORKER * workerThreads), runnable -> {
+                    Thread thread = new Thread(runnable, "sales-server-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(workers);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // The bound port, e.g. after constructing with port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // The dataset queries are currently answered from
+    public SalesAnalysis getAnalysis() {
+        return analysis;
+    }
+
+    // Load the data again and swap it in; returns the new row count. Queries keep running on
+    // the old data meanwhile. If the load fails the old data stays. Reloads run one at a time.
+    public synchronized long reload() throws IOException {
+        SalesAnalysis next = loader.load();
+        analysis = next;
+        reloads++;
+        return next.getTotalTransactions();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    // One query: answers a request from one consistent dataset and its parameters
+    private interface Route {
+        Object answer(SalesAnalysis analysis, Map<String, String> params) throws IOException;
+    }
+
+    private Map<String, Route> routes() {
+        Map<String, Route> routes = new LinkedHashMap<>();
+        routes.put("/health", (a, p) -> map("rows", a.getTotalTransactions(), "reloads", reloads));
+        routes.put("/totals", (a, p) -> map("totalRevenue", a.getTotalRevenue(),
+                "totalTransactions", a.getTotalTransactions(), "averageOrderValue", a.getAverageOrderValue(),
+                "distinctCustomers", a.getDistinctCustomerCount()));
+        routes.put("/revenue", (a, p) -> {
+            String by = param(p, "by", "productLine");
+            switch (by) {
+            case "productLine":
+                return a.getRevenueByProductLine();
+            case "territory":
+                return a.getRevenueByTerritory();
+            case "dealSize":
+                return a.getRevenueByDealSize();
+            case "year":
+                return a.getRevenueByYear();
+            default:
+                throw new IllegalArgumentException("by must be productLine, territory, dealSize or year: " + by);
+            }
+        });
+        routes.put("/quantity", (a, p) -> a.getQuantityByProductLine());
+        routes.put("/status", (a, p) -> a.getOrderStatusDistribution());
+        routes.put("/top", (a, p) -> {
+            int n = intParam(p, "n", 10);
+            String by = param(p, "by", "customer");
+            if (by.equals("customer")) {
+                return p.containsKey("year") ? a.getTopCustomers(n, intParam(p, "year", 0)) : a.getTopCustomers(n);
+            } else if (by.equals("country")) {
+                return a.getTopCountries(n);
+            }
+            throw new IllegalArgumentException("by must be customer or country: " + by);
+        });
+        routes.put("/high-value", (a, p) -> a.getHighValueOrders(doubleParam(p, "threshold", 10000.0),
+                intParam(p, "offset", 0), intParam(p, "limit", 20)));
+        routes.put("/orders", (a, p) -> {
+            if (p.containsKey("customer")) {
+                return a.getOrdersForCustomer(p.get("customer"));
+            } else if (p.containsKey("country")) {
+                return a.getOrdersForCountry(p.get("country"));
+            } else if (p.containsKey("productLine")) {
+                return a.getOrdersForProductLine(p.get("productLine"));
+            } else if (p.containsKey("orderNumber")) {
+                return a.getOrderLines(intParam(p, "orderNumber", 0));
+            }
+            throw new IllegalArgumentException("Give one of customer, country, productLine or orderNumber");
+        });
+        routes.put("/revenue-between", (a, p) -> {
+            LocalDate from = dateParam(p, "from");
+            LocalDate to = dateParam(p, "to");
+            return map("revenue", a.getRevenueBetween(from, to), "quantity", a.getQuantityBetween(from, to),
+                    "orderLines", a.getOrderCountBetween(from, to));
+        });
+        routes.put("/revenue-by-period", (a, p) -> a.getRevenueByPeriod(
+                Bucket.valueOf(param(p, "bucket", "month").toUpperCase(Locale.ROOT)),
+                dateParam(p, "from"), dateParam(p, "to")));
+        routes.put("/rolling-revenue", (a, p) -> a.getRollingRevenue(dateParam(p, "from"), dateParam(p, "to"),
+                intParam(p, "days", 7)));
+        routes.put("/report", (a, p) -> {
+            ByteArrayOutputStream text = new ByteArrayOutputStream();
+            a.printAnalysis(new PrintStream(text, true, StandardCharsets.UTF_8));
+            return new Text(text.toString(StandardCharsets.UTF_8));
+        });
+        routes.put("/metrics", (a, p) -> param(p, "format", "json").equals("text")
+                ? new Text(SalesMetrics.global().toText()) : new Json(SalesMetrics.global().toJson()));
+        return routes;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/reload")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, error("Use POST /reload"));
+                    return;
+                }
+                send(exchange, 200, map("rows", reload()));
+                return;
+            }
+            Route route = routes.get(path);
+            if (route == null) {
+                send(exchange, 404, error("Unknown query " + path + "; try one of " + routes.keySet()));
+            } else if (!method.equals("GET")) {
+                send(exchange, 405, error("Use GET " + path));
+            } else {
+                send(exchange, 200, route.answer(analysis, params(exchange.getRequestURI().getRawQuery())));
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            send(exchange, 500, error(String.valueOf(e)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        String contentType = body instanceof Text ? "text/plain; charset=utf-8" : "application/json";
+        String text;
+        if (body instanceof Text) {
+            text = ((Text) body).text;
+        } else if (body instanceof Json) {
+            text = ((Json) body).json;
+        } else {
+            StringBuilder json = new StringBuilder();
+            appendJson(json, body);
+            text = json.toString();
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Answers sent as they are rather than converted to JSON
+    private static final class Text {
+        final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Json {
+        final String json;
+
+        Json(String json) {
+            this.json = json;
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        return map("error", message);
+    }
+
+    // Ordered map of alternating keys and values
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    // Query string parameters, URL-decoded; the last of repeated names wins
+    static Map<String, String> params(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String param(Map<String, String> params, String name, String defaultValue) {
+        return params.getOrDefault(name, defaultValue);
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static double doubleParam(Map<String, String> params, String name, double defaultValue) {
+        String value = params.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static LocalDate dateParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter " + name + " (yyyy-mm-dd)");
+        }
+        return LocalDate.parse(value);
+    }
+
+    // JSON for the query results: maps, lists, map entries (as {"key":..,"value":..}),
+    // SalesRecords, HighValueOrderPages, numbers, strings and dates
+    static void appendJson(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            out.append(Double.isFinite(d) ? Double.toString(d) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map) {
+            out.append('{');
+            Iterator<? extends Map.Entry<?, ?>> entries = ((Map<?, ?>) value).entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<?, ?> entry = entries.next();
+                appendString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                appendJson(out, entry.getValue());
+                if (entries.hasNext()) {
+                    out.append(',');
+                }
+            }
+            out.append('}');
+        } else if (value instanceof Collection) {
+            out.append('[');
+            Iterator<?> items = ((Collection<?>) value).iterator();
+            while (items.hasNext()) {
+                appendJson(out, items.next());
+                if (items.hasNext()) {
+                    out.append(',');
+                }
+            }
+            out.append(']');
+        } else if (value instanceof Map.Entry) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) value;
+            appendJson(out, map("key", String.valueOf(entry.getKey()), "value", entry.getValue()));
+        } else if (value instanceof SalesRecord) {
+            SalesRecord r = (SalesRecord) value;
+            appendJson(out, map("orderNumber", r.getOrderNumber(), "quantityOrdered", r.getQuantityOrdered(),
+                    "priceEach", r.getPriceEach(), "sales", r.getSales(), "orderDate", r.getOrderDate(),
+                    "status", r.getStatus(), "productLine", r.getProductLine(), "productCode", r.getProductCode(),
+                    "customerName", r.getCustomerName(), "city", r.getCity(), "country", r.getCountry(),
+                    "territory", r.getTerritory(), "dealSize", r.getDealSize()));
+        } else if (value instanceof HighValueOrderPage) {
+            HighValueOrderPage page = (HighValueOrderPage) value;
+            appendJson(out, map("totalMatches", page.getTotalMatches(), "offset", page.getOffset(),
+                    "orders", page.getOrders()));
+        } else {
+            appendString(out, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
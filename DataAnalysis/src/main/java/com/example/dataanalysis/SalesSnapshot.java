@@ -0,0 +1,483 @@
+package com.example.dataanalysis;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.zip.CRC32;
+
+import com.example.dataanalysis.OffHeapSalesColumns.DoubleSegments;
+import com.example.dataanalysis.OffHeapSalesColumns.IntSegments;
+import com.example.dataanalysis.OffHeapSalesColumns.LongSegments;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+// Versioned binary snapshot of a SalesColumns, so later runs skip CSV parsing.
+//
+// Layout (little-endian):
+//   header  magic "SALESNAP", int version, int rows, long sourceSize, long sourceMtime,
+//           long crc32 of payload, long payload length
+//   payload int flags (FLAG_EXACT_MONEY), numeric columns as raw arrays (orderNumber,
+//           quantityOrdered, priceEach, sales, orderEpochDay, qtrId, monthId, yearId), then
+//           priceEachCents and salesCents as longs if FLAG_EXACT_MONEY is set, then for each
+//           TextColumn its dictionary (int count, then int length + UTF-8 bytes per value)
+//           and its int codes
+//
+// Files are written to a temp file and atomically renamed, so concurrent readers never see
+// a partial snapshot. read() streams the file through a small buffer into the column arrays;
+// map() maps each column on its own and leaves it there (OffHeapSalesColumns). Neither maps
+// the whole file at once, so snapshots may be larger than one mapping (2 GB).
+public final class SalesSnapshot {
+
+    static final int VERSION = 2;
+    static final int FLAG_EXACT_MONEY = 1;
+    private static final byte[] MAGIC = "SALESNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 8 + 4 + 4 + 8 + 8 + 8 + 8;
+    private static final int ROWS_OFFSET = 8 + 4;
+    private static final TextColumn[] TEXT_COLUMNS = TextColumn.values();
+    // Bytes per row of the columns every snapshot has (6 int, 2 double, one int per text column)
+    private static final int ROW_BYTES = 6 * Integer.BYTES + 2 * Double.BYTES + TEXT_COLUMNS.length * Integer.BYTES;
+
+    private SalesSnapshot() {
+    }
+
+    // Where the snapshot for a CSV lives by default: next to it, with a .snap suffix
+    public static Path defaultPath(Path csvPath) {
+        return csvPath.resolveSibling(csvPath.getFileName() + ".snap");
+    }
+
+    // True when the snapshot exists, is this version and was taken from the CSV as it is now
+    public static boolean isCurrent(Path snapshot, Path sourceCsv) throws IOException {
+        if (!Files.isRegularFile(snapshot) || Files.size(snapshot) < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading
+            }
+            header.flip();
+            if (!hasMagic(header) || header.getInt() != VERSION) {
+                return false;
+            }
+            header.getInt(); // rows
+            return header.getLong() == Files.size(sourceCsv)
+                    && header.getLong() == Files.getLastModifiedTime(sourceCsv).toMillis();
+        }
+    }
+
+    public static void write(SalesColumns columns, Path snapshot, Path sourceCsv) throws IOException {
+        if (columns.isOffHeap()) {
+            throw new IllegalArgumentException("Off-heap columns cannot be snapshotted; snapshot the on-heap source");
+        }
+        long sourceSize = sourceCsv == null ? -1 : Files.size(sourceCsv);
+        long sourceMtime = sourceCsv == null ? -1 : Files.getLastModifiedTime(sourceCsv).toMillis();
+        Path dir = snapshot.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_SIZE);
+                PayloadWriter out = new PayloadWriter(channel);
+                int rows = columns.size;
+                out.putInt(columns.hasExactMoney() ? FLAG_EXACT_MONEY : 0);
+                out.putInts(columns.orderNumber, rows);
+                out.putInts(columns.quantityOrdered, rows);
+                out.putDoubles(columns.priceEach, rows);
+                out.putDoubles(columns.sales, rows);
+                out.putInts(columns.orderEpochDay, rows);
+                out.putInts(columns.qtrId, rows);
+                out.putInts(columns.monthId, rows);
+                out.putInts(columns.yearId, rows);
+                if (columns.hasExactMoney()) {
+                    out.putLongs(columns.priceEachCents, rows);
+                    out.putLongs(columns.salesCents, rows);
+                }
+                for (TextColumn column : TEXT_COLUMNS) {
+                    StringDictionary dictionary = columns.dictionary(column);
+                    out.putInt(dictionary.size());
+                    for (int code = 0; code < dictionary.size(); code++) {
+                        byte[] bytes = dictionary.get(code).getBytes(StandardCharsets.UTF_8);
+                        out.putInt(bytes.length);
+                        out.putBytes(bytes);
+                    }
+                    out.putInts(columns.codes(column), rows);
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.put(MAGIC).putInt(VERSION).putInt(rows).putLong(sourceSize).putLong(sourceMtime)
+                        .putLong(out.crc.getValue()).putLong(out.length).flip();
+                channel.write(header, 0);
+                channel.force(false);
+            }
+            try {
+                // createTempFile makes the file owner-only; snapshots are shared between processes
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-r--r--"));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static SalesColumns read(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, snapshot);
+            int rows = header.rows;
+            PayloadReader in = new PayloadReader(channel);
+            int flags = in.getInt();
+            int[] orderNumber = in.getInts(rows);
+            int[] quantityOrdered = in.getInts(rows);
+            double[] priceEach = in.getDoubles(rows);
+            double[] sales = in.getDoubles(rows);
+            int[] orderEpochDay = in.getInts(rows);
+            int[] qtrId = in.getInts(rows);
+            int[] monthId = in.getInts(rows);
+            int[] yearId = in.getInts(rows);
+            long[] priceEachCents = null;
+            long[] salesCents = null;
+            if ((flags & FLAG_EXACT_MONEY) != 0) {
+                priceEachCents = in.getLongs(rows);
+                salesCents = in.getLongs(rows);
+            }
+            int[][] codes = new int[TEXT_COLUMNS.length][];
+            StringDictionary[] dictionaries = new StringDictionary[TEXT_COLUMNS.length];
+            for (TextColumn column : TEXT_COLUMNS) {
+                dictionaries[column.ordinal()] = getDictionary(in);
+                codes[column.ordinal()] = in.getInts(rows);
+            }
+            // Everything has been read (and summed) once the reader is at the end of the file
+            if (in.position() != channel.size() || in.crc.getValue() != header.checksum) {
+                throw new IOException("Snapshot checksum mismatch: " + snapshot);
+            }
+            return new SalesColumns(rows, orderNumber, quantityOrdered, priceEach, sales, orderEpochDay,
+                    qtrId, monthId, yearId, codes, dictionaries, priceEachCents, salesCents);
+        }
+    }
+
+    // Like read, but the columns stay in the mapped file instead of being copied onto the heap
+    // (only the dictionaries are read). Each column is mapped in segments (see
+    // OffHeapSalesColumns), so no mapping exceeds 2 GB whatever the row count. The mappings
+    // live as long as the returned columns.
+    public static OffHeapSalesColumns map(Path snapshot) throws IOException {
+        return map(snapshot, OffHeapSalesColumns.SEGMENT_SHIFT);
+    }
+
+    // As map(snapshot), with segments of 2^segmentShift rows
+    static OffHeapSalesColumns map(Path snapshot, int segmentShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, snapshot);
+            if (checksum(channel) != header.checksum) {
+                throw new IOException("Snapshot checksum mismatch: " + snapshot);
+            }
+            int rows = header.rows;
+            PayloadReader in = new PayloadReader(channel);
+            int flags = in.getInt();
+            Mapper map = new Mapper(channel, in, rows, segmentShift);
+            IntSegments orderNumber = new IntSegments(map.next(Integer.BYTES), segmentShift);
+            IntSegments quantityOrdered = new IntSegments(map.next(Integer.BYTES), segmentShift);
+            DoubleSegments priceEach = new DoubleSegments(map.next(Double.BYTES), segmentShift);
+            DoubleSegments sales = new DoubleSegments(map.next(Double.BYTES), segmentShift);
+            IntSegments orderEpochDay = new IntSegments(map.next(Integer.BYTES), segmentShift);
+            IntSegments qtrId = new IntSegments(map.next(Integer.BYTES), segmentShift);
+            IntSegments monthId = new IntSegments(map.next(Integer.BYTES), segmentShift);
+            IntSegments yearId = new IntSegments(map.next(Integer.BYTES), segmentShift);
+            LongSegments priceEachCents = null;
+            LongSegments salesCents = null;
+            if ((flags & FLAG_EXACT_MONEY) != 0) {
+                priceEachCents = new LongSegments(map.next(Long.BYTES), segmentShift);
+                salesCents = new LongSegments(map.next(Long.BYTES), segmentShift);
+            }
+            IntSegments[] codes = new IntSegments[TEXT_COLUMNS.length];
+            StringDictionary[] dictionaries = new StringDictionary[TEXT_COLUMNS.length];
+            for (TextColumn column : TEXT_COLUMNS) {
+                dictionaries[column.ordinal()] = getDictionary(in);
+                codes[column.ordinal()] = new IntSegments(map.next(Integer.BYTES), segmentShift);
+            }
+            return new OffHeapSalesColumns(rows, orderNumber, quantityOrdered, priceEach, sales, orderEpochDay,
+                    qtrId, monthId, yearId, codes, dictionaries, priceEachCents, salesCents);
+        }
+    }
+
+    // Maps the column at the reader's position, one mapping per segment, and skips past it
+    private static class Mapper {
+        private final FileChannel channel;
+        private final PayloadReader in;
+        private final int rows;
+        private final int shift;
+
+        Mapper(FileChannel channel, PayloadReader in, int rows, int shift) {
+            this.channel = channel;
+            this.in = in;
+            this.rows = rows;
+            this.shift = shift;
+        }
+
+        ByteBuffer[] next(int width) throws IOException {
+            ByteBuffer[] segments = new ByteBuffer[OffHeapSalesColumns.segmentCount(rows, shift)];
+            long position = in.position();
+            for (int i = 0; i < segments.length; i++) {
+                long bytes = Math.min(1L << shift, rows - ((long) i << shift)) * width;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+                position += bytes;
+            }
+            in.skip((long) rows * width);
+            return segments;
+        }
+    }
+
+    // The fixed header, checked against the file: magic, version and payload length
+    private static Header readHeader(FileChannel channel, Path snapshot) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a sales snapshot (too short): " + snapshot);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new EOFException("Truncated snapshot: " + snapshot);
+            }
+        }
+        buffer.flip();
+        if (!hasMagic(buffer)) {
+            throw new IOException("Not a sales snapshot: " + snapshot);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + snapshot);
+        }
+        Header header = new Header();
+        header.rows = buffer.getInt();
+        buffer.getLong(); // source size
+        buffer.getLong(); // source mtime
+        header.checksum = buffer.getLong();
+        // The columns alone take ROW_BYTES per row, so a row count the file cannot hold is
+        // rejected here, before any array is allocated for it
+        long payload = buffer.getLong();
+        if (payload != channel.size() - HEADER_SIZE || header.rows < 0 || (long) header.rows * ROW_BYTES > payload) {
+            throw new IOException("Truncated snapshot: " + snapshot);
+        }
+        return header;
+    }
+
+    private static class Header {
+        int rows;
+        long checksum;
+    }
+
+    // CRC32 of the whole payload, read through a 1 MB buffer
+    private static long checksum(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        for (long position = HEADER_SIZE; position < channel.size(); ) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += n;
+        }
+        return crc.getValue();
+    }
+
+    private static StringDictionary getDictionary(PayloadReader in) throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        int count = in.getInt();
+        for (int code = 0; code < count; code++) {
+            dictionary.encode(new String(in.getBytes(in.getInt()), StandardCharsets.UTF_8));
+        }
+        return dictionary;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Buffers the payload in 1 MB pieces, keeping a running CRC32 and length
+    private static class PayloadWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32 crc = new CRC32();
+        long length;
+
+        PayloadWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        void putInts(int[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensure(Integer.BYTES);
+                int n = Math.min(buffer.remaining() / Integer.BYTES, count - offset);
+                buffer.asIntBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                offset += n;
+            }
+        }
+
+        void putDoubles(double[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensure(Double.BYTES);
+                int n = Math.min(buffer.remaining() / Double.BYTES, count - offset);
+                buffer.asDoubleBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                offset += n;
+            }
+        }
+
+        void putLongs(long[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensure(Long.BYTES);
+                int n = Math.min(buffer.remaining() / Long.BYTES, count - offset);
+                buffer.asLongBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + n * Long.BYTES);
+                offset += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            length += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Reads the payload in order through a 1 MB buffer, keeping a running CRC32 of the bytes it
+    // has read, so a snapshot of any size is read without mapping all of it. skip() passes over
+    // bytes without reading (or summing) them.
+    private static class PayloadReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32 crc = new CRC32();
+        private long end = HEADER_SIZE; // file position just past the buffered bytes
+
+        PayloadReader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        // File position of the next unread byte
+        long position() {
+            return end - buffer.remaining();
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        byte[] getBytes(int count) throws IOException {
+            if (count < 0) {
+                throw new IOException("Corrupt snapshot: negative length");
+            }
+            byte[] bytes = new byte[count];
+            for (int offset = 0; offset < count; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), count - offset);
+                buffer.get(bytes, offset, n);
+                offset += n;
+            }
+            return bytes;
+        }
+
+        int[] getInts(int count) throws IOException {
+            int[] values = new int[count];
+            for (int offset = 0; offset < count; ) {
+                ensure(Integer.BYTES);
+                int n = Math.min(buffer.remaining() / Integer.BYTES, count - offset);
+                buffer.asIntBuffer().get(values, offset, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                offset += n;
+            }
+            return values;
+        }
+
+        double[] getDoubles(int count) throws IOException {
+            double[] values = new double[count];
+            for (int offset = 0; offset < count; ) {
+                ensure(Double.BYTES);
+                int n = Math.min(buffer.remaining() / Double.BYTES, count - offset);
+                buffer.asDoubleBuffer().get(values, offset, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                offset += n;
+            }
+            return values;
+        }
+
+        long[] getLongs(int count) throws IOException {
+            long[] values = new long[count];
+            for (int offset = 0; offset < count; ) {
+                ensure(Long.BYTES);
+                int n = Math.min(buffer.remaining() / Long.BYTES, count - offset);
+                buffer.asLongBuffer().get(values, offset, n);
+                buffer.position(buffer.position() + n * Long.BYTES);
+                offset += n;
+            }
+            return values;
+        }
+
+        void skip(long bytes) {
+            long buffered = Math.min(bytes, buffer.remaining());
+            buffer.position(buffer.position() + (int) buffered);
+            if (bytes > buffered) {
+                end += bytes - buffered;
+                buffer.limit(0);
+            }
+        }
+
+        // Make at least 'bytes' bytes available, reading more of the file after the unread rest
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                int start = buffer.position();
+                int n = channel.read(buffer, end);
+                if (n < 0) {
+                    throw new EOFException("Truncated snapshot");
+                }
+                crc.update(buffer.duplicate().flip().position(start));
+                end += n;
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.dataanalysis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Loads generated datasets of growing size and reports, for each: load time and MB/s,
+// heap retained per row, and the latency of every query (cache off, best of a few runs).
+// Datasets come from SalesDataGenerator and are kept for reuse. Sizes run smallest first
+// and the runner stops at the first one that does not fit in the heap, printing how many
+// rows the heap should hold at the per-row cost measured so far.
+public class ScaleTestRunner {
+
+    private static final int QUERY_RUNS = 3;
+
+    private final Path dir;
+    private final long seed;
+    private final int threads;
+    private final PrintStream out;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private double bytesPerRow = Double.NaN;
+
+    public ScaleTestRunner(Path dir, long seed, int threads, PrintStream out) {
+        this.dir = dir;
+        this.seed = seed;
+        this.threads = threads;
+        this.out = out;
+    }
+
+    // Run every size in order; false if one ran out of memory
+    public boolean run(long... sizes) throws IOException {
+        out.printf(Locale.ROOT, "Max heap: %,d MB, seed %d, %s%n", Runtime.getRuntime().maxMemory() >> 20, seed,
+                threads > 0 ? threads + " query threads" : "sequential queries");
+        for (long size : sizes) {
+            if (!runSize(size)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean runSize(long size) throws IOException {
+        Path csv = dataset(size);
+        long fileBytes = Files.size(csv);
+        out.printf(Locale.ROOT, "%n== %s (%,d bytes) ==%n", csv.getFileName(), fileBytes);
+
+        long before = usedHeapAfterGc();
+        SalesAnalysis analysis;
+        long start = System.nanoTime();
+        try {
+            analysis = new SalesAnalysis(csv.toString());
+        } catch (OutOfMemoryError e) {
+            reportOutOfMemory(before);
+            return false;
+        }
+        double loadSeconds = (System.nanoTime() - start) / 1e9;
+        long rows = analysis.getTotalTransactions();
+        long retained = usedHeapAfterGc() - before;
+        bytesPerRow = (double) retained / rows;
+        out.printf(Locale.ROOT, "rows             %,d%n", rows);
+        out.printf(Locale.ROOT, "load             %.2f s (%.1f MB/s, %,.0f rows/s)%n", loadSeconds,
+                fileBytes / 1e6 / loadSeconds, rows / loadSeconds);
+        out.printf(Locale.ROOT, "retained heap    %,d MB (%.1f bytes/row, %.2fx the CSV)%n", retained >> 20,
+                bytesPerRow, (double) retained / fileBytes);
+
+        analysis.setQueryCache(new QueryCache(0));
+        try (QueryExecutor executor = threads > 0 ? QueryExecutor.parallel(threads) : QueryExecutor.sequential()) {
+            analysis.setQueryExecutor(executor);
+            for (Map.Entry<String, Consumer<SalesAnalysis>> query : queries().entrySet()) {
+                out.printf(Locale.ROOT, "%-28s %10.3f ms%n", query.getKey(), bestMillis(analysis, query.getValue()));
+            }
+        } catch (OutOfMemoryError e) {
+            reportOutOfMemory(before);
+            return false;
+        }
+        Reference.reachabilityFence(analysis);
+        return true;
+    }
+
+    private Path dataset(long size) throws IOException {
+        Path csv = dir.resolve("sales-" + size + "-seed" + seed + ".csv");
+        if (!Files.isRegularFile(csv)) {
+            out.printf(Locale.ROOT, "Generating %s ...%n", csv);
+            Path temp = Files.createTempFile(dir, csv.getFileName().toString(), ".tmp");
+            try {
+                new SalesDataGenerator(seed).writeBytes(temp, size);
+                Files.move(temp, csv);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return csv;
+    }
+
+    private void reportOutOfMemory(long baseline) {
+        out.println("OUT OF MEMORY");
+        if (!Double.isNaN(bytesPerRow)) {
+            long available = Runtime.getRuntime().maxMemory() - baseline;
+            out.printf(Locale.ROOT, "At %.1f bytes/row this heap holds about %,d rows%n", bytesPerRow,
+                    (long) (available / bytesPerRow));
+        }
+    }
+
+    private static double bestMillis(SalesAnalysis analysis, Consumer<SalesAnalysis> query) {
+        query.accept(analysis); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < QUERY_RUNS; run++) {
+            long start = System.nanoTime();
+            query.accept(analysis);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // The 13 report queries plus the whole report
+    static Map<String, Consumer<SalesAnalysis>> queries() {
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+        Map<String, Consumer<SalesAnalysis>> queries = new LinkedHashMap<>();
+        queries.put("getTotalRevenue", SalesAnalysis::getTotalRevenue);
+        queries.put("getRevenueByProductLine", SalesAnalysis::getRevenueByProductLine);
+        queries.put("getTopCustomers(5)", a -> a.getTopCustomers(5));
+        queries.put("getRevenueByTerritory", SalesAnalysis::getRevenueByTerritory);
+        queries.put("getQuantityByProductLine", SalesAnalysis::getQuantityByProductLine);
+        queries.put("getAverageOrderValue", SalesAnalysis::getAverageOrderValue);
+        queries.put("getRevenueByYear", SalesAnalysis::getRevenueByYear);
+        queries.put("getHighValueOrders(10000)", a -> a.getHighValueOrders(10000.0));
+        queries.put("getTopCountries(5)", a -> a.getTopCountries(5));
+        queries.put("getOrderStatusDistribution", SalesAnalysis::getOrderStatusDistribution);
+        queries.put("getRevenueByDealSize", SalesAnalysis::getRevenueByDealSize);
+        queries.put("getTotalTransactions", SalesAnalysis::getTotalTransactions);
+        queries.put("getDistinctCustomerCount", SalesAnalysis::getDistinctCustomerCount);
+        queries.put("printAnalysis", a -> a.printAnalysis(nowhere));
+        return queries;
+    }
+
+    // Usage: ScaleTestRunner [--seed N] [--dir DIR] [--threads N] [SIZE...]   e.g. 100MB 1GB 10GB
+    public static void main(String[] args) throws IOException {
+        long seed = SalesDataGenerator.DEFAULT_SEED;
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"));
+        int threads = 0;
+        List<Long> sizes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--dir") && i + 1 < args.length) {
+                dir = Paths.get(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                sizes.add(SalesDataGenerator.parseSize(args[i]));
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes = List.of(10L << 20, 100L << 20, 1L << 30);
+        }
+        long[] ordered = sizes.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (!new ScaleTestRunner(dir, seed, threads, System.out).run(ordered)) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.dataanalysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.example.dataanalysis.SalesColumns.Column;
+
+// Constant-memory, single-pass analysis for CSVs larger than the heap (or stdin).
+// Rows are decoded into one reusable column batch, handed to every registered
+// aggregator, then dropped; only the aggregators' state survives the pass. Only the
+// columns some aggregator reads are decoded, and each batch starts empty dictionaries:
+// a group-by keeps its own copy of the values it groups by (see CodeRemapper), so
+// nothing else grows with the number of distinct values.
+public class StreamingSalesAnalysis {
+
+    static final int DEFAULT_BATCH_ROWS = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    private final List<SalesAggregator> aggregators = new ArrayList<>();
+    private SalesAggregator[] fused = new SalesAggregator[0];
+    private final int batchRows;
+    private final boolean exactMoney;
+
+    public StreamingSalesAnalysis() {
+        this(DEFAULT_BATCH_ROWS);
+    }
+
+    public StreamingSalesAnalysis(int batchRows) {
+        this(batchRows, false);
+    }
+
+    // exactMoney: batches carry prices and sales as long cents (see SalesColumns)
+    public StreamingSalesAnalysis(int batchRows, boolean exactMoney) {
+        if (batchRows <= 0) {
+            throw new IllegalArgumentException("batchRows must be positive");
+        }
+        this.batchRows = batchRows;
+        this.exactMoney = exactMoney;
+    }
+
+    public StreamingSalesAnalysis register(SalesAggregator aggregator) {
+        aggregators.add(aggregator);
+        fused = aggregators.toArray(new SalesAggregator[0]);
+        return this;
+    }
+
+    public long run(Path csvPath) throws IOException {
+        try (InputStream in = Files.newInputStream(csvPath)) {
+            return run(in);
+        }
+    }
+
+    // Read the whole stream (header line first) and return the number of rows seen
+    public long run(InputStream in) throws IOException {
+        Set<Column> projection = EnumSet.noneOf(Column.class);
+        for (SalesAggregator aggregator : fused) {
+            projection.addAll(aggregator.columns());
+        }
+        SalesColumns.Builder batch = new SalesColumns.Builder(batchRows, exactMoney, projection);
+        CsvTokenizer tokens = new CsvTokenizer(SalesRecord.COLUMN_COUNT);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int filled = 0;
+        boolean headerSkipped = false;
+        boolean eof = false;
+        long rows = 0;
+
+        while (!eof) {
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                eof = true;
+            } else {
+                filled += read;
+            }
+            ByteBuffer view = ByteBuffer.wrap(buffer);
+            int pos = 0;
+            while (pos < filled) {
+                int next = tokens.nextLine(view, pos, filled);
+                if (!tokens.endedAtNewline() && !eof) {
+                    break; // partial line, wait for more bytes
+                }
+                pos = next;
+                if (!headerSkipped) {
+                    headerSkipped = true;
+                } else if (!tokens.isBlank()) {
+                    batch.add(tokens);
+                    if (batch.size() == batchRows) {
+                        rows += flush(batch);
+                    }
+                }
+            }
+            // Keep the partial line; grow the buffer if one line fills it
+            System.arraycopy(buffer, pos, buffer, 0, filled - pos);
+            filled -= pos;
+            if (filled == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        rows += flush(batch);
+        return rows;
+    }
+
+    private int flush(SalesColumns.Builder batch) {
+        int size = batch.size();
+        if (size > 0) {
+            FusedScan.run(batch.view(), 0, size, fused);
+            batch.reset();
+        }
+        return size;
+    }
+
+    // Print the full report after one pass over the stream
+    public static void printAnalysis(InputStream in) throws IOException {
+        printAnalysis(in, false);
+    }
+
+    public static void printAnalysis(InputStream in, boolean exactMoney) throws IOException {
+        SalesReport report = new SalesReport();
+        new StreamingSalesAnalysis(DEFAULT_BATCH_ROWS, exactMoney).register(report).run(in);
+        report.print(System.out);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.dataanalysis;
+
+import java.util.Arrays;
+
+// Maps strings to dense int codes (0, 1, 2, ... in first-seen order).
+// Open addressing keyed on String.hashCode(), so a CSV field can be looked up
+// straight from the tokenizer and only becomes a String the first time it is seen.
+public class StringDictionary {
+
+    private String[] values;
+    private int[] hashes;
+    private int[] slots; // code + 1, 0 = empty
+    private int size;
+
+    public StringDictionary() {
+        this.values = new String[16];
+        this.hashes = new int[16];
+        this.slots = new int[32];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int code) {
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("code " + code + ", size " + size);
+        }
+        return values[code];
+    }
+
+    // Code for value, adding it if new
+    public int encode(String value) {
+        int hash = value.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int code = slots[slot] - 1;
+            if (code < 0) {
+                return add(slot, hash, value);
+            }
+            if (hashes[code] == hash && values[code].equals(value)) {
+                return code;
+            }
+        }
+    }
+
+    // Code for a tokenizer field, adding it if new
+    public int encode(CsvTokenizer tokens, int field) {
+        int hash = tokens.fieldHash(field);
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int code = slots[slot] - 1;
+            if (code < 0) {
+                return add(slot, hash, tokens.getString(field));
+            }
+            if (hashes[code] == hash && tokens.fieldEquals(field, values[code])) {
+                return code;
+            }
+        }
+    }
+
+    // Code for value, or -1 if it is not in the dictionary
+    public int find(String value) {
+        int hash = value.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int code = slots[slot] - 1;
+            if (code < 0) {
+                return -1;
+            }
+            if (hashes[code] == hash && values[code].equals(value)) {
+                return code;
+            }
+        }
+    }
+
+    private int add(int slot, int hash, String value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int code = size++;
+        values[code] = value;
+        hashes[code] = hash;
+        slots[slot] = code + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = mix(hashes[code]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = code + 1;
+        }
+    }
+
+    // Spread String.hashCode() bits so similar names don't cluster
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.dataanalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Keeps the k best (score, sequence) entries seen so far in a bounded min-heap:
+// O(log k) per accepted entry, O(1) to reject one, O(k) memory. Higher score is
+// better; on equal scores the lower sequence (earlier row / first-seen group) wins,
+// which matches a stable descending sort.
+public class TopK<T> {
+
+    private final int k;
+    private double[] scores;
+    private long[] sequences;
+    private Object[] items;
+    private int size;
+
+    public TopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        this.k = k;
+        int capacity = Math.min(k, 16);
+        this.scores = new double[capacity];
+        this.sequences = new long[capacity];
+        this.items = new Object[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // True when (score, sequence) would make it into the top k; lets callers skip building the item
+    public boolean accepts(double score, long sequence) {
+        return size < k || (k > 0 && better(score, sequence, scores[0], sequences[0]));
+    }
+
+    public void offer(double score, long sequence, T item) {
+        if (size < k) {
+            if (size == scores.length) {
+                int capacity = (int) Math.min(k, Math.max(16L, scores.length * 2L));
+                scores = Arrays.copyOf(scores, capacity);
+                sequences = Arrays.copyOf(sequences, capacity);
+                items = Arrays.copyOf(items, capacity);
+            }
+            set(size, score, sequence, item);
+            siftUp(size++);
+        } else if (accepts(score, sequence)) {
+            set(0, score, sequence, item);
+            siftDown(0);
+        }
+    }
+
+    // Entries best first; the heap itself is left intact
+    public List<T> sorted() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> better(scores[a], sequences[a], scores[b], sequences[b]) ? -1
+                : better(scores[b], sequences[b], scores[a], sequences[a]) ? 1 : 0);
+        List<T> result = new ArrayList<>(size);
+        for (int i : order) {
+            @SuppressWarnings("unchecked")
+            T item = (T) items[i];
+            result.add(item);
+        }
+        return result;
+    }
+
+    // Visit every entry in heap order (not sorted); used to merge one TopK into another
+    public void forEach(Entry<T> visitor) {
+        for (int i = 0; i < size; i++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) items[i];
+            visitor.accept(scores[i], sequences[i], item);
+        }
+    }
+
+    public interface Entry<T> {
+        void accept(double score, long sequence, T item);
+    }
+
+    private static boolean better(double score, long sequence, double otherScore, long otherSequence) {
+        return score > otherScore || (score == otherScore && sequence < otherSequence);
+    }
+
+    private void set(int i, double score, long sequence, Object item) {
+        scores[i] = score;
+        sequences[i] = sequence;
+        items[i] = item;
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        long sequence = sequences[a];
+        Object item = items[a];
+        set(a, scores[b], sequences[b], items[b]);
+        set(b, score, sequence, item);
+    }
+
+    // Min-heap on "worst first": the root is the entry the next better one replaces
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(scores[parent], sequences[parent], scores[i], sequences[i])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && better(scores[worst], sequences[worst], scores[left], sequences[left])) {
+                worst = left;
+            }
+            if (right < size && better(scores[worst], sequences[worst], scores[right], sequences[right])) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+}
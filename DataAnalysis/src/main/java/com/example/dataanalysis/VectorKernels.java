@@ -0,0 +1,177 @@
+package com.example.dataanalysis;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD versions of the Kernels loops, on the platform's preferred vector width. Only
+// loaded when jdk.incubator.vector is in the boot layer; call through Kernels.
+// Floating-point sums keep a Kahan compensation per lane, and lanes are folded in lane
+// order with Kernels.roundingError rather than with reduceLanes (whose order is
+// unspecified), so every result is compensated and reproducible.
+final class VectorKernels {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class, DOUBLES.vectorShape());
+    // As many int lanes as double lanes, so a mask over codes applies to the values
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    private static final int LANES = DOUBLES.length();
+
+    private VectorKernels() {
+    }
+
+    static double sum(double[] values, int from, int to) {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        DoubleVector lost = DoubleVector.zero(DOUBLES);
+        int i = from;
+        for (int bound = from + DOUBLES.loopBound(to - from); i < bound; i += LANES) {
+            DoubleVector value = DoubleVector.fromArray(DOUBLES, values, i).sub(lost);
+            DoubleVector next = acc.add(value);
+            lost = next.sub(acc).sub(value);
+            acc = next;
+        }
+        double sum = 0;
+        double error = 0;
+        for (int lane = 0; lane < LANES; lane++) {
+            double next = sum + acc.lane(lane);
+            error += Kernels.roundingError(sum, acc.lane(lane), next) - lost.lane(lane);
+            sum = next;
+        }
+        for (; i < to; i++) {
+            double next = sum + values[i];
+            error += Kernels.roundingError(sum, values[i], next);
+            sum = next;
+        }
+        return sum + error;
+    }
+
+    static long sum(long[] values, int from, int to) {
+        LongVector acc = LongVector.zero(LONGS);
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LANES) {
+            acc = acc.add(LongVector.fromArray(LONGS, values, i));
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    static int selectAbove(double[] values, int from, int to, double threshold, int[] rows) {
+        int n = 0;
+        int i = from;
+        for (int bound = from + DOUBLES.loopBound(to - from); i < bound; i += LANES) {
+            VectorMask<Double> above = DoubleVector.fromArray(DOUBLES, values, i)
+                    .compare(VectorOperators.GT, threshold);
+            if (above.anyTrue()) {
+                for (long lanes = above.toLong(); lanes != 0; lanes &= lanes - 1) {
+                    rows[n++] = i + Long.numberOfTrailingZeros(lanes);
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (values[i] > threshold) {
+                rows[n++] = i;
+            }
+        }
+        return n;
+    }
+
+    // One masked pass per code: lanes whose code matches add their value (others add 0)
+    static void sumByCode(int[] codes, int codeCount, int[] remap, double[] values, int from, int to,
+            double[] totals, double[] errors, long[] counts) {
+        int bound = from + DOUBLES.loopBound(to - from);
+        DoubleVector zero = DoubleVector.zero(DOUBLES);
+        for (int code = 0; code < codeCount; code++) {
+            DoubleVector acc = zero;
+            DoubleVector lost = zero;
+            long count = 0;
+            int i = from;
+            for (; i < bound; i += LANES) {
+                VectorMask<Integer> match = IntVector.fromArray(INTS, codes, i).compare(VectorOperators.EQ, code);
+                if (match.anyTrue()) {
+                    DoubleVector value = zero.blend(DoubleVector.fromArray(DOUBLES, values, i), match.cast(DOUBLES))
+                            .sub(lost);
+                    DoubleVector next = acc.add(value);
+                    lost = next.sub(acc).sub(value);
+                    acc = next;
+                    count += match.trueCount();
+                }
+            }
+            int group = remap[code];
+            for (int lane = 0; lane < LANES; lane++) {
+                Kernels.addCompensated(totals, errors, group, acc.lane(lane));
+                errors[group] -= lost.lane(lane);
+            }
+            for (; i < to; i++) {
+                if (codes[i] == code) {
+                    Kernels.addCompensated(totals, errors, group, values[i]);
+                    count++;
+                }
+            }
+            counts[group] += count; // adding 0s leaves an absent code's total untouched
+        }
+    }
+
+    static void sumByCode(int[] codes, int codeCount, int[] remap, long[] values, int from, int to,
+            long[] totals, long[] counts) {
+        int bound = from + LONGS.loopBound(to - from);
+        for (int code = 0; code < codeCount; code++) {
+            LongVector acc = LongVector.zero(LONGS);
+            long count = 0;
+            int i = from;
+            for (; i < bound; i += LANES) {
+                VectorMask<Integer> match = IntVector.fromArray(INTS, codes, i).compare(VectorOperators.EQ, code);
+                if (match.anyTrue()) {
+                    acc = acc.add(LongVector.fromArray(LONGS, values, i), match.cast(LONGS));
+                    count += match.trueCount();
+                }
+            }
+            long sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < to; i++) {
+                if (codes[i] == code) {
+                    sum += values[i];
+                    count++;
+                }
+            }
+            if (count > 0) {
+                totals[remap[code]] += sum;
+                counts[remap[code]] += count;
+            }
+        }
+    }
+
+    static void sumByCode(int[] codes, int codeCount, int[] remap, int[] values, int from, int to,
+            int[] totals, long[] counts) {
+        int bound = from + INTS.loopBound(to - from);
+        for (int code = 0; code < codeCount; code++) {
+            IntVector acc = IntVector.zero(INTS);
+            long count = 0;
+            int i = from;
+            for (; i < bound; i += LANES) {
+                VectorMask<Integer> match = IntVector.fromArray(INTS, codes, i).compare(VectorOperators.EQ, code);
+                if (match.anyTrue()) {
+                    acc = acc.add(IntVector.fromArray(INTS, values, i), match);
+                    count += match.trueCount();
+                }
+            }
+            int sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < to; i++) {
+                if (codes[i] == code) {
+                    sum += values[i];
+                    count++;
+                }
+            }
+            if (count > 0) {
+                totals[remap[code]] += sum;
+                counts[remap[code]] += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped chunked loader, using tiny chunks so that
+ * boundaries land inside rows and inside quoted fields.
+ */
+class ChunkedCsvLoaderTest {
+
+    private static final String HEADER = "ORDERNUMBER,QUANTITYORDERED,PRICEEACH,SALES,ORDERDATE,STATUS,QTR_ID,MONTH_ID,"
+            + "YEAR_ID,PRODUCTLINE,MSRP,PRODUCTCODE,CUSTOMERNAME,ADDRESSLINE1,ADDRESSLINE2,CITY,POSTALCODE,COUNTRY,"
+            + "TERRITORY,CONTACTLASTNAME,CONTACTFIRSTNAME,DEALSIZE";
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeCsv(int rows) throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER).append("\r\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(10000 + i).append(",").append(i % 50 + 1).append(",95.7,").append(100 + i).append(".5,")
+                    .append(i % 12 + 1).append("/3/2004 0:00,Shipped,1,2,2004,Motorcycles,95,S10_1678,")
+                    // quoted field with a comma, and every 7th row with an embedded newline
+                    .append(i % 7 == 0 ? "\"Gifts,\nLtd. " + i + "\"" : "\"Toys, Inc. " + i + "\"")
+                    .append(",1 Main St,,NYC,10022,USA,NA,Yu,Kwai,Small\r\n");
+        }
+        Path file = tempDir.resolve("sales.csv");
+        Files.write(file, csv.toString().getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+
+    @Test
+    @DisplayName("Chunked load keeps every row, in file order")
+    void testChunkBoundaries() throws IOException {
+        Path file = writeCsv(500);
+
+        for (int chunkSize : new int[] { 7, 64, 333, 1 << 20 }) {
+            SalesColumns columns = new ChunkedCsvLoader(ForkJoinPool.commonPool(), chunkSize).load(file);
+
+            assertEquals(500, columns.size(), "chunk size " + chunkSize);
+            for (int i = 0; i < columns.size(); i++) {
+                assertEquals(10000 + i, columns.record(i).getOrderNumber());
+                assertEquals(100 + i + 0.5, columns.record(i).getSales(), 0.0);
+            }
+            assertEquals("\"Gifts,\nLtd. 0\"", columns.record(0).getCustomerName());
+            assertEquals("Small", columns.record(499).getDealSize());
+            assertEquals(1, columns.dictionary(SalesColumns.TextColumn.DEAL_SIZE).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Exact money keeps cents and sums them identically however the file is chunked")
+    void testExactMoney() throws IOException {
+        Path file = writeCsv(500);
+        long expectedCents = 0;
+        for (int i = 0; i < 500; i++) {
+            expectedCents += (100 + i) * 100 + 50;
+        }
+
+        assertFalse(new ChunkedCsvLoader().load(file).hasExactMoney());
+        for (int chunkSize : new int[] { 7, 333, 1 << 20 }) {
+            SalesColumns columns = new ChunkedCsvLoader(ForkJoinPool.commonPool(), chunkSize, true).load(file);
+            SalesAggregators.Totals totals = new SalesAggregators.Totals();
+            totals.accept(columns, 0, columns.size());
+
+            assertTrue(columns.hasExactMoney());
+            assertEquals(10050, columns.salesCents[0]);
+            assertEquals(9570, columns.priceEachCents[499]);
+            assertEquals(100.5, columns.sales[0], 0.0);
+            assertEquals(expectedCents / 100.0, totals.getRevenue(), 0.0, "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    @DisplayName("Row filters and column projections are applied during the parse")
+    void testPushdown() throws IOException {
+        Path file = writeCsv(500);
+        RowFilter filter = RowFilter.salesAbove(400).and(RowFilter.textIn(TextColumn.DEAL_SIZE, "Small"));
+
+        for (int chunkSize : new int[] { 7, 1 << 20 }) {
+            SalesColumns columns = new ChunkedCsvLoader(ForkJoinPool.commonPool(), chunkSize)
+                    .load(file, EnumSet.of(Column.ORDER_NUMBER, Column.SALES), filter);
+
+            assertEquals(200, columns.size(), "chunk size " + chunkSize);
+            assertEquals(10300, columns.record(0).getOrderNumber());
+            assertEquals(400.5, columns.record(0).getSales(), 0.0);
+            assertEquals(0, columns.record(0).getQuantityOrdered());
+            assertEquals("", columns.record(0).getCustomerName());
+            assertEquals(1, columns.dictionary(TextColumn.CUSTOMER_NAME).size());
+        }
+    }
+
+    @Test
+    @DisplayName("A pushed-down year filter loads the same rows as filtering after a full load")
+    void testYearFilter() throws IOException {
+        Path csv = Paths.get("src/main/resources/sales.csv");
+        SalesColumns all = new ChunkedCsvLoader().load(csv);
+        SalesColumns year = new ChunkedCsvLoader().load(csv, EnumSet.allOf(Column.class), RowFilter.yearIn(2004));
+
+        int row = 0;
+        for (int i = 0; i < all.size(); i++) {
+            if (all.record(i).getYearId() == 2004) {
+                assertEquals(all.record(i).toString(), year.record(row++).toString());
+            }
+        }
+        assertEquals(row, year.size());
+        assertTrue(new ChunkedCsvLoader().load(csv, EnumSet.noneOf(Column.class),
+                RowFilter.textIn(TextColumn.TERRITORY, "EMEA")).size() > 0);
+    }
+
+    @Test
+    @DisplayName("Header-only file and an empty concat load as empty")
+    void testHeaderOnly() throws IOException {
+        Path file = tempDir.resolve("empty.csv");
+        Files.writeString(file, HEADER);
+
+        assertEquals(0, new ChunkedCsvLoader().load(file).size());
+        assertEquals(0, SalesColumns.concat(List.of()).size());
+    }
+}
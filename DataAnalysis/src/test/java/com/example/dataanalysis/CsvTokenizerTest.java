@@ -0,0 +1,83 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CSV tokenizer used by the loaders.
+ */
+class CsvTokenizerTest {
+
+    private static final String LINE = "10107,30,95.7,2871,2/24/2003 0:00,Shipped,1,2,2003,Motorcycles,95,S10_1678,"
+            + "\"Australian Collectors, Co.\",897 Long Airport Avenue,,NYC,10022,USA,NA,Yu,Kwai,Small";
+
+    @Test
+    @DisplayName("Commas inside quotes do not split fields")
+    void testQuotedFields() {
+        CsvTokenizer tokens = new CsvTokenizer(22).reset(LINE);
+
+        assertEquals(22, tokens.fieldCount());
+        assertEquals("\"Australian Collectors, Co.\"", tokens.getString(12));
+        assertEquals("", tokens.getString(14));
+        assertEquals("Small", tokens.getString(21));
+    }
+
+    @Test
+    @DisplayName("Byte and text input tokenize the same way, CRLF stripped")
+    void testByteInput() {
+        byte[] bytes = ("xx" + LINE + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        CsvTokenizer tokens = new CsvTokenizer(22).reset(bytes, 2, bytes.length - 1);
+
+        assertEquals(22, tokens.fieldCount());
+        assertEquals("Small", tokens.getString(21));
+        assertTrue(tokens.fieldEquals(9, "Motorcycles"));
+        assertEquals("Motorcycles".hashCode(), tokens.fieldHash(9));
+    }
+
+    @Test
+    @DisplayName("Numbers decode exactly like Integer/Double.parseX")
+    void testNumbers() {
+        String[] values = { "0", "95.7", "2765.9", "0.1", "-3.25", "1e3", "123456789012345678", "7" };
+        CsvTokenizer tokens = new CsvTokenizer(values.length).reset(String.join(",", values));
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.parseDouble(values[i]), tokens.getDouble(i), 0.0, values[i]);
+        }
+        assertEquals(7, tokens.getInt(7));
+        assertThrows(NumberFormatException.class, () -> tokens.getInt(1));
+    }
+
+    @Test
+    @DisplayName("Money decodes to exact cents, rounding halves away from zero")
+    void testCents() {
+        String[] values = { "95.7", "2871", "0.1", "-3.25", "3.005", "3.004", "-0.005", ".5", "12.", "abc", "1.2x" };
+        CsvTokenizer tokens = new CsvTokenizer(values.length).reset(String.join(",", values));
+
+        assertEquals(9570, tokens.getCents(0));
+        assertEquals(287100, tokens.getCents(1));
+        assertEquals(10, tokens.getCents(2));
+        assertEquals(-325, tokens.getCents(3));
+        assertEquals(301, tokens.getCents(4));
+        assertEquals(300, tokens.getCents(5));
+        assertEquals(-1, tokens.getCents(6));
+        assertEquals(50, tokens.getCents(7));
+        assertEquals(1200, tokens.getCents(8));
+        assertThrows(NumberFormatException.class, () -> tokens.getCents(9));
+        assertThrows(NumberFormatException.class, () -> tokens.getCents(10));
+    }
+
+    @Test
+    @DisplayName("Order dates decode without a formatter")
+    void testDates() {
+        CsvTokenizer tokens = new CsvTokenizer(3).reset("2/24/2003 0:00,12/1/2004 13:45,2/29/2003 0:00");
+
+        assertEquals(LocalDate.of(2003, 2, 24), tokens.getDate(0));
+        assertEquals(LocalDate.of(2004, 12, 1).toEpochDay(), tokens.getEpochDay(1));
+        assertThrows(IllegalArgumentException.class, () -> tokens.getDate(2));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import com.example.dataanalysis.GroupBy.Dimension;
+import com.example.dataanalysis.GroupBy.Measure;
+import com.example.dataanalysis.GroupBy.Metric;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the general group-by and the rollup cube: cube answers must match
+ * direct scans, and one-dimension group-bys must match the fixed queries.
+ */
+class GroupByTest {
+
+    private static SalesColumns columns;
+
+    @BeforeAll
+    static void load() throws IOException {
+        columns = new ChunkedCsvLoader().load(Paths.get("src/main/resources/sales.csv"));
+    }
+
+    private static void assertSameRows(GroupByResult expected, GroupByResult actual) {
+        assertEquals(expected.getDimensions(), actual.getDimensions());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            GroupByResult.Row e = expected.getRows().get(i);
+            GroupByResult.Row a = actual.getRows().get(i);
+            assertEquals(e.getKey(), a.getKey());
+            assertEquals(e.getCount(), a.getCount());
+            assertEquals(e.getSum(), a.getSum(), 0.0);
+            assertEquals(e.getMin(), a.getMin(), 0.0);
+            assertEquals(e.getMax(), a.getMax(), 0.0);
+        }
+    }
+
+    @Test
+    @DisplayName("One-dimension group-bys agree with the fixed queries")
+    void testMatchesFixedQueries() {
+        SalesAnalysis analysis = new SalesAnalysis(columns);
+
+        Map<List<Object>, Double> byLine = analysis.groupBy(Dimension.PRODUCT_LINE).toMap(Measure.SUM);
+        analysis.getRevenueByProductLine().forEach((line, revenue) -> assertEquals(revenue, byLine.get(List.of(line)), 0.0));
+        GroupByResult byYear = analysis.groupBy(Dimension.YEAR);
+        analysis.getRevenueByYear().forEach((year, revenue) -> assertEquals(revenue, byYear.get(year).getSum(), 0.0));
+
+        GroupByResult quantity = analysis.groupBy(Metric.QUANTITY, Dimension.PRODUCT_LINE);
+        analysis.getQuantityByProductLine()
+                .forEach((line, units) -> assertEquals(units, quantity.get(line).getSum(), 0.0));
+        GroupByResult all = analysis.groupBy();
+        assertEquals(1, all.size());
+        assertEquals(analysis.getTotalTransactions(), all.getRows().get(0).getCount());
+        assertEquals(analysis.getAverageOrderValue(), all.getRows().get(0).get(Measure.AVG), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Cube roll-ups match direct scans for any subset and order of its dimensions")
+    void testCubeRollUp() {
+        SalesCube cube = new SalesCube(columns, Metric.SALES, Dimension.PRODUCT_LINE, Dimension.YEAR,
+                Dimension.TERRITORY, Dimension.QUARTER);
+        Dimension[][] queries = { { Dimension.PRODUCT_LINE, Dimension.YEAR, Dimension.TERRITORY },
+                { Dimension.YEAR, Dimension.PRODUCT_LINE }, { Dimension.YEAR }, { Dimension.QUARTER, Dimension.TERRITORY },
+                { Dimension.TERRITORY, Dimension.QUARTER, Dimension.YEAR, Dimension.PRODUCT_LINE }, {} };
+        for (Dimension[] dimensions : queries) {
+            GroupByResult direct = QueryExecutor.sequential().run(columns, new GroupBy(Metric.SALES, dimensions)).result();
+            assertSameRows(direct, cube.groupBy(dimensions));
+            assertSame(cube.groupBy(dimensions), cube.groupBy(dimensions));
+        }
+        assertThrows(IllegalArgumentException.class, () -> cube.groupBy(Dimension.COUNTRY));
+        assertThrows(IllegalArgumentException.class, () -> new GroupBy(Metric.SALES, Dimension.YEAR, Dimension.YEAR));
+
+        SalesAnalysis analysis = new SalesAnalysis(columns);
+        GroupByResult scanned = analysis.groupBy(Dimension.COUNTRY, Dimension.QUARTER, Dimension.DEAL_SIZE);
+        analysis.buildCube(Dimension.COUNTRY, Dimension.QUARTER, Dimension.DEAL_SIZE, Dimension.STATUS);
+        assertSameRows(scanned, analysis.groupBy(Dimension.COUNTRY, Dimension.QUARTER, Dimension.DEAL_SIZE));
+    }
+
+    @Test
+    @DisplayName("Parallel group-by partials merge to the sequential answer")
+    void testParallelMerge() {
+        Dimension[] dimensions = { Dimension.CUSTOMER_NAME, Dimension.MONTH };
+        GroupByResult sequential = QueryExecutor.sequential().run(columns, new GroupBy(Metric.PRICE_EACH, dimensions))
+                .result();
+        try (QueryExecutor pool = QueryExecutor.parallel(4)) {
+            GroupByResult parallel = pool.withMinPartitionRows(100)
+                    .run(columns, new GroupBy(Metric.PRICE_EACH, dimensions)).result();
+            assertSameRows(sequential, parallel);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests that the SIMD kernels agree with the scalar loops, over ranges that start and end
+ * off the vector boundaries. The build runs tests with the vector module enabled.
+ */
+class KernelsTest {
+
+    private static final int SIZE = 1003;
+    private static final int CODES = 7;
+
+    private final double[] doubles = new double[SIZE];
+    private final long[] longs = new long[SIZE];
+    private final int[] ints = new int[SIZE];
+    private final int[] codes = new int[SIZE];
+    private final int[] remap = { 3, 0, 6, 1, 5, 2, 4 };
+
+    KernelsTest() {
+        Random random = new Random(1);
+        for (int i = 0; i < SIZE; i++) {
+            longs[i] = random.nextInt(1_000_000);
+            doubles[i] = longs[i] / 100.0;
+            ints[i] = random.nextInt(100);
+            codes[i] = random.nextInt(CODES);
+        }
+    }
+
+    @Test
+    @DisplayName("Vector kernels are in use when the module is enabled")
+    void testVectorized() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        assertTrue(Kernels.VECTORIZED);
+    }
+
+    @Test
+    @DisplayName("Sums and selections match the scalar loops")
+    void testSumAndSelect() {
+        assumeTrue(Kernels.VECTORIZED);
+        for (int[] range : new int[][] { { 0, SIZE }, { 3, 998 }, { 5, 7 }, { 10, 10 } }) {
+            int from = range[0];
+            int to = range[1];
+            assertEquals(Kernels.scalarSum(doubles, from, to), VectorKernels.sum(doubles, from, to), 1e-6);
+            assertEquals(Kernels.scalarSum(longs, from, to), VectorKernels.sum(longs, from, to));
+
+            int[] expected = new int[SIZE];
+            int[] actual = new int[SIZE];
+            int n = Kernels.scalarSelectAbove(doubles, from, to, 5000.0, expected);
+            assertEquals(n, VectorKernels.selectAbove(doubles, from, to, 5000.0, actual));
+            assertArrayEquals(Arrays.copyOf(expected, n), Arrays.copyOf(actual, n));
+        }
+    }
+
+    @Test
+    @DisplayName("Double sums are compensated: small values are not lost next to large ones")
+    void testCompensatedSums() {
+        double[] values = new double[1002];
+        Arrays.fill(values, 1.0);
+        values[0] = 1e16;
+        values[1001] = -1e16;
+        int[] sameCode = new int[values.length];
+        double[] totals = new double[1];
+        double[] errors = new double[1];
+
+        assertEquals(1000.0, Kernels.scalarSum(values, 0, values.length));
+        Kernels.scalarSumByCode(sameCode, new int[] { 0 }, values, 0, values.length, totals, errors, new long[1]);
+        assertEquals(1000.0, totals[0] + errors[0]);
+        if (Kernels.VECTORIZED) {
+            assertEquals(1000.0, VectorKernels.sum(values, 0, values.length));
+            totals[0] = 0;
+            errors[0] = 0;
+            VectorKernels.sumByCode(sameCode, 1, new int[] { 0 }, values, 0, values.length, totals, errors,
+                    new long[1]);
+            assertEquals(1000.0, totals[0] + errors[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Masked group-by sums match the scalar loops")
+    void testSumByCode() {
+        assumeTrue(Kernels.VECTORIZED);
+        int from = 1;
+        int to = SIZE - 2;
+
+        double[] expectedDoubles = new double[CODES];
+        double[] actualDoubles = new double[CODES];
+        long[] expectedCounts = new long[CODES];
+        long[] actualCounts = new long[CODES];
+        double[] expectedErrors = new double[CODES];
+        double[] actualErrors = new double[CODES];
+        Kernels.scalarSumByCode(codes, remap, doubles, from, to, expectedDoubles, expectedErrors, expectedCounts);
+        VectorKernels.sumByCode(codes, CODES, remap, doubles, from, to, actualDoubles, actualErrors, actualCounts);
+        for (int group = 0; group < CODES; group++) {
+            assertEquals(expectedDoubles[group] + expectedErrors[group], actualDoubles[group] + actualErrors[group],
+                    1e-6);
+        }
+        assertArrayEquals(expectedCounts, actualCounts);
+
+        long[] expectedLongs = new long[CODES];
+        long[] actualLongs = new long[CODES];
+        Kernels.scalarSumByCode(codes, remap, longs, from, to, expectedLongs, new long[CODES]);
+        VectorKernels.sumByCode(codes, CODES, remap, longs, from, to, actualLongs, new long[CODES]);
+        assertArrayEquals(expectedLongs, actualLongs);
+
+        int[] expectedInts = new int[CODES];
+        int[] actualInts = new int[CODES];
+        Kernels.scalarSumByCode(codes, remap, ints, from, to, expectedInts, new long[CODES]);
+        VectorKernels.sumByCode(codes, CODES, remap, ints, from, to, actualInts, new long[CODES]);
+        assertArrayEquals(expectedInts, actualInts);
+    }
+}
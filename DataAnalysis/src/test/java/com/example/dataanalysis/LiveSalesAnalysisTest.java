@@ -0,0 +1,115 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for live tailing: rows appended in arbitrary pieces (including half lines)
+ * must add up to the same answers as loading the finished file.
+ */
+class LiveSalesAnalysisTest {
+
+    private static final String HEADER = "ORDERNUMBER,QUANTITYORDERED,PRICEEACH,SALES,ORDERDATE,STATUS,QTR_ID,MONTH_ID,"
+            + "YEAR_ID,PRODUCTLINE,MSRP,PRODUCTCODE,CUSTOMERNAME,ADDRESSLINE1,ADDRESSLINE2,CITY,POSTALCODE,COUNTRY,"
+            + "TERRITORY,CONTACTLASTNAME,CONTACTFIRSTNAME,DEALSIZE";
+
+    @TempDir
+    Path tempDir;
+
+    private static void append(Path file, byte[] bytes, int from, int to) throws IOException {
+        Files.write(file, Arrays.copyOfRange(bytes, from, to), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String row(int orderNumber, double sales, String customer) {
+        return orderNumber + ",1," + sales + "," + sales + ",1/5/2005 0:00,Shipped,1,1,2005,Planes,95,P1,"
+                + customer + ",1 Main St,,Paris,75001,France,EMEA,Yu,Kwai,Small";
+    }
+
+    @Test
+    @DisplayName("Tailing a file appended in pieces matches loading the whole file")
+    void testTailGrowingFile() throws IOException {
+        byte[] csv = Files.readAllBytes(Paths.get("src/main/resources/sales.csv"));
+        Path file = tempDir.resolve("sales.csv");
+        SalesAnalysis expected = new SalesAnalysis(new ChunkedCsvLoader().load(Paths.get("src/main/resources/sales.csv")));
+
+        try (LiveSalesAnalysis live = new LiveSalesAnalysis(file)) {
+            append(file, csv, 0, 0);
+            assertEquals(0, live.poll());
+            LiveSalesAnalysis.Snapshot empty = live.snapshot();
+
+            // Uneven pieces, so cuts land inside the header, inside rows and inside quoted fields
+            int[] cuts = { 37, 500, 1001, 50000, 50001, 200000, 333333, csv.length };
+            int from = 0;
+            for (int cut : cuts) {
+                append(file, csv, from, cut);
+                from = cut;
+                live.poll();
+            }
+            // sales.csv has no final newline: its last row counts once the line is terminated
+            assertEquals(expected.getTotalTransactions() - 1, live.snapshot().getRowCount());
+            append(file, "\r\n".getBytes(StandardCharsets.ISO_8859_1), 0, 2);
+            assertEquals(1, live.poll());
+            LiveSalesAnalysis.Snapshot snapshot = live.snapshot();
+
+            assertEquals(0, empty.getTotalTransactions()); // old snapshots never change
+            assertEquals(expected.getTotalTransactions(), snapshot.getRowCount());
+            assertEquals(expected.getTotalTransactions(), snapshot.getTotalTransactions());
+            assertEquals(expected.getTotalRevenue(), snapshot.getTotalRevenue(), 1e-6);
+            assertEquals(expected.getDistinctCustomerCount(), snapshot.getDistinctCustomerCount());
+            assertEquals(expected.getOrderStatusDistribution(), snapshot.getOrderStatusDistribution());
+            assertEquals(expected.getQuantityByProductLine(), snapshot.getQuantityByProductLine());
+            assertEquals(expected.getHighValueOrders(12000.0).toString(), snapshot.getHighValueOrders(12000.0).toString());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected.getTopCustomers(10).get(i).getKey(), snapshot.getTopCustomers(10).get(i).getKey());
+            }
+            Map<Integer, Double> byYear = snapshot.getRevenueByYear();
+            expected.getRevenueByYear().forEach((year, revenue) -> assertEquals(revenue, byYear.get(year), 1e-6));
+            assertThrows(IllegalArgumentException.class, () -> snapshot.getHighValueOrders(5000.0));
+        }
+
+        // Only the highValueLimit largest orders above the floor are kept
+        try (LiveSalesAnalysis live = new LiveSalesAnalysis(file, 5000.0, 3)) {
+            live.poll();
+            assertEquals(expected.getHighValueOrders(5000.0).subList(0, 3).toString(),
+                    live.snapshot().getHighValueOrders(5000.0).toString());
+        }
+    }
+
+    @Test
+    @DisplayName("A directory of rolling files is read in name order; a finished file's last line counts")
+    void testRollingDirectory() throws IOException {
+        Path first = tempDir.resolve("sales-01.csv");
+        Files.write(first, (HEADER + "\r\n" + row(1, 100.0, "A") + "\r\n" + row(2, 200.0, "B"))
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        try (LiveSalesAnalysis live = new LiveSalesAnalysis(tempDir)) {
+            // The last line of the newest file has no newline yet: it may still be being written
+            assertEquals(1, live.poll());
+            assertEquals(100.0, live.snapshot().getTotalRevenue(), 0.0);
+
+            Path second = tempDir.resolve("sales-02.csv");
+            Files.write(second, (HEADER + "\n" + row(3, 15000.0, "\"C, Ltd.\"") + "\n")
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            assertEquals(2, live.poll());
+            assertEquals(0, live.poll());
+
+            LiveSalesAnalysis.Snapshot snapshot = live.snapshot();
+            assertEquals(3, snapshot.getTotalTransactions());
+            assertEquals(15300.0, snapshot.getTotalRevenue(), 0.0);
+            assertEquals("\"C, Ltd.\"", snapshot.getTopCustomers(1).get(0).getKey());
+            assertEquals(1, snapshot.getHighValueOrders(10000.0).size());
+        }
+    }
+}
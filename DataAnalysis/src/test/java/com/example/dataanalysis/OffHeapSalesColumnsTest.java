@@ -0,0 +1,103 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import com.example.dataanalysis.GroupBy.Dimension;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that queries over off-heap columns, copied or mapped from a snapshot, match the on-heap ones.
+ */
+class OffHeapSalesColumnsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Copied off-heap columns answer every query like the on-heap ones")
+    void testQueriesMatch() throws IOException {
+        SalesColumns heap = new ChunkedCsvLoader().load(Paths.get("src/main/resources/sales.csv"));
+        OffHeapSalesColumns offHeap = OffHeapSalesColumns.copyOf(heap);
+        SalesAnalysis expected = new SalesAnalysis(heap);
+        SalesAnalysis actual = new SalesAnalysis(offHeap);
+
+        assertTrue(offHeap.isOffHeap());
+        assertEquals(expected.getTotalTransactions(), actual.getTotalTransactions());
+        assertEquals(expected.getTotalRevenue(), actual.getTotalRevenue(), 1e-6);
+        assertEquals(expected.getTopCustomers(5).get(0).getKey(), actual.getTopCustomers(5).get(0).getKey());
+        assertEquals(expected.getQuantityByProductLine(), actual.getQuantityByProductLine());
+        assertEquals(expected.getOrderStatusDistribution(), actual.getOrderStatusDistribution());
+        assertEquals(expected.groupBy(Dimension.TERRITORY, Dimension.YEAR).size(),
+                actual.groupBy(Dimension.TERRITORY, Dimension.YEAR).size());
+        assertSameRecords(expected.getHighValueOrders(8000.0), actual.getHighValueOrders(8000.0));
+        assertSameRecords(expected.getOrdersForCountry("Japan"), actual.getOrdersForCountry("Japan"));
+        assertSameRecords(expected.getOrderLines(10100), actual.getOrderLines(10100));
+        assertSameRecords(expected.getOrdersInSalesRange(5000, 5100), actual.getOrdersInSalesRange(5000, 5100));
+        assertThrows(UnsupportedOperationException.class, actual::buildIndexes);
+
+        OffHeapSalesColumns.Row row = offHeap.row().moveTo(7);
+        assertEquals(heap.record(7).toString(), row.toRecord().toString());
+        assertEquals(heap.text(TextColumn.CUSTOMER_NAME, 7), row.getText(TextColumn.CUSTOMER_NAME));
+        assertEquals(heap.sales[7], row.getSales());
+        assertThrows(IndexOutOfBoundsException.class, () -> offHeap.row().moveTo(heap.size()));
+    }
+
+    @Test
+    @DisplayName("openOffHeap maps the snapshot, building it first when it is missing")
+    void testOpenOffHeap() throws IOException {
+        Path csv = tempDir.resolve("sales.csv");
+        Files.copy(Paths.get("src/main/resources/sales.csv"), csv, StandardCopyOption.REPLACE_EXISTING);
+        SalesAnalysis expected = new SalesAnalysis(csv.toString(), true);
+
+        for (int run = 0; run < 2; run++) {
+            SalesAnalysis actual = SalesAnalysis.openOffHeap(csv.toString(), true);
+            assertTrue(Files.exists(SalesSnapshot.defaultPath(csv)));
+            assertEquals(expected.getRevenueByProductLine(), actual.getRevenueByProductLine());
+            assertEquals(expected.getRevenueByYear(), actual.getRevenueByYear());
+            assertSameRecords(expected.getOrdersForCustomer("Mini Gifts Distributors Ltd."),
+                    actual.getOrdersForCustomer("Mini Gifts Distributors Ltd."));
+        }
+    }
+
+    @Test
+    @DisplayName("Columns split into many segments, copied or mapped, read across segment boundaries")
+    void testSegments() throws IOException {
+        Path csv = tempDir.resolve("sales.csv");
+        Files.copy(Paths.get("src/main/resources/sales.csv"), csv, StandardCopyOption.REPLACE_EXISTING);
+        SalesColumns heap = new ChunkedCsvLoader(true).load(csv);
+        Path snapshot = SalesSnapshot.defaultPath(csv);
+        SalesSnapshot.write(heap, snapshot, csv);
+        SalesAnalysis expected = new SalesAnalysis(heap);
+
+        // 2823 rows in segments of 1024 rows: two full segments and a partial one
+        for (OffHeapSalesColumns offHeap : List.of(OffHeapSalesColumns.copyOf(heap, 10),
+                SalesSnapshot.map(snapshot, 10))) {
+            SalesAnalysis actual = new SalesAnalysis(offHeap);
+            assertEquals(expected.getTotalRevenue(), actual.getTotalRevenue(), 1e-6);
+            assertEquals(expected.getRevenueByProductLine(), actual.getRevenueByProductLine());
+            assertEquals(expected.getQuantityByProductLine(), actual.getQuantityByProductLine());
+            assertSameRecords(expected.getHighValueOrders(8000.0), actual.getHighValueOrders(8000.0));
+            for (int row : new int[] { 0, 1023, 1024, 2047, 2048, heap.size() - 1 }) {
+                assertEquals(heap.record(row).toString(), offHeap.row().moveTo(row).toRecord().toString());
+            }
+        }
+    }
+
+    private static void assertSameRecords(List<SalesRecord> expected, List<SalesRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for gzip input: BGZF and indexed multi-member files inflate in parallel, byte for
+ * byte, and load into the same data as the plain CSV.
+ */
+class ParallelGzipInputStreamTest {
+
+    private static final Path CSV = Paths.get("src/main/resources/sales.csv");
+
+    @TempDir
+    Path tempDir;
+
+    // One BGZF block: a gzip member whose "BC" extra subfield holds the block size - 1
+    private static byte[] bgzfBlock(byte[] data, int from, int to) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data, from, to - from);
+        deflater.finish();
+        byte[] deflated = new byte[to - from + 1024];
+        int length = deflater.deflate(deflated);
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data, from, to - from);
+        ByteBuffer block = ByteBuffer.allocate(18 + length + 8).order(ByteOrder.LITTLE_ENDIAN);
+        block.put(new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff });
+        block.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2);
+        block.putShort((short) (block.capacity() - 1));
+        block.put(deflated, 0, length).putInt((int) crc.getValue()).putInt(to - from);
+        return block.array();
+    }
+
+    private Path bgzf(byte[] data, int blockSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int from = 0; from < data.length; from += blockSize) {
+            out.write(bgzfBlock(data, from, Math.min(data.length, from + blockSize)));
+        }
+        out.write(bgzfBlock(data, 0, 0)); // the empty end-of-file block
+        Path file = tempDir.resolve("sales.csv.gz");
+        Files.write(file, out.toByteArray());
+        return file;
+    }
+
+    private static String report(SalesAnalysis analysis) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        analysis.printAnalysis(new PrintStream(out, true, StandardCharsets.UTF_8));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("BGZF files inflate in parallel to the original bytes and load like the plain CSV")
+    void testBgzf() throws IOException {
+        byte[] data = Files.readAllBytes(CSV);
+        Path file = bgzf(data, 5000);
+
+        for (int unitSize : new int[] { 1, 20_000, ParallelGzipInputStream.DEFAULT_UNIT_SIZE }) {
+            try (InputStream in = ParallelGzipInputStream.open(file, 3, unitSize)) {
+                assertTrue(in instanceof ParallelGzipInputStream);
+                assertArrayEquals(data, in.readAllBytes(), "unit size " + unitSize);
+            }
+        }
+        assertTrue(ParallelGzipInputStream.isGzip(file));
+        assertFalse(ParallelGzipInputStream.isGzip(CSV));
+        assertEquals(report(new SalesAnalysis(CSV.toString())), report(new SalesAnalysis(file.toString())));
+        assertEquals(report(new SalesAnalysis(CSV.toString(), true)),
+                report(new SalesAnalysis(file.toString(), true)));
+    }
+
+    @Test
+    @DisplayName("Multi-member gzip inflates in parallel with a .gzi index, sequentially without")
+    void testIndexedMembers() throws IOException {
+        byte[] data = Files.readAllBytes(CSV);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int members = (data.length + 9_999) / 10_000;
+        ByteBuffer index = ByteBuffer.allocate(8 + 16 * (members - 1)).order(ByteOrder.LITTLE_ENDIAN);
+        index.putLong(members - 1); // the first member, at 0, is implied
+        for (int from = 0; from < data.length; from += 10_000) {
+            if (from > 0) {
+                index.putLong(out.size()).putLong(from);
+            }
+            try (GZIPOutputStream member = new GZIPOutputStream(out) {
+                @Override
+                public void close() throws IOException {
+                    finish(); // keep out open for the next member
+                }
+            }) {
+                member.write(data, from, Math.min(data.length - from, 10_000));
+            }
+        }
+        Path file = tempDir.resolve("members.csv.gz");
+        Files.write(file, out.toByteArray());
+
+        try (InputStream in = ParallelGzipInputStream.open(file, 2, 1)) {
+            assertTrue(in instanceof GZIPInputStream);
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        Files.write(tempDir.resolve("members.csv.gz.gzi"), index.array());
+        for (int unitSize : new int[] { 1, 25_000 }) {
+            try (InputStream in = ParallelGzipInputStream.open(file, 2, unitSize)) {
+                assertTrue(in instanceof ParallelGzipInputStream);
+                assertArrayEquals(data, in.readAllBytes(), "unit size " + unitSize);
+            }
+        }
+        assertEquals(2823, new SalesAnalysis(file.toString()).getTotalTransactions());
+    }
+
+    @Test
+    @DisplayName("Snapshots and off-heap rows build from a gzip file; the mapping loader rejects one")
+    void testSnapshotsFromGzip() throws IOException {
+        Path file = bgzf(Files.readAllBytes(CSV), 5000);
+        String expected = report(new SalesAnalysis(CSV.toString(), true));
+
+        assertEquals(expected, report(SalesAnalysis.openOffHeap(file.toString(), true)));
+        assertEquals(expected, report(SalesAnalysis.openOffHeap(file.toString(), true))); // mapped snapshot
+        assertEquals(report(new SalesAnalysis(CSV.toString())), report(SalesAnalysis.open(file.toString())));
+        assertThrows(IOException.class, () -> new ChunkedCsvLoader().load(file));
+
+        Path small = tempDir.resolve("small.csv.gz");
+        try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(small))) {
+            out.write(Arrays.copyOf(Files.readAllBytes(CSV), 400));
+        }
+        assertThrows(IOException.class, () -> new ChunkedCsvLoader().load(small));
+    }
+
+    @Test
+    @DisplayName("Corrupt or truncated blocks fail the read instead of returning short data")
+    void testCorruption() throws IOException {
+        byte[] data = Files.readAllBytes(CSV);
+        byte[] compressed = Files.readAllBytes(bgzf(data, 5000));
+
+        byte[] corrupt = compressed.clone();
+        corrupt[compressed.length / 2] ^= 0x55;
+        Path file = tempDir.resolve("corrupt.csv.gz");
+        Files.write(file, corrupt);
+        assertThrows(IOException.class, () -> {
+            try (InputStream in = ParallelGzipInputStream.open(file, 2, 1)) {
+                in.readAllBytes();
+            }
+        });
+
+        Files.write(file, Arrays.copyOf(compressed, compressed.length / 3));
+        assertThrows(IOException.class, () -> new SalesAnalysis(file.toString()));
+    }
+}
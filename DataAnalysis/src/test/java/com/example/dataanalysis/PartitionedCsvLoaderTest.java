@@ -0,0 +1,116 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.example.dataanalysis.SalesPartitions.Partition;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for partitioned directory loads, using sales.csv split into YEAR=/MONTH= files.
+ */
+class PartitionedCsvLoaderTest {
+
+    private static final String CSV = "src/main/resources/sales.csv";
+
+    @TempDir
+    Path root;
+
+    private final Map<String, Integer> rowsPerMonth = new TreeMap<>();
+
+    @BeforeEach
+    void splitByMonth() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(CSV), StandardCharsets.ISO_8859_1);
+        Map<String, List<String>> files = new TreeMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            SalesRecord record = SalesRecord.fromCsvLine(line);
+            String dir = "YEAR=" + record.getYearId() + "/MONTH=" + record.getMonthId();
+            files.computeIfAbsent(dir, k -> new ArrayList<>(List.of(lines.get(0)))).add(line);
+            rowsPerMonth.merge(dir, 1, Integer::sum);
+        }
+        for (Map.Entry<String, List<String>> file : files.entrySet()) {
+            Path dir = Files.createDirectories(root.resolve(file.getKey()));
+            Files.write(dir.resolve("part-0.csv"), file.getValue(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Test
+    @DisplayName("Every file is a partition with its keys, row range and statistics")
+    void testPartitionStatistics() throws IOException {
+        SalesAnalysis whole = new SalesAnalysis(CSV);
+        SalesAnalysis partitioned = new SalesAnalysis(root.toString());
+        List<Partition> partitions = partitioned.getPartitions();
+
+        assertEquals(rowsPerMonth.size(), partitions.size());
+        assertEquals(whole.getTotalTransactions(), partitioned.getTotalTransactions());
+        int nextRow = 0;
+        for (Partition partition : partitions) {
+            assertEquals(nextRow, partition.getFirstRow());
+            assertEquals(rowsPerMonth.get("YEAR=" + partition.getYear() + "/MONTH=" + partition.getMonth()),
+                    partition.getRowCount());
+            assertTrue(partition.containsOnlyYear(partition.getYear()));
+            assertEquals(partition.getMonth(), partition.getFirstOrderDate().getMonthValue());
+            assertEquals(partition.getMonth(), partition.getLastOrderDate().getMonthValue());
+            nextRow += partition.getRowCount();
+        }
+        assertEquals(whole.getTotalRevenue(), partitioned.getTotalRevenue(), 1e-6);
+        Map<Integer, Double> byYear = partitioned.getRevenueByYear();
+        assertEquals(whole.getRevenueByYear().keySet(), byYear.keySet());
+        whole.getRevenueByYear().forEach((year, revenue) -> assertEquals(revenue, byYear.get(year), 1e-6));
+        // Rows are in a different order, so double sums differ in the last bits; cents do not
+        assertEquals(new SalesAnalysis(CSV, true).getRevenueByProductLine(),
+                new SalesAnalysis(root.toString(), true).getRevenueByProductLine());
+    }
+
+    @Test
+    @DisplayName("openOffHeap loads a partitioned directory into direct buffers, with no snapshot")
+    void testOpenOffHeap() throws IOException {
+        SalesAnalysis expected = new SalesAnalysis(root.toString(), true);
+        SalesAnalysis offHeap = SalesAnalysis.openOffHeap(root.toString(), true);
+
+        assertThrows(UnsupportedOperationException.class, offHeap::buildIndexes); // only on-heap rows
+        assertEquals(expected.getTotalTransactions(), offHeap.getTotalTransactions());
+        assertEquals(expected.getRevenueByProductLine(), offHeap.getRevenueByProductLine());
+        assertEquals(expected.getRevenueByYear(), offHeap.getRevenueByYear());
+        assertFalse(Files.exists(SalesSnapshot.defaultPath(root)));
+    }
+
+    @Test
+    @DisplayName("Partition filters skip files by key, and year queries skip partitions")
+    void testPruning() throws IOException {
+        SalesPartitions march = new PartitionedCsvLoader().load(root, PartitionFilter.month(2004, 3));
+        assertEquals(1, march.getPartitions().size());
+        assertEquals((int) rowsPerMonth.get("YEAR=2004/MONTH=3"), march.columns().size());
+
+        SalesPartitions y2005 = new PartitionedCsvLoader().load(root, PartitionFilter.years(2005));
+        assertTrue(y2005.getPartitions().stream().allMatch(p -> p.getYear() == 2005));
+        assertEquals(y2005.getRevenueByYear().keySet(), Set.of(2005));
+
+        // Year-filtered top-N agrees between row filtering, partition skipping and a pruned load
+        List<Map.Entry<String, Double>> scanned = new SalesAnalysis(CSV).getTopCustomers(5, 2004);
+        List<Map.Entry<String, Double>> skipped = new SalesAnalysis(root.toString()).getTopCustomers(5, 2004);
+        List<Map.Entry<String, Double>> pruned = new SalesAnalysis(
+                new PartitionedCsvLoader().load(root, PartitionFilter.years(2004))).getTopCustomers(5);
+        assertEquals(5, scanned.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(scanned.get(i).getKey(), skipped.get(i).getKey());
+            assertEquals(scanned.get(i).getKey(), pruned.get(i).getKey());
+            assertEquals(scanned.get(i).getValue(), skipped.get(i).getValue(), 1e-6);
+            assertEquals(scanned.get(i).getValue(), pruned.get(i).getValue(), 1e-6);
+        }
+    }
+}
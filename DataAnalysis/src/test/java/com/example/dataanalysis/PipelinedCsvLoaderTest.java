@@ -0,0 +1,168 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.List;
+
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the pipelined stream loader, using tiny blocks and short reads so that rows
+ * (and quoted newlines) straddle blocks and every queue fills up.
+ */
+class PipelinedCsvLoaderTest {
+
+    private static final Path CSV = Paths.get("src/main/resources/sales.csv");
+
+    // Returns at most 5 bytes per read(), like a slow pipe
+    private static InputStream trickle(byte[] data) {
+        return new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 5));
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Pipelined load keeps every row, in file order, for any block size and thread count")
+    void testMatchesChunkedLoad() throws IOException {
+        SalesColumns expected = new ChunkedCsvLoader().load(CSV);
+        byte[] data = Files.readAllBytes(CSV);
+
+        for (int blockSize : new int[] { 16, 1000, 1 << 20 }) {
+            for (int parsers : new int[] { 1, 4 }) {
+                SalesColumns columns = new PipelinedCsvLoader(parsers, blockSize, 1, false)
+                        .load(blockSize == 1000 ? trickle(data) : new ByteArrayInputStream(data));
+
+                assertEquals(expected.size(), columns.size(), "block size " + blockSize);
+                for (int i = 0; i < columns.size(); i++) {
+                    assertEquals(expected.record(i).toString(), columns.record(i).toString());
+                }
+            }
+        }
+        assertEquals(expected.size(), new PipelinedCsvLoader().load(CSV).size());
+    }
+
+    @Test
+    @DisplayName("Quoted newlines, exact money and pushdown survive block boundaries")
+    void testQuotedNewlinesAndPushdown() throws IOException {
+        StringBuilder csv = new StringBuilder("ORDERNUMBER,QUANTITYORDERED,PRICEEACH,SALES,ORDERDATE,STATUS,QTR_ID,"
+                + "MONTH_ID,YEAR_ID,PRODUCTLINE,MSRP,PRODUCTCODE,CUSTOMERNAME,ADDRESSLINE1,ADDRESSLINE2,CITY,"
+                + "POSTALCODE,COUNTRY,TERRITORY,CONTACTLASTNAME,CONTACTFIRSTNAME,DEALSIZE\r\n");
+        for (int i = 0; i < 300; i++) {
+            csv.append(10000 + i).append(",1,95.7,").append(100 + i).append(".5,1/3/2004 0:00,Shipped,1,1,2004,")
+                    .append("Planes,95,S10_1678,")
+                    .append(i % 7 == 0 ? "\"Gifts,\nLtd. " + i + "\"" : "\"Toys, Inc. " + i + "\"")
+                    .append(",1 Main St,,NYC,10022,USA,NA,Yu,Kwai,").append(i % 2 == 0 ? "Small" : "Large")
+                    .append("\r\n\r\n"); // blank lines are skipped
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        SalesColumns all = new PipelinedCsvLoader(3, 40, 2, true).load(trickle(data));
+        assertEquals(300, all.size());
+        assertTrue(all.hasExactMoney());
+        assertEquals(10050, all.salesCents[0]);
+        assertEquals("\"Gifts,\nLtd. 287\"", all.record(287).getCustomerName());
+
+        RowFilter filter = RowFilter.salesAbove(200).and(RowFilter.textIn(TextColumn.DEAL_SIZE, "Small"));
+        SalesColumns some = new PipelinedCsvLoader(3, 40, 2, false)
+                .load(new ByteArrayInputStream(data), EnumSet.of(Column.ORDER_NUMBER, Column.SALES), filter);
+        assertEquals(100, some.size());
+        assertEquals(10100, some.record(0).getOrderNumber());
+        assertEquals("", some.record(0).getCustomerName());
+
+        assertEquals(0, new PipelinedCsvLoader().load(new ByteArrayInputStream(new byte[0])).size());
+    }
+
+    @Test
+    @DisplayName("A distinct customer on every row, over hundreds of tiny blocks, loads like the chunked loader")
+    void testHighCardinality() throws IOException {
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.ISO_8859_1);
+        StringBuilder csv = new StringBuilder(lines.get(0)).append("\r\n");
+        for (int i = 0; i < 30_000; i++) {
+            // Swap CUSTOMERNAME (the 13th field, the first that may be quoted) for a unique name
+            String line = lines.get(1 + i % (lines.size() - 1));
+            int start = 0;
+            for (int field = 0; field < 12; field++) {
+                start = line.indexOf(',', start) + 1;
+            }
+            int end = line.charAt(start) == '"' ? line.indexOf('"', start + 1) + 1 : line.indexOf(',', start);
+            csv.append(line, 0, start).append("Customer ").append(i).append(line, end, line.length()).append("\r\n");
+        }
+        Path file = Files.createTempFile("pipelined-distinct", ".csv");
+        try {
+            Files.write(file, csv.toString().getBytes(StandardCharsets.ISO_8859_1));
+            SalesColumns expected = new ChunkedCsvLoader().load(file);
+            SalesColumns columns = new PipelinedCsvLoader(2, 4096, 2, false).load(file);
+
+            assertEquals(30_000, columns.dictionary(TextColumn.CUSTOMER_NAME).size());
+            assertEquals(expected.size(), columns.size());
+            for (int i = 0; i < columns.size(); i += 97) {
+                assertEquals(expected.record(i).toString(), columns.record(i).toString());
+            }
+            assertEquals(new SalesAnalysis(expected).getTopCustomers(20),
+                    new SalesAnalysis(columns).getTopCustomers(20));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Stage statistics account for every byte, row and block")
+    void testStats() throws IOException {
+        PipelinedCsvLoader loader = new PipelinedCsvLoader(2, 4096, 1, false);
+        assertNull(loader.getLastStats());
+        SalesColumns columns = loader.load(CSV);
+        PipelinedCsvLoader.Stats stats = loader.getLastStats();
+
+        long header = new String(Files.readAllBytes(CSV), StandardCharsets.ISO_8859_1).indexOf('\n') + 1;
+        assertEquals(Files.size(CSV), stats.getRead().getBytes());
+        assertEquals(Files.size(CSV) - header, stats.getParse().getBytes());
+        assertEquals(columns.size(), stats.getParse().getRows());
+        assertEquals(columns.size(), stats.getBuild().getRows());
+        assertTrue(stats.getRead().getBlocks() > Files.size(CSV) / 4096);
+        assertEquals(stats.getRead().getBlocks(), stats.getParse().getBlocks());
+        assertEquals(stats.getRead().getBlocks(), stats.getBuild().getBlocks());
+        assertTrue(stats.getRead().getBytesPerSecond() > 0);
+        assertTrue(stats.getElapsedNanos() >= stats.getBuild().getBusyNanos());
+        assertTrue(stats.toString().contains("parse "));
+    }
+
+    @Test
+    @DisplayName("A read or parse failure is rethrown and stops the pipeline")
+    void testFailures() throws IOException {
+        InputStream broken = new InputStream() {
+            private int calls;
+
+            @Override
+            public int read() throws IOException {
+                if (++calls > 5000) {
+                    throw new IOException("disk gone");
+                }
+                return 'x'; // one endless header line, so the block keeps growing
+            }
+        };
+        PipelinedCsvLoader loader = new PipelinedCsvLoader(2, 256, 1, false);
+        IOException e = assertThrows(IOException.class, () -> loader.load(broken));
+        assertEquals("disk gone", e.getMessage());
+
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.ISO_8859_1);
+        byte[] bad = String.join("\n", lines.get(0), lines.get(1), lines.get(2).replaceFirst("^\\d+", "N/A"))
+                .getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(RuntimeException.class, () -> loader.load(new ByteArrayInputStream(bad)));
+    }
+}
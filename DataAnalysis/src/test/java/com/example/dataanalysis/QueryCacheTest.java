@@ -0,0 +1,62 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the LRU query result cache and its use by SalesAnalysis.
+ */
+class QueryCacheTest {
+
+    private static SalesRecord record(int orderNumber, double sales, String customer) {
+        return new SalesRecord(orderNumber, 1, sales, sales, LocalDate.of(2004, 1, 1), "Shipped", 1, 1, 2004,
+                "Planes", "P1", customer, "Paris", "France", "EMEA", "Small");
+    }
+
+    @Test
+    @DisplayName("Least recently used entries are evicted first; hits and misses are counted")
+    void testLruEviction() {
+        QueryCache cache = new QueryCache(2);
+        AtomicInteger computed = new AtomicInteger();
+
+        assertEquals("a", cache.get("a", () -> { computed.incrementAndGet(); return "a"; }));
+        assertEquals("b", cache.get("b", () -> { computed.incrementAndGet(); return "b"; }));
+        assertEquals("a", cache.get("a", () -> { computed.incrementAndGet(); return "a"; }));
+        cache.get("c", () -> { computed.incrementAndGet(); return "c"; }); // evicts b, the least recently used
+        cache.get("a", () -> { computed.incrementAndGet(); return "a"; });
+        cache.get("b", () -> { computed.incrementAndGet(); return "b"; });
+
+        assertEquals(4, computed.get());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Repeated queries are served from the cache until the data changes")
+    void testSalesAnalysisCaching() {
+        SalesAnalysis analysis = new SalesAnalysis(List.of(record(1, 100.0, "A"), record(2, 300.0, "B")));
+        QueryCache cache = analysis.getQueryCache();
+
+        assertEquals(400.0, analysis.getTotalRevenue(), 0.0);
+        assertEquals(200.0, analysis.getAverageOrderValue(), 0.0); // same underlying scan
+        List<Map.Entry<String, Double>> top = analysis.getTopCustomers(1);
+        assertSame(top, analysis.getTopCustomers(1));
+        assertNotSame(top, analysis.getTopCustomers(2)); // different parameter, different entry
+        assertThrows(UnsupportedOperationException.class, () -> analysis.getRevenueByYear().clear());
+        assertEquals(2, cache.getHitCount());
+
+        analysis.setData(SalesColumns.of(List.of(record(3, 50.0, "C"))));
+        assertEquals(0, cache.size());
+        assertEquals(50.0, analysis.getTotalRevenue(), 0.0);
+        assertEquals("C", analysis.getTopCustomers(1).get(0).getKey());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.example.dataanalysis.SalesAggregators.HighValueOrders;
+import com.example.dataanalysis.SalesAggregators.RevenueBy;
+import com.example.dataanalysis.SalesAggregators.RevenueByYear;
+import com.example.dataanalysis.SalesAggregators.Totals;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parallel execution must give bit-identical results to sequential execution,
+ * whatever the pool size.
+ */
+class QueryExecutorTest {
+
+    private static SalesColumns randomColumns(int rows) {
+        Random random = new Random(42);
+        SalesColumns.Builder builder = new SalesColumns.Builder(rows);
+        for (int i = 0; i < rows; i++) {
+            int year = 2003 + random.nextInt(3);
+            builder.add(new SalesRecord(10000 + i, 1 + random.nextInt(50), random.nextDouble() * 200,
+                    random.nextDouble() * 15000, LocalDate.of(year, 1 + random.nextInt(12), 1), "Shipped",
+                    1, 1, year, "Line " + random.nextInt(7), "P" + random.nextInt(100),
+                    "Customer " + random.nextInt(300), "City", "Country " + random.nextInt(20), "NA", "Small"));
+        }
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("Parallel and sequential sums are bit-identical for any thread count")
+    void testDeterministicSums() {
+        SalesColumns columns = randomColumns(20000);
+        QueryExecutor sequential = QueryExecutor.sequential().withMinPartitionRows(128);
+
+        double expectedTotal = sequential.run(columns, new Totals()).getRevenue();
+        Map<String, Double> expectedByCustomer = sequential.run(columns, new RevenueBy(TextColumn.CUSTOMER_NAME))
+                .result();
+        Map<Integer, Double> expectedByYear = sequential.run(columns, new RevenueByYear()).result();
+
+        for (int threads : new int[] { 1, 2, 3, 8 }) {
+            try (QueryExecutor pool = QueryExecutor.parallel(threads)) {
+                QueryExecutor parallel = pool.withMinPartitionRows(128);
+
+                assertEquals(expectedTotal, parallel.run(columns, new Totals()).getRevenue(), 0.0);
+                assertEquals(expectedByCustomer,
+                        parallel.run(columns, new RevenueBy(TextColumn.CUSTOMER_NAME)).result());
+                assertEquals(expectedByYear, parallel.run(columns, new RevenueByYear()).result());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel top-N high-value orders match a full sort")
+    void testHighValueOrdersMerge() {
+        SalesColumns columns = randomColumns(5000);
+        HighValueOrders all = QueryExecutor.sequential().run(columns, new HighValueOrders(14000.0, Integer.MAX_VALUE));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            QueryExecutor parallel = QueryExecutor.parallel(pool);
+            HighValueOrders top = parallel.withMinPartitionRows(100).run(columns, new HighValueOrders(14000.0, 5));
+
+            assertEquals(all.getMatchCount(), top.getMatchCount());
+            assertEquals(all.result().subList(0, 5).toString(), top.result().toString());
+            // A caller's pool outlives the executor; an owned one is shut down with it
+            parallel.close();
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+        QueryExecutor owned = QueryExecutor.parallel(2);
+        owned.close();
+        assertThrows(RejectedExecutionException.class, () -> owned.withMinPartitionRows(100)
+                .run(columns, new HighValueOrders(14000.0, 5)));
+    }
+}
@@ -250,4 +250,54 @@ class SalesAnalysisTest {
         assertEquals(analysis.getTotalTransactions(), totalCount,
                 "Sum of status counts should equal total transactions");
     }
+
+    @Test
+    @DisplayName("Fused scan shares queries and matches the individual query methods")
+    void testFusedScan() {
+        FusedScan scan = new FusedScan();
+        assertSame(scan.revenueBy(SalesColumns.TextColumn.PRODUCT_LINE),
+                scan.revenueBy(SalesColumns.TextColumn.PRODUCT_LINE), "Same query should be registered once");
+
+        SalesAggregators.Totals totals = scan.totals();
+        SalesAggregators.RevenueBy byProductLine = scan.revenueBy(SalesColumns.TextColumn.PRODUCT_LINE);
+        SalesAggregators.HighValueOrders highValue = scan.highValueOrders(3000.0, 1);
+        scan.run(SalesColumns.of(mockData));
+
+        assertEquals(analysis.getTotalRevenue(), totals.getRevenue(), 0.01);
+        assertEquals(analysis.getRevenueByProductLine(), byProductLine.result());
+        assertEquals(2, highValue.getMatchCount());
+        assertEquals(1010, highValue.result().get(0).getOrderNumber());
+    }
+
+    @Test
+    @DisplayName("Paged high value orders keep the total match count")
+    void testGetHighValueOrdersPage() {
+        HighValueOrderPage first = analysis.getHighValueOrders(1000.0, 0, 2);
+
+        // Above $1000: 10000, 4500, 3000, 2000, 1200
+        assertEquals(5, first.getTotalMatches());
+        assertEquals(2, first.getOrders().size());
+        assertEquals(1010, first.getOrders().get(0).getOrderNumber());
+        assertEquals(1004, first.getOrders().get(1).getOrderNumber());
+        assertTrue(first.hasMore());
+
+        HighValueOrderPage last = analysis.getHighValueOrders(1000.0, 4, 2);
+        assertEquals(1, last.getOrders().size());
+        assertEquals(1006, last.getOrders().get(0).getOrderNumber());
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    @DisplayName("Bounded top-K keeps the best entries, earlier entries winning ties")
+    void testTopK() {
+        TopK<String> top = new TopK<>(3);
+        double[] scores = { 5, 1, 9, 5, 7, 9, 2 };
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(scores[i], i, "e" + i);
+        }
+
+        assertEquals(List.of("e2", "e5", "e4"), top.sorted());
+        assertFalse(top.accepts(7, 10), "Tie with a later sequence should not be accepted");
+        assertTrue(top.accepts(7, 1));
+    }
 }
@@ -0,0 +1,91 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the seeded synthetic dataset generator.
+ */
+class SalesDataGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Same seed gives the same bytes, a different seed different ones")
+    void testDeterministic() throws IOException {
+        String a = generate(new SalesDataGenerator(7), 2000);
+        String b = generate(new SalesDataGenerator(7), 2000);
+        String c = generate(new SalesDataGenerator(8), 2000);
+
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+        assertTrue(a.startsWith(SalesDataGenerator.HEADER + "\r\n"));
+    }
+
+    @Test
+    @DisplayName("Generated files load in the sales.csv schema, with quoted commas and skew")
+    void testLoadsWithRealisticShape() throws IOException {
+        Path file = tempDir.resolve("generated.csv");
+        long bytes = new SalesDataGenerator(42, 1000, 0.2).writeRows(file, 20_000);
+        SalesAnalysis analysis = new SalesAnalysis(file.toString());
+
+        assertEquals(Files.size(file), bytes);
+        assertEquals(20_000, analysis.getTotalTransactions());
+        assertTrue(analysis.getDistinctCustomerCount() > 500);
+        List<Map.Entry<String, Double>> top = analysis.getTopCustomers(1000);
+        assertTrue(top.stream().anyMatch(e -> e.getKey().startsWith("\"") && e.getKey().contains(", ")));
+        // Zipf skew: the biggest account far outsells the median one
+        assertTrue(top.get(0).getValue() > 20 * top.get(top.size() / 2).getValue());
+        Map<String, Long> statuses = analysis.getOrderStatusDistribution();
+        assertTrue(statuses.get("Shipped") > 0.85 * 20_000);
+        assertEquals(7, analysis.getRevenueByProductLine().size());
+        assertEquals("USA", analysis.getTopCountries(1).get(0).getKey());
+    }
+
+    @Test
+    @DisplayName("Size targets write whole rows up to just past the target")
+    void testTargetBytes() throws IOException {
+        Path file = tempDir.resolve("sized.csv");
+        long rows = new SalesDataGenerator().writeBytes(file, 256 * 1024);
+
+        assertTrue(Files.size(file) >= 256 * 1024);
+        assertTrue(Files.size(file) < 256 * 1024 + 1024);
+        assertEquals(rows, new ChunkedCsvLoader().load(file).size());
+        assertEquals(1L << 30, SalesDataGenerator.parseSize("1GB"));
+        assertEquals(1536L << 20, SalesDataGenerator.parseSize("1.5g"));
+    }
+
+    @Test
+    @DisplayName("Customer names stay unique, and cheap, when there are far more customers than base names")
+    void testManyCustomers() {
+        String[] customers = SalesDataGenerator.makeCustomers(new SplittableRandom(3), 100_000, 0.2);
+        Set<String> names = new HashSet<>();
+        for (String customer : customers) {
+            // The name is the first field, quoted when it holds a comma
+            String name = customer.startsWith("\"")
+                    ? customer.substring(0, customer.indexOf('"', 1) + 1)
+                    : customer.substring(0, customer.indexOf(','));
+            assertTrue(names.add(name), name);
+        }
+    }
+
+    private static String generate(SalesDataGenerator generator, long rows) throws IOException {
+        StringWriter out = new StringWriter();
+        generator.write(out, rows, Long.MAX_VALUE);
+        return out.toString();
+    }
+}
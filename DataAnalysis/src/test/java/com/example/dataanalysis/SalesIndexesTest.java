@@ -0,0 +1,68 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Index-backed lookups must return exactly what the full-scan versions return.
+ */
+class SalesIndexesTest {
+
+    @Test
+    @DisplayName("Indexed lookups match full scans on the sample data")
+    void testIndexedMatchesScan() throws IOException {
+        SalesColumns columns = new ChunkedCsvLoader().load(Paths.get("src/main/resources/sales.csv"));
+        SalesAnalysis scanned = new SalesAnalysis(columns);
+        SalesAnalysis indexed = new SalesAnalysis(columns);
+        indexed.buildIndexes();
+
+        for (double threshold : new double[] { 0.0, 5000.0, 7737.93, 10000.0, 14082.8, 1e9 }) {
+            assertEquals(scanned.getHighValueOrders(threshold).toString(),
+                    indexed.getHighValueOrders(threshold).toString());
+            HighValueOrderPage expected = scanned.getHighValueOrders(threshold, 3, 7);
+            HighValueOrderPage actual = indexed.getHighValueOrders(threshold, 3, 7);
+            assertEquals(expected.getTotalMatches(), actual.getTotalMatches());
+            assertEquals(expected.getOrders().toString(), actual.getOrders().toString());
+        }
+        for (String customer : List.of("Euro Shopping Channel", "\"Australian Collectors, Co.\"", "Nobody")) {
+            assertEquals(scanned.getOrdersForCustomer(customer).toString(),
+                    indexed.getOrdersForCustomer(customer).toString());
+        }
+        assertEquals(259, indexed.getOrdersForCustomer("Euro Shopping Channel").size());
+        assertEquals(scanned.getOrdersForCountry("France").toString(), indexed.getOrdersForCountry("France").toString());
+        assertEquals(scanned.getOrdersForProductLine("Planes").toString(),
+                indexed.getOrdersForProductLine("Planes").toString());
+        for (int order : new int[] { 10100, 10107, 10425, 1 }) {
+            assertEquals(scanned.getOrderLines(order).toString(), indexed.getOrderLines(order).toString());
+        }
+        assertEquals(scanned.getOrdersInSalesRange(3000.0, 3500.0).toString(),
+                indexed.getOrdersInSalesRange(3000.0, 3500.0).toString());
+        assertTrue(indexed.getOrdersInSalesRange(5.0, 1.0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Range bounds are inclusive and ties keep file order")
+    void testSalesRangeBounds() {
+        SalesColumns.Builder builder = new SalesColumns.Builder(8);
+        double[] sales = { 5.0, 10.0, 7.5, 10.0, 2.0, 7.5 };
+        for (int i = 0; i < sales.length; i++) {
+            builder.add(new SalesRecord(i, 1, sales[i], sales[i], LocalDate.of(2004, 1, 1), "Shipped", 1, 1,
+                    2004, "Planes", "P1", "C" + (i % 2), "Paris", "France", "EMEA", "Small"));
+        }
+        SalesIndexes indexes = new SalesIndexes(builder.build());
+
+        assertArrayEquals(new int[] { 1, 3, 2, 5, 0 }, indexes.rowsWithSalesBetween(5.0, 10.0));
+        assertArrayEquals(new int[] { 2, 5 }, indexes.rowsWithSalesBetween(7.5, 7.5));
+        assertEquals(2, indexes.countSalesAbove(7.5));
+        assertArrayEquals(new int[] { 1, 3, 5 }, indexes.rowsWhere(SalesColumns.TextColumn.CUSTOMER_NAME, "C1"));
+        assertArrayEquals(new int[] { 4 }, indexes.rowsForOrder(4));
+        assertThrows(IllegalArgumentException.class, () -> indexes.rowsWhere(SalesColumns.TextColumn.CITY, "Paris"));
+    }
+}
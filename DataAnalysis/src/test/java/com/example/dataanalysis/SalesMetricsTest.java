@@ -0,0 +1,137 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import com.example.dataanalysis.SalesMetrics.Histogram;
+import com.example.dataanalysis.SalesMetrics.LoadPhase;
+import com.example.dataanalysis.SalesMetrics.Stats;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the latency histogram, the query and load metrics, and the JFR events.
+ */
+class SalesMetricsTest {
+
+    private static final String CSV = "src/main/resources/sales.csv";
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void disable() {
+        SalesMetrics.global().setEnabled(false);
+        SalesMetrics.global().reset();
+    }
+
+    @Test
+    @DisplayName("Histogram buckets bound their values and percentiles are within 12.5%")
+    void testHistogram() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Histogram.bucket(value);
+            assertTrue(Histogram.upperBound(bucket) >= value);
+            assertEquals(bucket, Histogram.bucket(Histogram.upperBound(bucket)));
+        }
+
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(0.5));
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+        assertEquals(500, histogram.percentile(0.5), 500 * 0.125);
+        assertEquals(990, histogram.percentile(0.99), 990 * 0.125);
+        assertEquals(1000, histogram.percentile(1.0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(0));
+    }
+
+    @Test
+    @DisplayName("Queries record calls, rows and bytes; loads record each phase and its failures")
+    void testMetrics() throws IOException {
+        SalesMetrics metrics = SalesMetrics.global();
+        metrics.reset();
+        metrics.setEnabled(true);
+
+        SalesAnalysis analysis = new SalesAnalysis(CSV);
+        int rows = (int) analysis.getTotalTransactions();
+        analysis.getTopCustomers(5);
+        analysis.getTopCustomers(5); // cache hit: no rows scanned
+        analysis.getOrdersForCountry("Japan");
+
+        Stats top = metrics.getQueries().get("topCustomers");
+        assertEquals(2, top.getCalls());
+        assertEquals(0, top.getErrors());
+        assertEquals(rows, top.getRows());
+        assertEquals((long) rows * 12, top.getBytes()); // sales and customer code
+        assertEquals(2, top.getLatency().getCount());
+        assertEquals(1, metrics.getQueries().get("ordersForCountry").getCalls());
+
+        Stats parse = metrics.getLoadPhases().get(LoadPhase.PARSE);
+        assertEquals(rows, parse.getRows());
+        assertEquals(Files.size(Paths.get(CSV)), metrics.getLoadPhases().get(LoadPhase.READ).getBytes());
+        assertEquals(rows, metrics.getLoadPhases().get(LoadPhase.BUILD).getRows());
+
+        Path bad = tempDir.resolve("bad.csv");
+        List<String> lines = Files.readAllLines(Paths.get(CSV), StandardCharsets.ISO_8859_1);
+        Files.write(bad, List.of(lines.get(0), lines.get(1).replaceFirst("^\\d+", "N/A")),
+                StandardCharsets.ISO_8859_1);
+        assertThrows(RuntimeException.class, () -> new SalesAnalysis(bad.toString()));
+        assertEquals(1, metrics.getLoadPhases().get(LoadPhase.PARSE).getErrors());
+
+        String json = metrics.toJson();
+        assertTrue(json.startsWith("{\"enabled\":true,\"queries\":{"));
+        assertTrue(json.contains("\"topCustomers\":{\"calls\":2,\"errors\":0,\"rows\":" + rows));
+        assertTrue(json.contains("\"parse\":{\"calls\":2,\"errors\":1"));
+        assertTrue(metrics.toText().lines().anyMatch(line -> line.startsWith("topCustomers ")));
+
+        metrics.setEnabled(false);
+        analysis.getTopCustomers(5);
+        assertEquals(2, metrics.getQueries().get("topCustomers").getCalls());
+    }
+
+    @Test
+    @DisplayName("A JFR recording gets query and load events even with the metrics off")
+    void testFlightRecorderEvents() throws IOException {
+        Path file = tempDir.resolve("sales.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.dataanalysis.Query");
+            recording.enable("com.example.dataanalysis.LoadPhase");
+            recording.start();
+            new SalesAnalysis(CSV).getRevenueByTerritory();
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<String> queries = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.example.dataanalysis.Query"))
+                .map(e -> e.getString("query") + ":" + e.getLong("rows") + ":" + e.getBoolean("failed"))
+                .collect(Collectors.toList());
+        assertEquals(List.of("revenueByTerritory:2823:false"), queries);
+        List<String> phases = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.example.dataanalysis.LoadPhase"))
+                .map(e -> e.getString("phase"))
+                .collect(Collectors.toList());
+        assertTrue(phases.containsAll(List.of("read", "parse", "build")));
+        assertTrue(SalesMetrics.global().getQueries().isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HTTP query server: answers, errors, and reloads under concurrent queries.
+ */
+class SalesServerTest {
+
+    private static final String CSV = "src/main/resources/sales.csv";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpResponse<String> get(SalesServer server, String pathAndQuery) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + pathAndQuery))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String json(Object value) {
+        StringBuilder out = new StringBuilder();
+        SalesServer.appendJson(out, value);
+        return out.toString();
+    }
+
+    @Test
+    @DisplayName("Queries are answered as JSON from the loaded data; bad requests get 4xx")
+    void testQueries() throws Exception {
+        try (SalesServer server = new SalesServer(CSV, false, 0)) {
+            server.start();
+            SalesAnalysis expected = new SalesAnalysis(CSV);
+
+            HttpResponse<String> top = get(server, "/top?by=customer&n=3");
+            assertEquals(200, top.statusCode());
+            assertEquals("application/json", top.headers().firstValue("Content-Type").orElse(""));
+            assertEquals(json(expected.getTopCustomers(3)), top.body());
+            assertEquals(json(expected.getRevenueByTerritory()), get(server, "/revenue?by=territory").body());
+            assertEquals(json(expected.getHighValueOrders(9000, 2, 5)),
+                    get(server, "/high-value?threshold=9000&offset=2&limit=5").body());
+            assertEquals(json(expected.getOrdersForCountry("Japan")), get(server, "/orders?country=Japan").body());
+            assertTrue(get(server, "/report").body().contains("Total Transactions: 2,823"));
+
+            assertEquals(400, get(server, "/top?n=ten").statusCode());
+            assertEquals(400, get(server, "/revenue-between?from=2004-01-01").statusCode());
+            assertEquals(404, get(server, "/nope").statusCode());
+            assertEquals(405, get(server, "/reload").statusCode());
+        }
+    }
+
+    @Test
+    @DisplayName("Reloads swap the data atomically while concurrent queries keep running")
+    void testReloadUnderLoad() throws Exception {
+        List<String> lines = Files.readAllLines(Paths.get(CSV), StandardCharsets.ISO_8859_1);
+        List<SalesRecord> all = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            all.add(SalesRecord.fromCsvLine(line));
+        }
+        List<SalesRecord> half = all.subList(0, all.size() / 2);
+        Map<Long, Double> revenueByRows = Map.of((long) all.size(), new SalesAnalysis(all).getTotalRevenue(),
+                (long) half.size(), new SalesAnalysis(half).getTotalRevenue());
+        AtomicInteger loads = new AtomicInteger();
+        SalesServer.Loader loader = () -> new SalesAnalysis(loads.getAndIncrement() % 2 == 0 ? all : half);
+
+        try (SalesServer server = new SalesServer(loader, 0, 4)) {
+            server.start();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + server.getPort() + "/totals")).build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+                if (i % 20 == 0) {
+                    HttpRequest reload = HttpRequest.newBuilder(
+                            URI.create("http://127.0.0.1:" + server.getPort() + "/reload"))
+                            .POST(HttpRequest.BodyPublishers.noBody()).build();
+                    responses.add(client.sendAsync(reload, HttpResponse.BodyHandlers.ofString()));
+                }
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.get().statusCode());
+                String body = response.get().body();
+                if (body.startsWith("{\"totalRevenue\"")) {
+                    // Revenue and row count always come from the same dataset
+                    long rows = Long.parseLong(body.replaceAll(".*\"totalTransactions\":(\\d+).*", "$1"));
+                    double revenue = Double.parseDouble(body.replaceAll(".*\"totalRevenue\":([^,]+),.*", "$1"));
+                    assertEquals(revenueByRows.get(rows), revenue, 1e-6);
+                }
+            }
+            assertEquals(11, loads.get());
+            assertEquals(all.size(), server.getAnalysis().getTotalTransactions()); // the 11th load, like the 1st
+        }
+    }
+
+    @Test
+    @DisplayName("A failed reload keeps serving the old data")
+    void testFailedReload() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        SalesServer.Loader loader = () -> {
+            if (loads.getAndIncrement() > 0) {
+                throw new IOException("disk gone");
+            }
+            return new SalesAnalysis(CSV);
+        };
+        try (SalesServer server = new SalesServer(loader, 0, 1)) {
+            SalesAnalysis before = server.getAnalysis();
+            assertThrows(IOException.class, server::reload);
+            assertSame(before, server.getAnalysis());
+        }
+    }
+}
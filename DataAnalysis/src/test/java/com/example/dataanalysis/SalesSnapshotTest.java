@@ -0,0 +1,100 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the binary snapshot: exact round trip, invalidation and corruption checks.
+ */
+class SalesSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path copySampleCsv() throws IOException {
+        Path csv = tempDir.resolve("sales.csv");
+        Files.copy(Paths.get("src/main/resources/sales.csv"), csv, StandardCopyOption.REPLACE_EXISTING);
+        return csv;
+    }
+
+    @Test
+    @DisplayName("Snapshot round trip reproduces every row and dictionary")
+    void testRoundTrip() throws IOException {
+        Path csv = copySampleCsv();
+        SalesColumns loaded = new ChunkedCsvLoader().load(csv);
+        Path snapshot = SalesSnapshot.defaultPath(csv);
+        SalesSnapshot.write(loaded, snapshot, csv);
+
+        assertTrue(SalesSnapshot.isCurrent(snapshot, csv));
+        SalesColumns read = SalesSnapshot.read(snapshot);
+        assertEquals(loaded.size(), read.size());
+        for (int row = 0; row < loaded.size(); row++) {
+            assertEquals(loaded.record(row).toString(), read.record(row).toString());
+            assertEquals(Double.doubleToLongBits(loaded.sales[row]), Double.doubleToLongBits(read.sales[row]));
+        }
+        for (SalesColumns.TextColumn column : SalesColumns.TextColumn.values()) {
+            assertEquals(loaded.dictionary(column).size(), read.dictionary(column).size());
+        }
+        assertEquals(new SalesAnalysis(loaded).getTotalRevenue(), new SalesAnalysis(read).getTotalRevenue(), 0.0);
+    }
+
+    @Test
+    @DisplayName("open() reuses a current snapshot and rebuilds a stale or corrupt one")
+    void testOpenInvalidation() throws IOException {
+        Path csv = copySampleCsv();
+        Path snapshot = SalesSnapshot.defaultPath(csv);
+        double expected = new SalesAnalysis(csv.toString()).getTotalRevenue();
+
+        assertEquals(expected, SalesAnalysis.open(csv.toString()).getTotalRevenue(), 0.0);
+        assertTrue(SalesSnapshot.isCurrent(snapshot, csv));
+
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(Files.getLastModifiedTime(csv).toMillis() + 5000));
+        assertFalse(SalesSnapshot.isCurrent(snapshot, csv));
+        assertEquals(expected, SalesAnalysis.open(csv.toString()).getTotalRevenue(), 0.0);
+        assertTrue(SalesSnapshot.isCurrent(snapshot, csv));
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(snapshot, bytes);
+        Files.setLastModifiedTime(snapshot, Files.getLastModifiedTime(csv));
+        assertThrows(IOException.class, () -> SalesSnapshot.read(snapshot));
+        assertEquals(expected, SalesAnalysis.open(csv.toString()).getTotalRevenue(), 0.0);
+        assertNotNull(SalesSnapshot.read(snapshot));
+    }
+
+    @Test
+    @DisplayName("A row count larger than the file holds fails with IOException, and open() falls back")
+    void testOversizeRowCount() throws IOException {
+        Path csv = copySampleCsv();
+        Path snapshot = SalesSnapshot.defaultPath(csv);
+        double expected = new SalesAnalysis(csv.toString()).getTotalRevenue();
+        SalesAnalysis.open(csv.toString());
+
+        // 600M rows: every int column alone would be 2.4 GB
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(12, 600_000_000);
+        Files.write(snapshot, bytes);
+        Files.setLastModifiedTime(snapshot, Files.getLastModifiedTime(csv));
+        assertTrue(SalesSnapshot.isCurrent(snapshot, csv));
+        assertThrows(IOException.class, () -> SalesSnapshot.read(snapshot));
+        assertThrows(IOException.class, () -> SalesSnapshot.map(snapshot));
+
+        assertEquals(expected, SalesAnalysis.openOffHeap(csv.toString(), false).getTotalRevenue(), 0.0);
+        Files.write(snapshot, bytes);
+        Files.setLastModifiedTime(snapshot, Files.getLastModifiedTime(csv));
+        assertEquals(expected, SalesAnalysis.open(csv.toString()).getTotalRevenue(), 0.0);
+        assertEquals(2823, SalesSnapshot.read(snapshot).size());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.example.dataanalysis.SalesTimeIndex.Bucket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that date-window queries over the time index match a plain scan of the records.
+ */
+class SalesTimeIndexTest {
+
+    private static final String CSV = "src/main/resources/sales.csv";
+
+    private static List<SalesRecord> records() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(CSV), StandardCharsets.ISO_8859_1);
+        List<SalesRecord> records = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            records.add(SalesRecord.fromCsvLine(line));
+        }
+        return records;
+    }
+
+    private static boolean within(SalesRecord record, LocalDate from, LocalDate to) {
+        return !record.getOrderDate().isBefore(from) && !record.getOrderDate().isAfter(to);
+    }
+
+    @Test
+    @DisplayName("Window totals match a scan, exactly with exact money")
+    void testWindowTotals() throws IOException {
+        List<SalesRecord> records = records();
+        SalesAnalysis analysis = new SalesAnalysis(CSV);
+        SalesAnalysis exact = new SalesAnalysis(CSV, true);
+        LocalDate[][] windows = {
+                {LocalDate.of(2003, 1, 1), LocalDate.of(2003, 12, 31)},
+                {LocalDate.of(2004, 2, 15), LocalDate.of(2004, 3, 14)},
+                {LocalDate.of(2005, 5, 31), LocalDate.of(2005, 5, 31)},
+                {LocalDate.of(1990, 1, 1), LocalDate.of(2030, 1, 1)},
+        };
+        for (LocalDate[] window : windows) {
+            double revenue = 0;
+            BigDecimal revenueExact = BigDecimal.ZERO;
+            long quantity = 0;
+            long lines = 0;
+            for (SalesRecord record : records) {
+                if (within(record, window[0], window[1])) {
+                    revenue += record.getSales();
+                    revenueExact = revenueExact.add(BigDecimal.valueOf(record.getSales()));
+                    quantity += record.getQuantityOrdered();
+                    lines++;
+                }
+            }
+            assertEquals(revenue, analysis.getRevenueBetween(window[0], window[1]), 1e-6);
+            assertEquals(revenueExact.doubleValue(), exact.getRevenueBetween(window[0], window[1]));
+            assertEquals(quantity, analysis.getQuantityBetween(window[0], window[1]));
+            assertEquals(lines, analysis.getOrderCountBetween(window[0], window[1]));
+        }
+        assertEquals(analysis.getTotalTransactions(),
+                analysis.getOrderCountBetween(LocalDate.MIN.plusDays(1), LocalDate.of(9999, 1, 1)));
+
+        // Empty, reversed and out-of-range windows are 0
+        assertEquals(0.0, analysis.getRevenueBetween(LocalDate.of(1999, 1, 1), LocalDate.of(1999, 12, 31)));
+        assertEquals(0, analysis.getQuantityBetween(LocalDate.of(2004, 6, 1), LocalDate.of(2004, 5, 1)));
+        assertEquals(0, analysis.getOrderCountBetween(LocalDate.of(2010, 1, 1), LocalDate.of(2011, 1, 1)));
+    }
+
+    @Test
+    @DisplayName("Buckets cover the window and rolling windows sum the days before them")
+    void testBucketsAndRollingWindows() throws IOException {
+        // Off-heap, so the index is built through the projected block scan
+        SalesAnalysis exact = new SalesAnalysis(
+                OffHeapSalesColumns.copyOf(new ChunkedCsvLoader(true).load(Paths.get(CSV))));
+        LocalDate from = LocalDate.of(2003, 6, 18);
+        LocalDate to = LocalDate.of(2004, 9, 3);
+        double total = exact.getRevenueBetween(from, to);
+
+        for (Bucket bucket : Bucket.values()) {
+            Map<LocalDate, Double> buckets = exact.getRevenueByPeriod(bucket, from, to);
+            BigDecimal sum = BigDecimal.ZERO;
+            for (double revenue : buckets.values()) {
+                sum = sum.add(BigDecimal.valueOf(revenue));
+            }
+            assertEquals(total, sum.doubleValue(), bucket.name());
+        }
+        Map<LocalDate, Double> months = exact.getRevenueByPeriod(Bucket.MONTH, from, to);
+        assertEquals(16, months.size());
+        assertEquals(LocalDate.of(2003, 6, 1), months.keySet().iterator().next());
+        assertEquals(exact.getRevenueBetween(LocalDate.of(2003, 11, 1), LocalDate.of(2003, 11, 30)),
+                months.get(LocalDate.of(2003, 11, 1)));
+        Map<LocalDate, Double> weeks = exact.getRevenueByPeriod(Bucket.WEEK, from, to);
+        assertTrue(weeks.keySet().stream().allMatch(day -> day.getDayOfWeek().getValue() == 1));
+
+        Map<LocalDate, Double> rolling = exact.getRollingRevenue(from, to, 7);
+        assertEquals(444, rolling.size());
+        rolling.forEach((day, revenue) ->
+                assertEquals(exact.getRevenueBetween(day.minusDays(6), day), revenue));
+        assertThrows(IllegalArgumentException.class, () -> exact.getRollingRevenue(from, to, 0));
+    }
+
+    @Test
+    @DisplayName("Dates arriving backwards, with far outliers, across merged partitions, index like a scan")
+    void testWideningAndMerge() throws IOException {
+        List<SalesRecord> records = records();
+        records.sort((a, b) -> b.getOrderDate().compareTo(a.getOrderDate()));
+        SalesRecord sample = records.get(0);
+        for (LocalDate outlier : new LocalDate[] { LocalDate.of(1990, 1, 1), LocalDate.of(2030, 12, 31) }) {
+            records.add(records.size() / 3, new SalesRecord(1, 1, 1.0, 1.0, outlier, sample.getStatus(),
+                    1, 1, outlier.getYear(), sample.getProductLine(), sample.getProductCode(),
+                    sample.getCustomerName(), sample.getCity(), sample.getCountry(), sample.getTerritory(),
+                    sample.getDealSize()));
+        }
+        SalesColumns columns = SalesColumns.of(records);
+        SalesTimeIndex index = SalesTimeIndex.build(columns, QueryExecutor.sequential().withMinPartitionRows(100));
+
+        assertEquals(LocalDate.of(1990, 1, 1), index.getFirstDate());
+        assertEquals(LocalDate.of(2030, 12, 31), index.getLastDate());
+        assertEquals(records.size(), index.orderLines(index.getFirstDate(), index.getLastDate()));
+        LocalDate from = LocalDate.of(2003, 6, 18);
+        LocalDate to = LocalDate.of(2004, 9, 3);
+        assertEquals(records.stream().filter(r -> within(r, from, to)).count(), index.orderLines(from, to));
+        assertEquals(records.stream().filter(r -> within(r, from, to)).mapToLong(SalesRecord::getQuantityOrdered).sum(),
+                index.quantity(from, to));
+        assertEquals(records.stream().filter(r -> within(r, from, to)).mapToDouble(SalesRecord::getSales).sum(),
+                index.revenue(from, to), 1e-6);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.example.dataanalysis.GroupBy.Metric;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Accuracy and mergeability of the HyperLogLog and KLL sketches.
+ */
+class SketchTest {
+
+    @Test
+    @DisplayName("HyperLogLog estimates within a few standard errors and merges exactly")
+    void testHyperLogLog() {
+        HyperLogLog whole = new HyperLogLog(14);
+        HyperLogLog left = new HyperLogLog(14);
+        HyperLogLog right = new HyperLogLog(14);
+        int distinct = 500_000;
+        for (int i = 0; i < distinct; i++) {
+            String value = "Customer " + i;
+            whole.add(value);
+            whole.add(value); // duplicates never change the sketch
+            (i % 3 == 0 ? left : right).add(value);
+        }
+        assertEquals(distinct, whole.estimate(), distinct * 0.03);
+
+        left.merge(right);
+        assertEquals(whole, left);
+
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            small.add("City " + i);
+        }
+        assertEquals(100, small.estimate(), 2);
+        assertThrows(IllegalArgumentException.class, () -> small.merge(new HyperLogLog(10)));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+    }
+
+    @Test
+    @DisplayName("KLL quantiles stay within the rank error, also after merging partial sketches")
+    void testKllQuantiles() {
+        int n = 1_000_000;
+        double[] values = new double[n];
+        Random random = new Random(7);
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextDouble() * 10000;
+        }
+        KllSketch whole = new KllSketch();
+        KllSketch[] parts = new KllSketch[4];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new KllSketch();
+        }
+        for (int i = 0; i < n; i++) {
+            whole.add(values[i]);
+            parts[i % parts.length].add(values[i]);
+        }
+        KllSketch merged = parts[0].copy();
+        for (int p = 1; p < parts.length; p++) {
+            merged.merge(parts[p]);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (KllSketch sketch : new KllSketch[] { whole, merged }) {
+            assertEquals(n, sketch.getCount());
+            assertTrue(sketch.retained() < 2000, "sketch holds " + sketch.retained() + " items");
+            for (double q : new double[] { 0.01, 0.5, 0.9, 0.99 }) {
+                double estimate = sketch.quantile(q);
+                double rank = (double) Math.abs(Arrays.binarySearch(sorted, estimate)) / n;
+                assertEquals(q, rank, 0.02, "quantile " + q);
+            }
+            assertEquals(sorted[0], sketch.quantile(0), 0.0);
+            assertEquals(sorted[n - 1], sketch.quantile(1), 0.0);
+        }
+        assertTrue(Double.isNaN(new KllSketch().quantile(0.5)));
+    }
+
+    @Test
+    @DisplayName("Approximate SalesAnalysis queries are close to the exact answers")
+    void testApproximateQueries() throws IOException {
+        SalesAnalysis analysis = new SalesAnalysis(
+                new ChunkedCsvLoader().load(Paths.get("src/main/resources/sales.csv")));
+
+        long exactCustomers = analysis.getDistinctCustomerCount();
+        assertEquals(exactCustomers, analysis.getApproxDistinctCount(TextColumn.CUSTOMER_NAME), exactCustomers * 0.02);
+        assertEquals(109, analysis.getApproxDistinctCount(TextColumn.PRODUCT_CODE), 3);
+
+        double[] sales = analysis.getOrdersInSalesRange(0, Double.MAX_VALUE).stream()
+                .mapToDouble(SalesRecord::getSales).sorted().toArray();
+        double[] quantiles = analysis.getApproxQuantiles(Metric.SALES, 0.5, 0.9, 0.99);
+        double[] qs = { 0.5, 0.9, 0.99 };
+        for (int i = 0; i < qs.length; i++) {
+            double rank = (double) Math.abs(Arrays.binarySearch(sales, quantiles[i])) / sales.length;
+            assertEquals(qs[i], rank, 0.02, "quantile " + qs[i]);
+        }
+        assertEquals(sales.length, analysis.getQuantileSketch(Metric.PRICE_EACH).getCount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.dataanalysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.example.dataanalysis.SalesAggregators.HighValueOrders;
+import com.example.dataanalysis.SalesAggregators.RevenueBy;
+import com.example.dataanalysis.SalesColumns.Column;
+import com.example.dataanalysis.SalesColumns.TextColumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the constant-memory streaming mode: small batches and a tiny
+ * read buffer must give the same answers as loading the file.
+ */
+class StreamingSalesAnalysisTest {
+
+    private static final String CSV = "ORDERNUMBER,QUANTITYORDERED,PRICEEACH,SALES,ORDERDATE,STATUS,QTR_ID,MONTH_ID,"
+            + "YEAR_ID,PRODUCTLINE,MSRP,PRODUCTCODE,CUSTOMERNAME,ADDRESSLINE1,ADDRESSLINE2,CITY,POSTALCODE,COUNTRY,"
+            + "TERRITORY,CONTACTLASTNAME,CONTACTFIRSTNAME,DEALSIZE\r\n"
+            + "1001,10,100,1000,1/15/2003 0:00,Shipped,1,1,2003,Classic Cars,95,C001,Customer A,1 St,,NYC,1,USA,NA,X,Y,Small\r\n"
+            + "1002,20,150,3000,2/20/2003 0:00,Shipped,1,2,2003,Classic Cars,95,C002,Customer A,1 St,,NYC,1,USA,NA,X,Y,Medium\r\n"
+            + "1003,5,200,12000,3/10/2004 0:00,Cancelled,1,3,2004,Motorcycles,95,M001,\"Customer B, Ltd.\",2 Rd,,Paris,2,France,EMEA,X,Y,Large\r\n"
+            + "1004,15,300,12000,4/5/2004 0:00,Shipped,2,4,2004,Motorcycles,95,M002,\"Customer B, Ltd.\",2 Rd,,Paris,2,France,EMEA,X,Y,Large\r\n"
+            + "1005,8,250,15000,5/12/2005 0:00,On Hold,2,5,2005,Planes,95,P001,Customer C,3 Ave,,Tokyo,3,Japan,Japan,X,Y,Large\r\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Streamed aggregates match the loaded dataset")
+    void testAggregatorsMatchLoadedData() throws IOException {
+        RevenueBy byCustomer = new RevenueBy(TextColumn.CUSTOMER_NAME);
+        HighValueOrders highValue = new HighValueOrders(10000.0, 2);
+
+        long rows = new StreamingSalesAnalysis(2)
+                .register(byCustomer)
+                .register(highValue)
+                .run(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertEquals(5, rows);
+        assertEquals(4000.0, byCustomer.result().get("Customer A"), 0.0);
+        assertEquals(24000.0, byCustomer.result().get("\"Customer B, Ltd.\""), 0.0);
+        assertEquals(3, highValue.getMatchCount());
+        assertEquals(1005, highValue.result().get(0).getOrderNumber());
+        // Equal sales keep input order
+        assertEquals(1003, highValue.result().get(1).getOrderNumber());
+    }
+
+    @Test
+    @DisplayName("Streamed report is identical to the in-memory report")
+    void testReportMatchesInMemory() throws IOException {
+        Path file = tempDir.resolve("sales.csv");
+        Files.writeString(file, CSV, StandardCharsets.ISO_8859_1);
+
+        SalesReport streamed = new SalesReport();
+        new StreamingSalesAnalysis(1).register(streamed).run(file);
+
+        SalesReport loaded = new SalesReport();
+        SalesColumns columns = new ChunkedCsvLoader().load(file);
+        loaded.accept(columns, 0, columns.size());
+
+        assertEquals(render(loaded), render(streamed));
+    }
+
+    @Test
+    @DisplayName("Batches decode only the columns aggregators read, with dictionaries of one batch's values")
+    void testBatchDictionariesDoNotGrow() throws IOException {
+        int[] largest = new int[2];
+        SalesAggregator probe = new SalesAggregator() {
+            @Override
+            public void accept(SalesColumns batch, int from, int to) {
+                largest[0] = Math.max(largest[0], batch.dictionary(TextColumn.CUSTOMER_NAME).size());
+                largest[1] = Math.max(largest[1], batch.dictionary(TextColumn.CITY).size());
+            }
+
+            @Override
+            public Set<Column> columns() {
+                return EnumSet.of(Column.CUSTOMER_NAME);
+            }
+        };
+        RevenueBy byCustomer = new RevenueBy(TextColumn.CUSTOMER_NAME);
+
+        new StreamingSalesAnalysis(2).register(probe).register(byCustomer)
+                .run(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertEquals(1, largest[0]); // one customer per batch of 2 rows, 3 overall
+        assertEquals(1, largest[1]); // only "": CITY is not decoded
+        assertEquals(3, byCustomer.result().size());
+        assertEquals(15000.0, byCustomer.result().get("Customer C"), 0.0);
+    }
+
+    private static String render(SalesReport report) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}